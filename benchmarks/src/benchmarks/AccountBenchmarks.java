@@ -0,0 +1,44 @@
+package benchmarks;
+
+import common.IUserSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Customer login. Each session is logged out again so that sessions do not pile up on the server.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountBenchmarks {
+
+    @State(Scope.Thread)
+    public static class Credentials {
+        String username;
+
+        @Setup
+        public void setUp(StoreState store) {
+            username = store.nextUsername();
+        }
+    }
+
+    @Benchmark
+    public IUserSession loginAndLogout(StoreState store, Credentials credentials) throws RemoteException {
+        IUserSession session = store.factory.login(credentials.username, StoreDataSet.PASSWORD, null);
+        session.logout();
+        return session;
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import common.OrderFilter;
+import common.OrderPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The statistics and order listing of the admin panel, over the seeded order history.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdminBenchmarks {
+
+    @Benchmark
+    public String dashboardStatistics(StoreState store) throws RemoteException {
+        return store.admin.getDashboardStatistics();
+    }
+
+    @Benchmark
+    public String advancedStatisticsReport(StoreState store) throws RemoteException {
+        return store.admin.getAdvancedStatisticsReport();
+    }
+
+    @Benchmark
+    public OrderPage firstPageOfOrders(StoreState store) throws RemoteException {
+        return store.admin.viewAllOrders(new OrderFilter(), null, 20);
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import common.CartOperation;
+import common.Order;
+import common.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cart and checkout of a customer. Every benchmark leaves the stock as it found it, except
+ * placeOrder, which the data set's stock levels are sized for.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartBenchmarks {
+
+    /**
+     * Reserving and releasing a product; the pair keeps the cart empty between invocations.
+     */
+    @Benchmark
+    public void addAndRemoveFromCart(SessionState user) throws RemoteException {
+        int productId = user.randomProductId();
+        user.session.addToCart(productId, 1);
+        user.session.removeFromCart(productId);
+    }
+
+    /**
+     * Adding three products in one updateCart call and removing them in another; compare with
+     * addAndRemoveFromCart, which takes one call per product.
+     */
+    @Benchmark
+    public Map<Product, Integer> updateCartThreeLines(SessionState user) throws RemoteException {
+        List<CartOperation> add = new ArrayList<>(3);
+        List<CartOperation> remove = new ArrayList<>(3);
+        for (int i = 0; i < 3; i++) {
+            int productId = user.randomProductId();
+            add.add(CartOperation.add(productId, 1));
+            remove.add(CartOperation.remove(productId));
+        }
+        user.session.updateCart(add);
+        return user.session.updateCart(remove);
+    }
+
+    @Benchmark
+    public Map<Product, Integer> viewCart(FilledCartState cart) throws RemoteException {
+        return cart.session.viewCart();
+    }
+
+    /**
+     * A one-line order, including the addToCart that precedes every checkout.
+     */
+    @Benchmark
+    public Order placeOrder(SessionState user) throws RemoteException {
+        user.session.addToCart(user.randomProductId(), 1);
+        return user.session.placeOrder();
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import common.Product;
+import common.ProductFilter;
+import common.ProductPage;
+import common.ProductSort;
+import common.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product browsing as a customer: the full catalog, single pages of the filtered, sorted listing and searches.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogBenchmarks {
+
+    @Benchmark
+    public List<Product> browseAll(SessionState user) throws RemoteException {
+        return user.session.browseProducts();
+    }
+
+    @Benchmark
+    public ProductPage browseFirstPageByName(SessionState user) throws RemoteException {
+        return user.session.browseProducts(new ProductFilter(), ProductSort.NAME, null, 20);
+    }
+
+    @Benchmark
+    public ProductPage browseFilteredByBrandAndPrice(SessionState user) throws RemoteException {
+        ProductFilter filter = new ProductFilter();
+        filter.setBrand("Adidas");
+        filter.setMaxPrice(100.0);
+        return user.session.browseProducts(filter, ProductSort.PRICE_LOW_TO_HIGH, null, 20);
+    }
+
+    @Benchmark
+    public SearchResult searchWords(SessionState user) throws RemoteException {
+        return user.session.searchProducts("nike running", null, null, 20);
+    }
+
+    @Benchmark
+    public SearchResult searchPrefixWithFilter(SessionState user) throws RemoteException {
+        ProductFilter filter = new ProductFilter();
+        filter.setCategory("Football Jerseys");
+        filter.setMaxPrice(100.0);
+        return user.session.searchProducts("jer", filter, null, 20);
+    }
+}
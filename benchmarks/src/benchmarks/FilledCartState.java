@@ -0,0 +1,34 @@
+package benchmarks;
+
+import common.IUserSession;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A customer session per benchmark thread whose cart already holds cartLines different products.
+ */
+@State(Scope.Thread)
+public class FilledCartState {
+
+    @Param({"5"})
+    public int cartLines;
+
+    IUserSession session;
+
+    @Setup(Level.Trial)
+    public void setUp(StoreState store) throws Exception {
+        session = store.factory.login(store.nextUsername(), StoreDataSet.PASSWORD, null);
+        for (int productId = 1; productId <= Math.min(cartLines, store.products); productId++) {
+            session.addToCart(productId, 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        session.logout();
+    }
+}
@@ -0,0 +1,101 @@
+package benchmarks;
+
+import common.Order;
+import common.OrderItem;
+import common.Product;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Copies of the DTOs as they were before they got their own wire format, using default Java
+ * serialization. They are the baseline of {@link SerializationBenchmarks}.
+ */
+final class LegacyDtos {
+
+    private LegacyDtos() {
+    }
+
+    static final class LegacyProduct implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int id;
+        private final String name;
+        private final String description;
+        private final double price;
+        private final int stockQuantity;
+        private final String category;
+        private final String brand;
+        private final String size;
+        private final String color;
+
+        LegacyProduct(Product product) {
+            // Strings read from the database are never shared between rows, so the serialization
+            // stream cannot replace repeated values with back-references; copying keeps that true here.
+            this.id = product.getId();
+            this.name = copy(product.getName());
+            this.description = copy(product.getDescription());
+            this.price = product.getPrice();
+            this.stockQuantity = product.getStockQuantity();
+            this.category = copy(product.getCategory());
+            this.brand = copy(product.getBrand());
+            this.size = copy(product.getSize());
+            this.color = copy(product.getColor());
+        }
+    }
+
+    static final class LegacyOrderItem implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int productId;
+        private final int quantity;
+        private final double price;
+
+        LegacyOrderItem(OrderItem item) {
+            this.productId = item.getProductId();
+            this.quantity = item.getQuantity();
+            this.price = item.getPrice();
+        }
+    }
+
+    static final class LegacyOrder implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int id;
+        private final int customerId;
+        private final Date orderDate;
+        private final List<LegacyOrderItem> items = new ArrayList<>();
+        private final double totalAmount;
+        private final Order.Status status;
+
+        LegacyOrder(Order order) {
+            this.id = order.getId();
+            this.customerId = order.getCustomerId();
+            this.orderDate = order.getOrderDate();
+            for (OrderItem item : order.getItems()) {
+                items.add(new LegacyOrderItem(item));
+            }
+            this.totalAmount = order.getTotalAmount();
+            this.status = order.getStatus();
+        }
+    }
+
+    static ArrayList<LegacyProduct> products(List<Product> products) {
+        ArrayList<LegacyProduct> legacy = new ArrayList<>(products.size());
+        for (Product product : products) {
+            legacy.add(new LegacyProduct(product));
+        }
+        return legacy;
+    }
+
+    static ArrayList<LegacyOrder> orders(List<Order> orders) {
+        ArrayList<LegacyOrder> legacy = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            legacy.add(new LegacyOrder(order));
+        }
+        return legacy;
+    }
+
+    private static String copy(String value) {
+        return value != null ? new String(value) : null;
+    }
+}
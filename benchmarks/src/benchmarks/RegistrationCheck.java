@@ -0,0 +1,168 @@
+package benchmarks;
+
+import common.Customer;
+import server.DatabaseManager;
+import server.StoreFactoryImpl;
+import server.storage.InMemoryStorageEngine;
+import server.storage.JdbcStorageEngine;
+import server.storage.StorageEngine;
+
+import java.rmi.RemoteException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that usernames stay unique now that registerCustomer is not synchronized: many threads
+ * register the same usernames at once. Half of the threads write the usernames in upper case, which
+ * MySQL treats as the same username. Every username must be registered exactly once, and every other
+ * attempt must fail with "Username already exists.". Exits with status 1 if not.
+ *
+ * The check runs against the in-memory storage engine and then against MySQL (the jdbc engine, set up
+ * through server.properties as for the server), where duplicates are caught by the UNIQUE constraint.
+ * The jdbc run is skipped when no database is reachable, unless it was asked for with -Dcheck.engines;
+ * it deletes the customers it registered afterwards.
+ * Options: -Dcheck.engines (memory,jdbc), -Dcheck.threads (16), -Dcheck.usernames (200), -Dcheck.rounds (20).
+ */
+public class RegistrationCheck {
+
+    private static final String DUPLICATE = "Username already exists.";
+
+    public static void main(String[] args) throws Exception {
+        String engines = System.getProperty("check.engines", "memory,jdbc");
+        boolean enginesGiven = System.getProperty("check.engines") != null;
+        int threads = Integer.getInteger("check.threads", 16);
+        int usernames = Integer.getInteger("check.usernames", 200);
+        int rounds = Integer.getInteger("check.rounds", 20);
+        // Usernames of this run, unique across runs so that a jdbc run never meets an earlier run's customers.
+        String prefix = "regcheck" + Long.toString(System.currentTimeMillis(), 36);
+        boolean passed = true;
+        try {
+            for (String engine : engines.split(",")) {
+                engine = engine.trim();
+                if (!engine.equals("memory") && !engine.equals("jdbc")) {
+                    System.out.println("Unknown engine '" + engine + "'. Use 'memory' or 'jdbc'.");
+                    passed = false;
+                    continue;
+                }
+                if (engine.equals("jdbc") && !databaseReachable(enginesGiven)) {
+                    passed &= !enginesGiven;
+                    continue;
+                }
+                System.out.println("Checking the " + engine + " engine...");
+                for (int round = 0; round < rounds && passed; round++) {
+                    passed = runRound(engine, prefix + "r" + round + "u", round, threads, usernames);
+                }
+            }
+        } finally {
+            DatabaseManager.shutdown();
+            System.out.println(passed ? "OK: every username was registered exactly once." : "FAILED");
+            System.exit(passed ? 0 : 1);
+        }
+    }
+
+    private static boolean databaseReachable(boolean required) {
+        try (Connection ignored = DatabaseManager.getConnection()) {
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            System.out.println((required ? "Cannot check" : "Skipped") + " the jdbc engine, no database: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Lets every thread register every username, each thread in its own order, all starting together.
+     */
+    private static boolean runRound(String engine, String prefix, int round, int threads, int usernames) throws Exception {
+        StorageEngine storage = engine.equals("jdbc") ? new JdbcStorageEngine() : new InMemoryStorageEngine(null);
+        StoreFactoryImpl factory = new StoreFactoryImpl(storage);
+        try {
+            int customersBefore = storage.customers().count();
+            Map<String, AtomicInteger> successes = new ConcurrentHashMap<>();
+            Map<String, AtomicInteger> duplicates = new ConcurrentHashMap<>();
+            List<String> unexpected = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                List<String> names = new ArrayList<>();
+                for (int i = 0; i < usernames; i++) {
+                    String name = prefix + i;
+                    names.add(t % 2 == 0 ? name : name.toUpperCase(Locale.ROOT));
+                }
+                Collections.shuffle(names, new Random(round * 1_000L + t));
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (String name : names) {
+                        try {
+                            factory.registerCustomer(new Customer(0, name, "secret", name, "Street 1"));
+                            successes.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> new AtomicInteger()).incrementAndGet();
+                        } catch (RemoteException e) {
+                            // A duplicate caught by the storage carries the SQLException, which getMessage() appends.
+                            if (e.getMessage() != null && e.getMessage().startsWith(DUPLICATE)) {
+                                duplicates.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> new AtomicInteger()).incrementAndGet();
+                            } else {
+                                unexpected.add(name + ": " + e);
+                            }
+                        }
+                    }
+                }, "register-" + t);
+                workers.add(worker);
+                worker.start();
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            boolean passed = unexpected.isEmpty();
+            unexpected.forEach(error -> System.out.println(engine + " round " + round + ", unexpected error for " + error));
+            for (int i = 0; i < usernames; i++) {
+                String name = prefix + i;
+                int registered = count(successes, name);
+                int rejected = count(duplicates, name);
+                if (registered != 1 || rejected != threads - 1) {
+                    System.out.println(engine + " round " + round + ", " + name + ": " + registered + " registrations, " + rejected + " rejected as duplicates.");
+                    passed = false;
+                }
+            }
+            int stored = storage.customers().count() - customersBefore;
+            if (stored != usernames) {
+                System.out.println(engine + " round " + round + ": " + stored + " customers stored for " + usernames + " usernames.");
+                passed = false;
+            }
+            return passed;
+        } finally {
+            factory.shutdown();
+            storage.shutdown();
+            if (engine.equals("jdbc")) {
+                deleteCustomers(prefix);
+            }
+        }
+    }
+
+    private static void deleteCustomers(String prefix) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM customers WHERE username LIKE ?")) {
+            pstmt.setString(1, prefix + "%");
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static int count(Map<String, AtomicInteger> counts, String name) {
+        AtomicInteger count = counts.get(name);
+        return count != null ? count.get() : 0;
+    }
+}
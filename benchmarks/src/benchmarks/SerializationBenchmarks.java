@@ -0,0 +1,147 @@
+package benchmarks;
+
+import common.Order;
+import common.ProductList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of sending a browseProducts and a viewAllOrders response, in the compact wire format
+ * (a ProductList and a list of Orders, "compact") and with default Java serialization of the
+ * same data as the DTOs had before ("legacy"). RMI serializes each
+ * response with an ObjectOutputStream just like these benchmarks do. The serialized sizes are printed
+ * at setup; run main() to print only the sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Payloads {
+        @Param({"20", "1000"})
+        public int products;
+
+        @Param({"20", "1000"})
+        public int orders;
+
+        ProductList compactProducts;
+        ArrayList<LegacyDtos.LegacyProduct> legacyProducts;
+        ArrayList<Order> compactOrders;
+        ArrayList<LegacyDtos.LegacyOrder> legacyOrders;
+        byte[] compactProductBytes;
+        byte[] legacyProductBytes;
+        byte[] compactOrderBytes;
+        byte[] legacyOrderBytes;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            StoreDataSet data = StoreDataSet.seed(products, Math.max(1, orders / 10), orders, 42);
+            compactProducts = new ProductList(data.getStorage().products().findAll());
+            legacyProducts = LegacyDtos.products(compactProducts);
+            compactOrders = new ArrayList<>(data.getStorage().orders().findAll());
+            legacyOrders = LegacyDtos.orders(compactOrders);
+            compactProductBytes = serialize(compactProducts);
+            legacyProductBytes = serialize(legacyProducts);
+            compactOrderBytes = serialize(compactOrders);
+            legacyOrderBytes = serialize(legacyOrders);
+            System.out.println(sizes());
+        }
+
+        String sizes() {
+            return String.format("%d products: legacy %d bytes, compact %d bytes (%.0f%%); "
+                            + "%d orders: legacy %d bytes, compact %d bytes (%.0f%%)",
+                    products, legacyProductBytes.length, compactProductBytes.length,
+                    100.0 * compactProductBytes.length / legacyProductBytes.length,
+                    orders, legacyOrderBytes.length, compactOrderBytes.length,
+                    100.0 * compactOrderBytes.length / legacyOrderBytes.length);
+        }
+    }
+
+    @Benchmark
+    public byte[] writeProductsLegacy(Payloads payloads) throws IOException {
+        return serialize(payloads.legacyProducts);
+    }
+
+    @Benchmark
+    public byte[] writeProductsCompact(Payloads payloads) throws IOException {
+        return serialize(payloads.compactProducts);
+    }
+
+    @Benchmark
+    public Object readProductsLegacy(Payloads payloads) throws Exception {
+        return deserialize(payloads.legacyProductBytes);
+    }
+
+    @Benchmark
+    public Object readProductsCompact(Payloads payloads) throws Exception {
+        return deserialize(payloads.compactProductBytes);
+    }
+
+    @Benchmark
+    public byte[] writeOrdersLegacy(Payloads payloads) throws IOException {
+        return serialize(payloads.legacyOrders);
+    }
+
+    @Benchmark
+    public byte[] writeOrdersCompact(Payloads payloads) throws IOException {
+        return serialize(payloads.compactOrders);
+    }
+
+    @Benchmark
+    public Object readOrdersLegacy(Payloads payloads) throws Exception {
+        return deserialize(payloads.legacyOrderBytes);
+    }
+
+    @Benchmark
+    public Object readOrdersCompact(Payloads payloads) throws Exception {
+        return deserialize(payloads.compactOrderBytes);
+    }
+
+    static byte[] serialize(Serializable value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Prints the serialized sizes for the default parameters without running the benchmarks.
+     */
+    public static void main(String[] args) throws Exception {
+        for (int size : new int[]{20, 1000}) {
+            Payloads payloads = new Payloads();
+            payloads.products = size;
+            payloads.orders = size;
+            payloads.setUp();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+import common.IUserSession;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+
+/**
+ * A logged-in customer session per benchmark thread.
+ */
+@State(Scope.Thread)
+public class SessionState {
+
+    IUserSession session;
+    private Random random;
+    private int products;
+
+    @Setup(Level.Trial)
+    public void setUp(StoreState store) throws Exception {
+        String username = store.nextUsername();
+        session = store.factory.login(username, StoreDataSet.PASSWORD, null);
+        random = new Random(store.seed ^ username.hashCode());
+        products = store.products;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        session.logout();
+    }
+
+    int randomProductId() {
+        return 1 + random.nextInt(products);
+    }
+}
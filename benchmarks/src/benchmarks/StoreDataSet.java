@@ -0,0 +1,102 @@
+package benchmarks;
+
+import common.Customer;
+import common.Order;
+import common.Product;
+import server.storage.InMemoryStorageEngine;
+import server.storage.StorageEngine;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A reproducible data set for the benchmarks, scaled up from the sample data in query.sql.
+ * The store runs on the in-memory storage engine without a database, so the benchmarks measure
+ * the server code rather than MySQL. The same sizes and seed always produce the same data.
+ */
+public final class StoreDataSet {
+
+    public static final String PASSWORD = "password123";
+
+    // The sample products of query.sql: name, description, price, category, brand, size, color.
+    private static final String[][] TEMPLATES = {
+            {"Nike Air Zoom Pegasus 40", "A responsive ride for any run.", "129.99", "Running Shoes", "Nike", "42", "Black"},
+            {"Adidas Ultraboost 22", "Ultimate energy return and comfort.", "180.00", "Running Shoes", "Adidas", "43", "White"},
+            {"FC Barcelona 23/24 Home Jersey", "Official home jersey for the 23/24 season.", "95.50", "Football Jerseys", "Nike", "L", "Blue/Red"},
+            {"Spalding NBA Street Basketball", "Official size and weight street basketball.", "24.99", "Basketball Gear", "Spalding", "7", "Orange"},
+            {"Nike Dri-FIT Training T-Shirt", "Sweat-wicking fabric to keep you dry.", "35.00", "Fitness Apparel", "Nike", "M", "Grey"},
+            {"Real Madrid 23/24 Away Jersey", "Official away jersey for the 23/24 season.", "95.50", "Football Jerseys", "Adidas", "M", "Navy"},
+    };
+    private static final String[] CATEGORIES = {"Running Shoes", "Football Jerseys", "Basketball Gear", "Fitness Apparel"};
+    private static final String[] BRANDS = {"Nike", "Adidas", "Puma", "Spalding", "Under Armour", "New Balance"};
+    private static final String[] COLORS = {"Black", "White", "Blue", "Red", "Grey", "Navy", "Orange"};
+    // Large enough that benchmarks placing orders never run out.
+    private static final int STOCK = 10_000_000;
+
+    private final StorageEngine storage;
+    private final int productCount;
+    private final int customerCount;
+
+    private StoreDataSet(StorageEngine storage, int productCount, int customerCount) {
+        this.storage = storage;
+        this.productCount = productCount;
+        this.customerCount = customerCount;
+    }
+
+    /**
+     * Builds a store with the given number of products, customers and orders.
+     * Products get the IDs 1..products and customers log in as {@link #username(int)} with {@link #PASSWORD}.
+     */
+    public static StoreDataSet seed(int products, int customers, int orders, long seed) throws SQLException {
+        Random random = new Random(seed);
+        StorageEngine storage = new InMemoryStorageEngine(null);
+
+        for (String category : CATEGORIES) {
+            storage.categories().add(category);
+        }
+        for (int i = 1; i <= products; i++) {
+            String[] template = TEMPLATES[random.nextInt(TEMPLATES.length)];
+            double price = Math.round(Double.parseDouble(template[2]) * (0.5 + random.nextDouble()) * 100) / 100.0;
+            String brand = random.nextInt(3) == 0 ? BRANDS[random.nextInt(BRANDS.length)] : template[4];
+            String color = random.nextInt(3) == 0 ? COLORS[random.nextInt(COLORS.length)] : template[6];
+            storage.products().add(new Product(0, template[0] + " #" + i, template[1], price, STOCK,
+                    template[3], brand, template[5], color));
+        }
+        for (int i = 1; i <= customers; i++) {
+            storage.customers().add(new Customer(0, username(i), PASSWORD, "Customer " + i, i + " Main St, Covilha"));
+        }
+
+        Order.Status[] statuses = Order.Status.values();
+        for (int i = 0; i < orders; i++) {
+            Map<Integer, Integer> cart = new HashMap<>();
+            int lines = 1 + random.nextInt(4);
+            for (int line = 0; line < lines; line++) {
+                cart.merge(1 + random.nextInt(products), 1 + random.nextInt(3), Integer::sum);
+            }
+            Order order = storage.orders().placeOrder(1 + random.nextInt(customers), cart);
+            Order.Status status = statuses[random.nextInt(statuses.length)];
+            if (status != Order.Status.PENDING) {
+                storage.orders().updateStatus(order.getId(), status);
+            }
+        }
+        return new StoreDataSet(storage, products, customers);
+    }
+
+    public static String username(int customer) {
+        return "customer" + customer;
+    }
+
+    public StorageEngine getStorage() {
+        return storage;
+    }
+
+    public int getProductCount() {
+        return productCount;
+    }
+
+    public int getCustomerCount() {
+        return customerCount;
+    }
+}
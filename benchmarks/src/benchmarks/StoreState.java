@@ -0,0 +1,93 @@
+package benchmarks;
+
+import common.IAdminPanel;
+import common.IStoreFactory;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import server.StoreFactoryImpl;
+import server.storage.StorageEngine;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One seeded store shared by all benchmark threads. With transport "in-process" the benchmarks call
+ * the server objects directly; with "rmi" the factory is bound in a registry on the loopback interface
+ * (port bench.rmiPort, 1199 by default) and every call goes through RMI, as it does for StoreClient.
+ * As in StoreServer, the bound object is the factory's instrumented proxy. Each trial's store is shut
+ * down afterwards, so that its background threads do not run into the next trial.
+ */
+@State(Scope.Benchmark)
+public class StoreState {
+
+    @Param({"in-process", "rmi"})
+    public String transport;
+
+    @Param({"1000"})
+    public int products;
+
+    @Param({"500"})
+    public int customers;
+
+    @Param({"5000"})
+    public int orders;
+
+    @Param({"42"})
+    public long seed;
+
+    IStoreFactory factory;
+    IAdminPanel admin;
+    private StoreFactoryImpl server;
+    private IStoreFactory exported; // The object bound in the registry, or null in-process.
+    private StorageEngine storage;
+    private Registry registry;
+    private final AtomicInteger nextCustomer = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if (!Boolean.getBoolean("bench.serverLog")) {
+            // The server logs every call to stdout, which would dominate the measurements.
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+        StoreDataSet data = StoreDataSet.seed(products, customers, orders, seed);
+        storage = data.getStorage();
+        server = new StoreFactoryImpl(storage);
+        if ("rmi".equals(transport)) {
+            int port = Integer.getInteger("bench.rmiPort", 1199);
+            registry = LocateRegistry.createRegistry(port);
+            exported = server.getMetrics().export(server, IStoreFactory.class);
+            registry.rebind("StoreFactory", exported);
+            factory = (IStoreFactory) LocateRegistry.getRegistry("localhost", port).lookup("StoreFactory");
+        } else {
+            factory = server;
+        }
+        admin = factory.adminLogin("admin", "admin");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (registry != null) {
+            registry.unbind("StoreFactory");
+            UnicastRemoteObject.unexportObject(registry, true);
+        }
+        // export() unexported the factory itself unless metrics are disabled, in which case it returned the factory.
+        UnicastRemoteObject.unexportObject(exported != null ? exported : server, true);
+        server.shutdown();
+        storage.shutdown();
+    }
+
+    /**
+     * Hands out the seeded customers in turn, so that concurrent threads log in as different customers.
+     */
+    String nextUsername() {
+        return StoreDataSet.username(1 + nextCustomer.getAndIncrement() % customers);
+    }
+}
@@ -30,7 +30,10 @@ CREATE TABLE IF NOT EXISTS products (
     brand VARCHAR(100),
     size VARCHAR(20),
     color VARCHAR(50),
-    FOREIGN KEY (categoryId) REFERENCES categories(id)
+    FOREIGN KEY (categoryId) REFERENCES categories(id),
+    -- Used by the keyset-paginated product listing (sorted by name or price, then ID).
+    INDEX idx_products_name (name, id),
+    INDEX idx_products_price (price, id)
 );
 
 -- 6. Orders table
@@ -40,7 +43,10 @@ CREATE TABLE IF NOT EXISTS orders (
     orderDate DATETIME NOT NULL,
     totalAmount DECIMAL(10, 2) NOT NULL,
     status ENUM('PENDING', 'PROCESSING', 'SHIPPED', 'DELIVERED', 'CANCELLED') NOT NULL,
-    FOREIGN KEY (customerId) REFERENCES customers(id)
+    FOREIGN KEY (customerId) REFERENCES customers(id),
+    -- Used by the keyset-paginated order listings (newest first), per customer and store-wide.
+    INDEX idx_orders_customer_date (customerId, orderDate, id),
+    INDEX idx_orders_date (orderDate, id)
 );
 
 -- 7. Order items table (Keeps track of which products and how many are in each order)
@@ -54,6 +60,16 @@ CREATE TABLE IF NOT EXISTS order_items (
     FOREIGN KEY (productId) REFERENCES products(id)
 );
 
+-- 8. Saved shopping carts (one row per customer and product; written by the server in batches)
+CREATE TABLE IF NOT EXISTS carts (
+    customerId INT NOT NULL,
+    productId INT NOT NULL,
+    quantity INT NOT NULL,
+    PRIMARY KEY (customerId, productId),
+    FOREIGN KEY (customerId) REFERENCES customers(id) ON DELETE CASCADE,
+    FOREIGN KEY (productId) REFERENCES products(id) ON DELETE CASCADE
+);
+
 -- Let's add a sample category
 INSERT INTO categories (name) VALUES ('Running Shoes') ON DUPLICATE KEY UPDATE name=name;
 
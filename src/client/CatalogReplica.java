@@ -0,0 +1,116 @@
+package client;
+
+import common.CatalogChange;
+import common.CatalogDelta;
+import common.Product;
+import common.ProductFilter;
+import common.ProductSort;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local copy of the product catalog, kept up to date with catalog deltas from the server.
+ * The first sync downloads the whole catalog; after that each sync only transfers the products changed
+ * since the previous one (usually none), so the client can look products up without a full listing.
+ *
+ * A customer client is told about catalog changes through its callback ({@link #changed}). Its copy then
+ * stays current without asking the server: {@link #sync()} only calls the server when a change was announced,
+ * or when the copy is older than {@link #MAX_AGE_MILLIS} in case an announcement was lost. A copy without
+ * announcements (the admin panel has no callback) asks on every sync.
+ */
+final class CatalogReplica {
+
+    /**
+     * Fetches the catalog changes since a version; IUserSession::getCatalogChanges or IAdminPanel::getCatalogChanges.
+     */
+    interface ChangeSource {
+        CatalogDelta getCatalogChanges(long sinceVersion) throws RemoteException;
+    }
+
+    // Announcements can be dropped (full mailbox) or stop altogether (client evicted), so a copy is never trusted for longer.
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ChangeSource source;
+    private final boolean announced;
+    private final Map<Integer, Product> products = new TreeMap<>();
+    private long version; // 0 until the first sync.
+    private long announcedVersion; // The newest version announced by the server.
+    private long syncedAt; // When the copy was last synced, in System.nanoTime() milliseconds.
+
+    /**
+     * @param announced true if the server announces catalog changes to this client through {@link #changed}.
+     */
+    CatalogReplica(ChangeSource source, boolean announced) {
+        this.source = source;
+        this.announced = announced;
+    }
+
+    /**
+     * Brings the copy up to date with the server, unless it is known to be current already.
+     */
+    synchronized void sync() throws RemoteException {
+        long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+        if (announced && version != 0 && announcedVersion <= version && now - syncedAt < MAX_AGE_MILLIS) {
+            return;
+        }
+        apply(source.getCatalogChanges(version));
+        syncedAt = now;
+    }
+
+    synchronized void apply(CatalogDelta delta) {
+        if (delta.isFullSnapshot()) {
+            products.clear();
+        }
+        for (Product product : delta.getChangedProducts()) {
+            products.put(product.getId(), product);
+        }
+        for (int productId : delta.getDeletedProductIds()) {
+            products.remove(productId);
+        }
+        version = delta.getVersion();
+    }
+
+    /**
+     * Records a catalog change announced by the server; the changed products are fetched by the next sync.
+     */
+    synchronized void changed(CatalogChange change) {
+        announcedVersion = Math.max(announcedVersion, change.getVersion());
+    }
+
+    /**
+     * Returns one product, or null if it does not exist, as of the last sync.
+     */
+    synchronized Product getProduct(int productId) {
+        return products.get(productId);
+    }
+
+    /**
+     * Returns every product, by ID, as of the last sync.
+     */
+    synchronized List<Product> getProducts() {
+        return new ArrayList<>(products.values());
+    }
+
+    /**
+     * Returns the products that match a filter in the given order, as of the last sync.
+     */
+    synchronized List<Product> findProducts(ProductFilter filter, ProductSort sort) {
+        List<Product> matches = new ArrayList<>();
+        for (Product product : products.values()) {
+            if (filter.matches(product)) {
+                matches.add(product);
+            }
+        }
+        matches.sort(sort.comparator());
+        return matches;
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,414 @@
+package client;
+
+import common.Customer;
+import common.IAdminPanel;
+import common.IStoreFactory;
+import common.IUserSession;
+import common.LatencyHistogram;
+import common.Order;
+import common.OrderFilter;
+import common.Product;
+import common.ProductFilter;
+import common.ProductSort;
+import common.VirtualThreads;
+
+import java.rmi.Naming;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A headless client that puts a realistic load on a running StoreServer.
+ * It logs in a population of simulated customers and admins and then starts operations at a fixed
+ * rate (open loop): operations are started on schedule whether or not earlier ones have finished, so
+ * a slow server shows up as growing latency instead of a lower request rate. Each operation is timed
+ * from its scheduled start, which includes any time it waited for its simulated user to finish the
+ * previous operation. At the end it prints latency percentiles and error counts per operation.
+ *
+ * Settings are JVM system properties:
+ *   load.host (localhost), load.users (1000), load.admins (5), load.rate in operations per second (500),
+ *   load.durationSec (60), load.reportIntervalSec (10), load.maxInFlight (10000), load.userPrefix (loaduser),
+ *   load.mix, e.g. "browse=30,browsePage=15,addToCart=20,viewCart=10,placeOrder=5,history=10,login=5,updateStatus=3,dashboard=2".
+ * Each operation runs on a virtual thread; on JDKs without them (before 21), at most load.fallbackThreads (200)
+ * operations run at once and the rest wait, which shows up in their latency.
+ * Simulated customers are registered on first use with the password "loadtest".
+ */
+public class LoadGenerator {
+
+    private static final String PASSWORD = "loadtest";
+    private static final String DEFAULT_MIX =
+            "browse=30,browsePage=15,addToCart=20,viewCart=10,placeOrder=5,history=10,login=5,updateStatus=3,dashboard=2";
+    private static final int RECENT_ORDERS = 1000;
+    private static final int FALLBACK_THREADS = Integer.getInteger("load.fallbackThreads", 200);
+
+    private enum Operation {
+        BROWSE("browse", false),
+        BROWSE_PAGE("browsePage", false),
+        ADD_TO_CART("addToCart", false),
+        VIEW_CART("viewCart", false),
+        PLACE_ORDER("placeOrder", false),
+        HISTORY("history", false),
+        LOGIN("login", false),
+        UPDATE_STATUS("updateStatus", true),
+        DASHBOARD("dashboard", true);
+
+        final String key;
+        final boolean admin;
+
+        Operation(String key, boolean admin) {
+            this.key = key;
+            this.admin = admin;
+        }
+
+        static Operation fromKey(String key) {
+            for (Operation operation : values()) {
+                if (operation.key.equalsIgnoreCase(key)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation in load.mix: " + key);
+        }
+    }
+
+    /**
+     * A simulated customer. Its operations run one at a time, like a real client's.
+     */
+    private static final class Shopper {
+        final String username;
+        final ReentrantLock lock = new ReentrantLock();
+        IUserSession session; // Guarded by lock.
+        int cartLines; // Guarded by lock.
+
+        Shopper(String username) {
+            this.username = username;
+        }
+    }
+
+    private static final class Admin {
+        final ReentrantLock lock = new ReentrantLock();
+        IAdminPanel panel;
+    }
+
+    private static final class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final Map<String, LongAdder> errorMessages = new ConcurrentHashMap<>();
+
+        void failed(Exception e) {
+            errors.increment();
+            String message = String.valueOf(e.getMessage());
+            int newline = message.indexOf('\n');
+            if (newline >= 0) {
+                message = message.substring(0, newline);
+            }
+            if (message.length() > 100) {
+                message = message.substring(0, 100) + "...";
+            }
+            errorMessages.computeIfAbsent(message, k -> new LongAdder()).increment();
+        }
+    }
+
+    private final IStoreFactory factory;
+    private final List<Shopper> shoppers = new ArrayList<>();
+    private final List<Admin> admins = new ArrayList<>();
+    private final List<Integer> productIds = new ArrayList<>();
+    private final ConcurrentLinkedDeque<Integer> recentOrders = new ConcurrentLinkedDeque<>();
+    private final Operation[] weightedOperations;
+    private final Map<Operation, Stats> stats = new LinkedHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder skipped = new LongAdder();
+
+    private LoadGenerator(IStoreFactory factory, String mix) {
+        this.factory = factory;
+        this.weightedOperations = parseMix(mix);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) {
+        String host = System.getProperty("load.host", "localhost");
+        int users = Integer.getInteger("load.users", 1000);
+        int adminCount = Integer.getInteger("load.admins", 5);
+        int rate = Integer.getInteger("load.rate", 500);
+        int durationSec = Integer.getInteger("load.durationSec", 60);
+        int reportIntervalSec = Integer.getInteger("load.reportIntervalSec", 10);
+        int maxInFlight = Integer.getInteger("load.maxInFlight", 10_000);
+        String prefix = System.getProperty("load.userPrefix", "loaduser");
+        String mix = System.getProperty("load.mix", DEFAULT_MIX);
+        try {
+            IStoreFactory factory = (IStoreFactory) Naming.lookup("rmi://" + host + "/StoreFactory");
+            LoadGenerator generator = new LoadGenerator(factory, mix);
+            generator.setUp(users, adminCount, prefix);
+            generator.run(rate, durationSec, reportIntervalSec, maxInFlight);
+            generator.printReport(durationSec);
+            generator.tearDown();
+            System.exit(0);
+        } catch (Exception e) {
+            System.err.println("Load generator failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static Operation[] parseMix(String mix) {
+        List<Operation> weighted = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid load.mix entry: " + entry);
+            }
+            Operation operation = Operation.fromKey(parts[0].trim());
+            for (int i = Integer.parseInt(parts[1].trim()); i > 0; i--) {
+                weighted.add(operation);
+            }
+        }
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("load.mix has no operations.");
+        }
+        return weighted.toArray(new Operation[0]);
+    }
+
+    /**
+     * Logs in the simulated users and admins, registering customers that do not exist yet.
+     */
+    private void setUp(int users, int adminCount, String prefix) throws Exception {
+        for (Product product : factory.adminLogin("admin", "admin").browseProducts()) {
+            productIds.add(product.getId());
+        }
+        if (productIds.isEmpty()) {
+            throw new IllegalStateException("The store has no products to order.");
+        }
+        System.out.println("Logging in " + users + " customers and " + adminCount + " admins...");
+        ExecutorService loginPool = VirtualThreads.newExecutor("load-login", FALLBACK_THREADS);
+        List<Future<?>> logins = new ArrayList<>();
+        for (int i = 1; i <= users; i++) {
+            Shopper shopper = new Shopper(prefix + i);
+            shoppers.add(shopper);
+            logins.add(loginPool.submit(() -> {
+                shopper.session = loginOrRegister(shopper.username);
+                return null;
+            }));
+        }
+        for (int i = 0; i < adminCount; i++) {
+            Admin admin = new Admin();
+            admin.panel = factory.adminLogin("admin", "admin");
+            admins.add(admin);
+        }
+        for (Future<?> login : logins) {
+            login.get();
+        }
+        loginPool.shutdown();
+    }
+
+    private IUserSession loginOrRegister(String username) throws RemoteException {
+        IUserSession session = factory.login(username, PASSWORD, null);
+        if (session == null) {
+            try {
+                factory.registerCustomer(new Customer(0, username, PASSWORD, "Load Test " + username, "Load Test Street"));
+            } catch (RemoteException e) {
+                // Registered concurrently by another run; the login below decides.
+            }
+            session = factory.login(username, PASSWORD, null);
+            if (session == null) {
+                throw new RemoteException("Could not log in simulated customer " + username);
+            }
+        }
+        return session;
+    }
+
+    private void run(int rate, int durationSec, int reportIntervalSec, int maxInFlight) {
+        System.out.printf("Running %d operations/s for %d s...%n", rate, durationSec);
+        ExecutorService workers = VirtualThreads.newExecutor("load-worker", FALLBACK_THREADS);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rate);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSec);
+        long nextReport = start + TimeUnit.SECONDS.toNanos(reportIntervalSec);
+        for (long i = 0; ; i++) {
+            long scheduledAt = start + i * intervalNanos;
+            if (scheduledAt >= end) {
+                break;
+            }
+            long wait = scheduledAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (inFlight.get() >= maxInFlight) {
+                skipped.increment(); // The server is too far behind; do not queue without bound.
+            } else {
+                Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+                inFlight.incrementAndGet();
+                workers.execute(() -> {
+                    try {
+                        execute(operation, scheduledAt);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+            if (System.nanoTime() >= nextReport) {
+                printProgress(start);
+                nextReport += TimeUnit.SECONDS.toNanos(reportIntervalSec);
+            }
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(60, TimeUnit.SECONDS)) {
+                System.out.println("Some operations were still running after 60 s and are not counted.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(Operation operation, long scheduledAt) {
+        Stats operationStats = stats.get(operation);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ReentrantLock lock;
+        Shopper shopper = null;
+        Admin admin = null;
+        if (operation.admin) {
+            admin = admins.isEmpty() ? null : admins.get(random.nextInt(admins.size()));
+            if (admin == null) {
+                return;
+            }
+            lock = admin.lock;
+        } else {
+            shopper = shoppers.get(random.nextInt(shoppers.size()));
+            lock = shopper.lock;
+        }
+        lock.lock();
+        try {
+            if (operation == Operation.PLACE_ORDER && shopper.cartLines == 0) {
+                // A checkout needs something in the cart; this preparation is not what is measured.
+                shopper.session.addToCart(randomProduct(random), 1);
+                shopper.cartLines++;
+            }
+            perform(operation, shopper, admin, random);
+            operationStats.latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledAt));
+        } catch (Exception e) {
+            operationStats.failed(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void perform(Operation operation, Shopper shopper, Admin admin, ThreadLocalRandom random) throws RemoteException {
+        switch (operation) {
+            case BROWSE:
+                shopper.session.browseProducts();
+                break;
+            case BROWSE_PAGE:
+                ProductSort[] sorts = ProductSort.values();
+                shopper.session.browseProducts(new ProductFilter(), sorts[random.nextInt(sorts.length)], null, 20);
+                break;
+            case ADD_TO_CART:
+                shopper.session.addToCart(randomProduct(random), 1);
+                shopper.cartLines++;
+                break;
+            case VIEW_CART:
+                shopper.session.viewCart();
+                break;
+            case PLACE_ORDER:
+                shopper.cartLines = 0; // Even a failed checkout leaves a cart in an unknown state.
+                Order order = shopper.session.placeOrder();
+                recentOrders.addFirst(order.getId());
+                if (recentOrders.size() > RECENT_ORDERS) {
+                    recentOrders.pollLast();
+                }
+                break;
+            case HISTORY:
+                shopper.session.getOrderHistory(new OrderFilter(), null, 20);
+                break;
+            case LOGIN:
+                shopper.session.logout();
+                shopper.cartLines = 0;
+                shopper.session = factory.login(shopper.username, PASSWORD, null);
+                break;
+            case UPDATE_STATUS:
+                Integer orderId = recentOrders.peekFirst();
+                if (orderId != null) {
+                    Order.Status[] statuses = {Order.Status.PROCESSING, Order.Status.SHIPPED, Order.Status.DELIVERED};
+                    admin.panel.updateOrderStatus(orderId, statuses[random.nextInt(statuses.length)]);
+                }
+                break;
+            case DASHBOARD:
+                admin.panel.getDashboardStatistics();
+                break;
+        }
+    }
+
+    private int randomProduct(ThreadLocalRandom random) {
+        return productIds.get(random.nextInt(productIds.size()));
+    }
+
+    private void printProgress(long start) {
+        long completed = 0;
+        long errors = 0;
+        for (Stats operationStats : stats.values()) {
+            completed += operationStats.latency.getCount();
+            errors += operationStats.errors.sum();
+        }
+        System.out.printf("[%3d s] completed=%d, errors=%d, in flight=%d, skipped=%d%n",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), completed, errors, inFlight.get(), skipped.sum());
+    }
+
+    private void printReport(int durationSec) {
+        System.out.println("\n--- Latency (ms, measured from the scheduled start) ---");
+        System.out.printf("%-13s %9s %8s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "mean", "p50", "p90", "p99", "p99.9", "max");
+        long completed = 0;
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            LatencyHistogram latency = entry.getValue().latency;
+            long errors = entry.getValue().errors.sum();
+            if (latency.getCount() == 0 && errors == 0) {
+                continue;
+            }
+            completed += latency.getCount();
+            System.out.printf("%-13s %9d %8d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey().key, latency.getCount(), errors, latency.getMean() / 1000.0,
+                    latency.getPercentile(50) / 1000.0, latency.getPercentile(90) / 1000.0,
+                    latency.getPercentile(99) / 1000.0, latency.getPercentile(99.9) / 1000.0, latency.getMax() / 1000.0);
+        }
+        System.out.printf("Throughput: %.1f successful operations/s; %d operations skipped because too many were in flight.%n",
+                (double) completed / Math.max(1, durationSec), skipped.sum());
+
+        boolean headerPrinted = false;
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            List<Map.Entry<String, LongAdder>> messages = new ArrayList<>(entry.getValue().errorMessages.entrySet());
+            messages.sort(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed());
+            for (Map.Entry<String, LongAdder> message : messages.subList(0, Math.min(5, messages.size()))) {
+                if (!headerPrinted) {
+                    System.out.println("\n--- Errors ---");
+                    headerPrinted = true;
+                }
+                System.out.printf("%-13s %8d  %s%n", entry.getKey().key, message.getValue().sum(), message.getKey());
+            }
+        }
+    }
+
+    private void tearDown() {
+        for (Shopper shopper : shoppers) {
+            try {
+                if (shopper.session != null) {
+                    shopper.session.logout();
+                }
+            } catch (RemoteException e) {
+                // The server may already be gone; nothing to clean up then.
+            }
+        }
+    }
+}
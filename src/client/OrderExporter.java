@@ -0,0 +1,113 @@
+package client;
+
+import common.IOrderExport;
+import common.Order;
+import common.OrderItem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.rmi.RemoteException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes an order export to a file as it arrives, chunk by chunk, so the client never holds more than
+ * one chunk of orders. A file name ending in .json gets a JSON array of orders with their items; any
+ * other name gets CSV with one line per order item (an order without items gets one line with empty
+ * item columns). Dates are written in ISO-8601 UTC.
+ */
+final class OrderExporter {
+
+    static final String CSV_HEADER = "orderId,customerId,orderDate,status,totalAmount,productId,quantity,price";
+
+    private final boolean json;
+    private int orders;
+    private int items;
+
+    OrderExporter(Path file) {
+        this.json = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+    }
+
+    /**
+     * Reads the export to the end and writes it to the file. If writing fails, the export is closed early.
+     */
+    void write(IOrderExport export, Path file) throws IOException, RemoteException {
+        boolean finished = false;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(json ? "[" : CSV_HEADER);
+            List<Order> chunk;
+            while (!(chunk = export.nextChunk()).isEmpty()) {
+                for (Order order : chunk) {
+                    if (json) {
+                        writeJson(out, order);
+                    } else {
+                        writeCsv(out, order);
+                    }
+                    orders++;
+                    items += order.getItems().size();
+                }
+                System.out.println("Exported " + orders + " orders so far...");
+            }
+            finished = true; // The server closed the export with its last chunk.
+            out.write(json ? "\n]\n" : "\n");
+        } finally {
+            if (!finished) {
+                closeQuietly(export);
+            }
+        }
+    }
+
+    private static void closeQuietly(IOrderExport export) {
+        try {
+            export.close();
+        } catch (RemoteException e) {
+            // Already closed by the server, e.g. after a database error; nothing is left to release.
+        }
+    }
+
+    int getOrders() {
+        return orders;
+    }
+
+    int getItems() {
+        return items;
+    }
+
+    private void writeCsv(Writer out, Order order) throws IOException {
+        String prefix = "\n" + order.getId() + "," + order.getCustomerId() + "," + date(order) + ","
+                + order.getStatus() + "," + amount(order.getTotalAmount()) + ",";
+        if (order.getItems().isEmpty()) {
+            out.write(prefix + ",,");
+        }
+        for (OrderItem item : order.getItems()) {
+            out.write(prefix + item.getProductId() + "," + item.getQuantity() + "," + amount(item.getPrice()));
+        }
+    }
+
+    private void writeJson(Writer out, Order order) throws IOException {
+        out.write(orders == 0 ? "\n" : ",\n");
+        out.write("{\"id\":" + order.getId() + ",\"customerId\":" + order.getCustomerId()
+                + ",\"orderDate\":\"" + date(order) + "\",\"status\":\"" + order.getStatus()
+                + "\",\"totalAmount\":" + amount(order.getTotalAmount()) + ",\"items\":[");
+        List<OrderItem> orderItems = order.getItems();
+        for (int i = 0; i < orderItems.size(); i++) {
+            OrderItem item = orderItems.get(i);
+            out.write((i == 0 ? "" : ",") + "{\"productId\":" + item.getProductId() + ",\"quantity\":"
+                    + item.getQuantity() + ",\"price\":" + amount(item.getPrice()) + "}");
+        }
+        out.write("]}");
+    }
+
+    private static String date(Order order) {
+        return Instant.ofEpochMilli(order.getOrderDate().getTime()).toString();
+    }
+
+    private static String amount(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
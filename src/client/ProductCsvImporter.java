@@ -0,0 +1,226 @@
+package client;
+
+import common.BulkResult;
+import common.IAdminPanel;
+import common.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a CSV file of products or stock counts to the admin panel's bulk methods.
+ * The file is read line by line and sent in batches of {@link #BATCH_ROWS} rows, so a file of any size
+ * takes one remote call per batch and only one batch is held in memory. The first line is a header and
+ * is skipped. Fields are separated by commas; a field that contains commas or quotes is enclosed in
+ * double quotes, with quotes inside it doubled. Empty text fields are stored as null.
+ */
+final class ProductCsvImporter {
+
+    enum Mode {
+        ADD_PRODUCTS("name,description,price,stock,category,brand,size,color"),
+        UPDATE_PRODUCTS("id,name,description,price,stock,category,brand,size,color"),
+        UPDATE_STOCK("id,quantity");
+
+        private final String columns;
+
+        Mode(String columns) {
+            this.columns = columns;
+        }
+
+        String getColumns() {
+            return columns;
+        }
+
+        int getColumnCount() {
+            return columns.split(",").length;
+        }
+    }
+
+    static final int BATCH_ROWS = 1000;
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private final IAdminPanel adminPanel;
+    private final Mode mode;
+
+    // The current batch: the file line of each row, and the rows themselves (products or stock counts).
+    private final List<Integer> lineNumbers = new ArrayList<>();
+    private final List<Product> products = new ArrayList<>();
+    private final Map<Integer, Integer> quantities = new LinkedHashMap<>();
+
+    private int succeeded;
+    private int failed;
+
+    ProductCsvImporter(IAdminPanel adminPanel, Mode mode) {
+        this.adminPanel = adminPanel;
+        this.mode = mode;
+    }
+
+    /**
+     * Imports the file, printing the rows that failed. Batches sent before an I/O or remote error stay applied.
+     */
+    void importFile(Path file) throws IOException, RemoteException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine(); // The header.
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    addRow(parseLine(line), lineNumber);
+                } catch (IllegalArgumentException e) {
+                    fail(lineNumber, e.getMessage());
+                }
+                if (lineNumbers.size() >= BATCH_ROWS) {
+                    flush();
+                }
+            }
+            flush();
+        }
+    }
+
+    int getSucceeded() {
+        return succeeded;
+    }
+
+    int getFailed() {
+        return failed;
+    }
+
+    private void addRow(List<String> fields, int lineNumber) throws RemoteException {
+        if (fields.size() != mode.getColumnCount()) {
+            throw new IllegalArgumentException("Expected " + mode.getColumnCount() + " columns (" + mode.getColumns() + "), found " + fields.size() + ".");
+        }
+        switch (mode) {
+            case ADD_PRODUCTS:
+                products.add(toProduct(0, fields, 0));
+                break;
+            case UPDATE_PRODUCTS:
+                products.add(toProduct(parseInt(fields.get(0), "id"), fields, 1));
+                break;
+            default:
+                int productId = parseInt(fields.get(0), "id");
+                int quantity = parseInt(fields.get(1), "quantity");
+                if (quantities.containsKey(productId)) {
+                    flush(); // A batch holds each product once; the later line wins, as it would one by one.
+                }
+                quantities.put(productId, quantity);
+        }
+        lineNumbers.add(lineNumber);
+    }
+
+    private static Product toProduct(int productId, List<String> fields, int first) {
+        return new Product(productId,
+                text(fields.get(first)),
+                text(fields.get(first + 1)),
+                parseDouble(fields.get(first + 2), "price"),
+                parseInt(fields.get(first + 3), "stock"),
+                text(fields.get(first + 4)),
+                text(fields.get(first + 5)),
+                text(fields.get(first + 6)),
+                text(fields.get(first + 7)));
+    }
+
+    private void flush() throws RemoteException {
+        if (lineNumbers.isEmpty()) {
+            return;
+        }
+        BulkResult result;
+        switch (mode) {
+            case ADD_PRODUCTS:
+                result = adminPanel.addProducts(products);
+                break;
+            case UPDATE_PRODUCTS:
+                result = adminPanel.updateProducts(products);
+                break;
+            default:
+                result = adminPanel.updateStocks(quantities);
+        }
+        for (int row = 0; row < result.size(); row++) {
+            if (result.isSuccess(row)) {
+                succeeded++;
+            } else {
+                fail(lineNumbers.get(row), result.getError(row));
+            }
+        }
+        System.out.println("Processed " + (succeeded + failed) + " rows so far...");
+        lineNumbers.clear();
+        products.clear();
+        quantities.clear();
+    }
+
+    private void fail(int lineNumber, String error) {
+        failed++;
+        if (failed <= MAX_REPORTED_ERRORS) {
+            System.out.println("Line " + lineNumber + ": " + error);
+        } else if (failed == MAX_REPORTED_ERRORS + 1) {
+            System.out.println("(Further failed lines are counted but not listed.)");
+        }
+    }
+
+    // --- Parsing ---
+
+    /**
+     * Splits one CSV line into its fields, removing the quotes around quoted fields.
+     */
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field.");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String text(String field) {
+        String trimmed = field.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static int parseInt(String field, String column) {
+        try {
+            return Integer.parseInt(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": '" + field + "'.");
+        }
+    }
+
+    private static double parseDouble(String field, String column) {
+        try {
+            return Double.parseDouble(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": '" + field + "'.");
+        }
+    }
+}
@@ -2,18 +2,29 @@ package client;
 
 import common.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.rmi.Naming;
+import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 public class StoreClient extends UnicastRemoteObject implements IClientCallback {
 
     private static IStoreFactory factory;
     private static IUserSession userSession;
     private static IAdminPanel adminPanel;
+    // The logged-in user's copy of the catalog, synced with catalog deltas.
+    private static volatile CatalogReplica catalog;
 
     public StoreClient() throws RemoteException {
         super();
@@ -27,6 +38,17 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
         System.out.println("\n[SERVER NOTIFICATION] -> " + message);
     }
 
+    /**
+     * Called by the server when the catalog changed; the local copy fetches the changes on its next use.
+     */
+    @Override
+    public void catalogChanged(CatalogChange change) throws RemoteException {
+        CatalogReplica current = catalog;
+        if (current != null) {
+            current.changed(change);
+        }
+    }
+
     public static void main(String[] args) {
         try {
             // The client must also be a remote object to receive callbacks.
@@ -101,6 +123,7 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
             System.out.println("Login failed. Please check your credentials.");
         } else {
             System.out.println("Login successful!");
+            catalog = new CatalogReplica(userSession::getCatalogChanges, true);
         }
     }
     
@@ -131,6 +154,7 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
             System.out.println("Admin login failed.");
         } else {
             System.out.println("Admin login successful!");
+            catalog = new CatalogReplica(adminPanel::getCatalogChanges, false);
         }
     }
 
@@ -143,11 +167,12 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
             System.out.println("1. Browse Products");
             System.out.println("2. Add to Cart");
             System.out.println("3. View Cart");
-            System.out.println("4. Remove from Cart");
+            System.out.println("4. Change or Remove Cart Items");
             System.out.println("5. Clear Cart");
             System.out.println("6. Place Order");
             System.out.println("7. View Order History");
-            System.out.println("8. Logout");
+            System.out.println("8. Search Products");
+            System.out.println("9. Logout");
             System.out.print("Choose an option: ");
             int choice = scanner.nextInt();
             scanner.nextLine();
@@ -155,24 +180,16 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
             try {
                 switch (choice) {
                     case 1:
-                        List<Product> products = userSession.browseProducts();
-                        System.out.println("--- Available Products ---");
-                        products.forEach(p -> System.out.printf("ID: %d, Name: %s, Price: %.2f, Stock: %d%n", p.getId(), p.getName(), p.getPrice(), p.getStockQuantity()));
+                        browseProductPages(scanner);
                         break;
                     case 2:
-                        System.out.print("Enter Product ID to add (e.g., 1): ");
-                        int prodId = scanner.nextInt();
-                        System.out.print("Enter quantity (e.g., 1): ");
-                        int qty = scanner.nextInt();
-                        scanner.nextLine();
-                        userSession.addToCart(prodId, qty);
-                        System.out.println("Product added to cart.");
+                        addToCartFlow(scanner);
                         break;
                     case 3:
                         viewCartDetailed();
                         break;
                     case 4:
-                        removeFromCartFlow(scanner);
+                        changeCartFlow(scanner);
                         break;
                     case 5:
                         System.out.print("Are you sure you want to clear your entire cart? (y/n): ");
@@ -196,19 +213,29 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
                         System.out.println("--- Thank You! ---");
                         break;
                     case 7:
-                        List<Order> history = userSession.getOrderHistory();
-                        System.out.println("--- Your Order History ---");
-                        history.forEach(o -> System.out.printf("Order ID: %d, Date: %s, Total: %.2f, Status: %s%n", o.getId(), o.getOrderDate(), o.getTotalAmount(), o.getStatus()));
+                        browseOrderPages(scanner, false);
                         break;
                     case 8:
+                        searchProductsFlow(scanner);
+                        break;
+                    case 9:
                         userSession.logout();
                         userSession = null;
+                        catalog = null;
                         System.out.println("Logged out.");
                         return;
                     default:
                         System.out.println("Invalid option.");
                 }
             } catch (RemoteException e) {
+                // The server ends sessions that were idle too long or when the user logged in too often.
+                // A call on an unexported session fails directly; one already under way fails on the server.
+                if (e instanceof NoSuchObjectException || e.getCause() instanceof NoSuchObjectException) {
+                    System.out.println("Your session has expired. Please log in again.");
+                    userSession = null;
+                    catalog = null;
+                    return;
+                }
                 System.err.println("An error occurred: " + e.getMessage());
                 // On critical error, we might want to logout
                 if(e.getCause() != null) System.err.println("Cause: " + e.getCause().getMessage());
@@ -216,35 +243,99 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
         }
     }
 
-    private static void viewCartDetailed() throws RemoteException {
-        Map<Product, Integer> cart = userSession.viewCart();
+    /**
+     * Shows the cart, taking the product details from the local catalog copy. Returns the cart's quantities.
+     */
+    private static Map<Integer, Integer> viewCartDetailed() throws RemoteException {
+        Map<Integer, Integer> cart = userSession.getCartQuantities();
         System.out.println("--- Your Cart ---");
         if (cart.isEmpty()) {
             System.out.println("Your cart is empty.");
-        } else {
-            cart.forEach((p, q) -> System.out.printf("ID: %d, Product: %s, Quantity: %d%n", p.getId(), p.getName(), q));
+            return cart;
         }
+        catalog.sync();
+        double total = 0;
+        for (Map.Entry<Integer, Integer> line : cart.entrySet()) {
+            Product p = catalog.getProduct(line.getKey());
+            if (p == null) {
+                System.out.printf("ID: %d, Product: (no longer available), Quantity: %d%n", line.getKey(), line.getValue());
+                continue;
+            }
+            System.out.printf("ID: %d, Product: %s, Quantity: %d, Price: %.2f%n", p.getId(), p.getName(), line.getValue(), p.getPrice());
+            total += p.getPrice() * line.getValue();
+        }
+        System.out.printf("Total: %.2f%n", total);
+        return cart;
     }
 
-    private static void removeFromCartFlow(Scanner scanner) throws RemoteException {
-        System.out.println("\n--- Remove from Cart ---");
-        viewCartDetailed();
-        Map<Product, Integer> cart = userSession.viewCart();
+    /**
+     * Adds one or more products to the cart in a single call and shows the resulting cart.
+     */
+    private static void addToCartFlow(Scanner scanner) throws RemoteException {
+        String input = getStringInput(scanner, "Enter items to add as ID:quantity, separated by spaces (e.g., 1:2 4:1; the quantity defaults to 1), or 'cancel': ");
+        if (input == null || input.trim().isEmpty()) {
+            System.out.println("Cancelled.");
+            return;
+        }
+        List<CartOperation> operations = new ArrayList<>();
+        try {
+            for (String item : input.trim().split("\\s+")) {
+                String[] parts = item.split(":", 2);
+                int quantity = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+                operations.add(CartOperation.add(Integer.parseInt(parts[0]), quantity));
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid input. Use Product ID:quantity, e.g. 1:2.");
+            return;
+        }
+        printCart(userSession.updateCart(operations));
+    }
+
+    /**
+     * Changes the quantities of cart lines or removes them, in a single call, and shows the resulting cart.
+     */
+    private static void changeCartFlow(Scanner scanner) throws RemoteException {
+        System.out.println("\n--- Change or Remove Cart Items ---");
+        Map<Integer, Integer> cart = viewCartDetailed();
         if (cart.isEmpty()) {
-            return; // Nothing to remove
+            return; // Nothing to change
         }
-        String prodIdStr = getStringInput(scanner, "Enter Product ID to remove (or 'cancel'): ");
-        if (prodIdStr == null) {
+        String input = getStringInput(scanner, "Enter a Product ID to remove it, or ID:quantity to change its quantity, separated by spaces (or 'cancel'): ");
+        if (input == null || input.trim().isEmpty()) {
             System.out.println("Cancelled.");
             return;
         }
+        List<CartOperation> operations = new ArrayList<>();
         try {
-            int prodId = Integer.parseInt(prodIdStr);
-            userSession.removeFromCart(prodId);
-            System.out.println("Product removed from cart.");
+            for (String item : input.trim().split("\\s+")) {
+                String[] parts = item.split(":", 2);
+                int prodId = Integer.parseInt(parts[0]);
+                operations.add(parts.length > 1 ? CartOperation.set(prodId, Integer.parseInt(parts[1])) : CartOperation.remove(prodId));
+            }
         } catch (NumberFormatException e) {
-            System.out.println("Invalid Product ID format.");
+            System.out.println("Invalid Product ID or quantity format.");
+            return;
         }
+        printCart(userSession.updateCart(operations));
+    }
+
+    /**
+     * Shows a cart returned by the server, with the product details it came with.
+     */
+    private static void printCart(Map<Product, Integer> cart) {
+        System.out.println("--- Your Cart ---");
+        if (cart.isEmpty()) {
+            System.out.println("Your cart is empty.");
+            return;
+        }
+        List<Product> products = new ArrayList<>(cart.keySet());
+        products.sort(Comparator.comparingInt(Product::getId));
+        double total = 0;
+        for (Product p : products) {
+            System.out.printf("ID: %d, Product: %s, Quantity: %d, Price: %.2f%n", p.getId(), p.getName(), cart.get(p), p.getPrice());
+            total += p.getPrice() * cart.get(p);
+        }
+        System.out.printf("Total: %.2f%n", total);
     }
 
     /**
@@ -266,7 +357,10 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
             System.out.println("11. Add New Category");
             System.out.println("12. Update Category");
             System.out.println("13. Delete Category");
-            System.out.println("14. Logout");
+            System.out.println("14. View Server Performance Metrics");
+            System.out.println("15. Import from CSV File");
+            System.out.println("16. Export Orders to File");
+            System.out.println("17. Logout");
             System.out.print("Choose an option: ");
             int choice = getIntInput(scanner);
             scanner.nextLine(); // Consume newline
@@ -274,7 +368,7 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
             try {
                 switch (choice) {
                     case 1:
-                        browseProductsAdmin();
+                        browseProductPages(scanner);
                         break;
                     case 2:
                         addProductFlow(scanner);
@@ -292,10 +386,10 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
                         viewDashboardStatistics();
                         break;
                     case 7:
-                        viewAdvancedReports();
+                        viewAdvancedReports(scanner);
                         break;
                     case 8:
-                        listOrdersAdmin();
+                        browseOrderPages(scanner, true);
                         break;
                     case 9:
                         updateOrderStatusFlow(scanner);
@@ -313,7 +407,18 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
                         deleteCategoryFlow(scanner);
                         break;
                     case 14:
+                        System.out.println();
+                        System.out.println(adminPanel.getRemoteMethodStatistics());
+                        break;
+                    case 15:
+                        importCsvFlow(scanner);
+                        break;
+                    case 16:
+                        exportOrdersFlow(scanner);
+                        break;
+                    case 17:
                         adminPanel = null;
+                        catalog = null;
                         System.out.println("Admin logged out.");
                         return;
                     default:
@@ -325,6 +430,180 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
         }
     }
 
+    // --- Paged product browsing ---
+
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * Asks for optional filters and a sort order, then shows the matching products one page at a time.
+     * The products come from the local catalog copy, which for the admin panel includes products without a category.
+     */
+    private static void browseProductPages(Scanner scanner) throws RemoteException {
+        System.out.println("--- Browse Products (leave a filter empty to skip it) ---");
+        ProductFilter filter = new ProductFilter();
+        filter.setCategory(getOptionalInput(scanner, "Category: "));
+        filter.setBrand(getOptionalInput(scanner, "Brand: "));
+        filter.setSize(getOptionalInput(scanner, "Size: "));
+        filter.setColor(getOptionalInput(scanner, "Color: "));
+        filter.setMinPrice(getOptionalPrice(scanner, "Minimum price: "));
+        filter.setMaxPrice(getOptionalPrice(scanner, "Maximum price: "));
+        filter.setInStockOnly("y".equalsIgnoreCase(getOptionalInput(scanner, "Only products in stock? (y/n): ")));
+        System.out.println("Sort by: 1. ID  2. Name  3. Price (low to high)  4. Price (high to low)");
+        String sortChoice = getOptionalInput(scanner, "Choose a sort order (default 1): ");
+        ProductSort sort = ProductSort.ID;
+        if ("2".equals(sortChoice)) {
+            sort = ProductSort.NAME;
+        } else if ("3".equals(sortChoice)) {
+            sort = ProductSort.PRICE_LOW_TO_HIGH;
+        } else if ("4".equals(sortChoice)) {
+            sort = ProductSort.PRICE_HIGH_TO_LOW;
+        }
+
+        catalog.sync();
+        List<Product> matches = catalog.findProducts(filter, sort);
+        int pageNumber = 1;
+        for (int start = 0; ; start += PAGE_SIZE) {
+            List<Product> page = matches.subList(start, Math.min(start + PAGE_SIZE, matches.size()));
+            System.out.println("--- Products (page " + pageNumber + ") ---");
+            if (page.isEmpty()) {
+                System.out.println("No products found.");
+            }
+            page.forEach(p -> System.out.printf("ID: %d, Name: %s, Price: %.2f, Stock: %d, Category: %s, Brand: %s, Size: %s, Color: %s%n",
+                    p.getId(), p.getName(), p.getPrice(), p.getStockQuantity(), p.getCategory(), p.getBrand(), p.getSize(), p.getColor()));
+            if (start + PAGE_SIZE >= matches.size()) {
+                return;
+            }
+            String next = getOptionalInput(scanner, "Press Enter for the next page, or type 'q' to stop: ");
+            if (next != null && next.equalsIgnoreCase("q")) {
+                return;
+            }
+            pageNumber++;
+        }
+    }
+
+    /**
+     * Asks for search words and optional filters, then shows the best matches one page at a time,
+     * with the number of matches per category, brand, size, color and price range.
+     */
+    private static void searchProductsFlow(Scanner scanner) throws RemoteException {
+        System.out.println("--- Search Products (leave a filter empty to skip it) ---");
+        String query = getOptionalInput(scanner, "Search for: ");
+        ProductFilter filter = new ProductFilter();
+        filter.setCategory(getOptionalInput(scanner, "Category: "));
+        filter.setBrand(getOptionalInput(scanner, "Brand: "));
+        filter.setMaxPrice(getOptionalPrice(scanner, "Maximum price: "));
+
+        String cursor = null;
+        int pageNumber = 1;
+        while (true) {
+            SearchResult result = userSession.searchProducts(query, filter, cursor, PAGE_SIZE);
+            if (pageNumber == 1) {
+                System.out.println(result.getTotalMatches() + " matching products.");
+                result.getFacetCounts().forEach((facet, counts) -> {
+                    if (!counts.isEmpty()) {
+                        System.out.println("  " + facet + ": " + counts);
+                    }
+                });
+            }
+            System.out.println("--- Results (page " + pageNumber + ") ---");
+            result.getProducts().forEach(p -> System.out.printf("ID: %d, Name: %s, Price: %.2f, Stock: %d, Category: %s, Brand: %s, Size: %s, Color: %s%n",
+                    p.getId(), p.getName(), p.getPrice(), p.getStockQuantity(), p.getCategory(), p.getBrand(), p.getSize(), p.getColor()));
+            if (!result.hasNextPage()) {
+                return;
+            }
+            String next = getOptionalInput(scanner, "Press Enter for the next page, or type 'q' to stop: ");
+            if (next != null && next.equalsIgnoreCase("q")) {
+                return;
+            }
+            cursor = result.getNextCursor();
+            pageNumber++;
+        }
+    }
+
+    /**
+     * Asks for an optional order status and period; an empty answer skips that filter.
+     */
+    private static OrderFilter getOrderFilter(Scanner scanner) {
+        OrderFilter filter = new OrderFilter();
+        String status = getOptionalInput(scanner, "Status (PENDING, PROCESSING, SHIPPED, DELIVERED, CANCELLED): ");
+        if (status != null) {
+            try {
+                filter.setStatus(Order.Status.valueOf(status.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Unknown status, the filter is ignored.");
+            }
+        }
+        String days = getOptionalInput(scanner, "Only orders from the last N days: ");
+        if (days != null) {
+            try {
+                filter.setFrom(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(Integer.parseInt(days))));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid number, the filter is ignored.");
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Asks for an optional status and period, then shows the matching orders with their items one page at a time.
+     * @param admin true to list the orders of all customers through the admin panel.
+     */
+    private static void browseOrderPages(Scanner scanner, boolean admin) throws RemoteException {
+        System.out.println(admin ? "--- All Orders (leave a filter empty to skip it) ---" : "--- Your Order History (leave a filter empty to skip it) ---");
+        OrderFilter filter = getOrderFilter(scanner);
+
+        String cursor = null;
+        int pageNumber = 1;
+        while (true) {
+            OrderPage page = admin
+                    ? adminPanel.viewAllOrders(filter, cursor, PAGE_SIZE)
+                    : userSession.getOrderHistory(filter, cursor, PAGE_SIZE);
+            System.out.println("--- Orders (page " + pageNumber + ") ---");
+            if (page.getOrders().isEmpty()) {
+                System.out.println("No orders found.");
+            }
+            for (Order o : page.getOrders()) {
+                System.out.printf("Order ID: %d, CustomerID: %d, Date: %s, Total: %.2f, Status: %s%n", o.getId(), o.getCustomerId(), o.getOrderDate(), o.getTotalAmount(), o.getStatus());
+                o.getItems().forEach(item -> System.out.printf("    Product ID: %d, Quantity: %d, Price: %.2f%n", item.getProductId(), item.getQuantity(), item.getPrice()));
+            }
+            if (!page.hasNextPage()) {
+                return;
+            }
+            String next = getOptionalInput(scanner, "Press Enter for the next page, or type 'q' to stop: ");
+            if (next != null && next.equalsIgnoreCase("q")) {
+                return;
+            }
+            cursor = page.getNextCursor();
+            pageNumber++;
+        }
+    }
+
+    /**
+     * Reads a line of text; an empty line means "not specified".
+     * @return The trimmed input, or null if it was empty.
+     */
+    private static String getOptionalInput(Scanner scanner, String prompt) {
+        System.out.print(prompt);
+        String input = scanner.nextLine().trim();
+        return input.isEmpty() ? null : input;
+    }
+
+    /**
+     * Reads an optional price; an empty line or an invalid number means "not specified".
+     */
+    private static Double getOptionalPrice(Scanner scanner, String prompt) {
+        String input = getOptionalInput(scanner, prompt);
+        if (input == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(input);
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid price, the filter is ignored.");
+            return null;
+        }
+    }
+
     // --- Helper for cancellable input ---
 
     /**
@@ -375,7 +654,8 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
     // These methods break down complex admin tasks into manageable steps.
 
     private static void browseProductsAdmin() throws RemoteException {
-        List<Product> products = adminPanel.browseProducts();
+        catalog.sync();
+        List<Product> products = catalog.getProducts();
         System.out.println("--- All Products ---");
         products.forEach(p -> System.out.printf("ID: %d, Name: %s, Price: %.2f, Stock: %d, Category: %s%n", p.getId(), p.getName(), p.getPrice(), p.getStockQuantity(), p.getCategory()));
     }
@@ -440,10 +720,8 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
         int prodId = Integer.parseInt(prodIdStr);
 
         // Find the product to show current values
-        Product productToEdit = adminPanel.browseProducts().stream()
-                .filter(p -> p.getId() == prodId)
-                .findFirst()
-                .orElse(null);
+        catalog.sync();
+        Product productToEdit = catalog.getProduct(prodId);
 
         if (productToEdit == null) {
             System.out.println("Product not found.");
@@ -522,26 +800,89 @@ public class StoreClient extends UnicastRemoteObject implements IClientCallback
         System.out.println("Request to delete product sent.");
     }
 
+    private static void importCsvFlow(Scanner scanner) throws RemoteException {
+        System.out.println("\n--- Import from CSV File (type 'cancel' to exit) ---");
+        ProductCsvImporter.Mode[] modes = ProductCsvImporter.Mode.values();
+        System.out.println("1. Add products    (" + modes[0].getColumns() + ")");
+        System.out.println("2. Update products (" + modes[1].getColumns() + ")");
+        System.out.println("3. Update stock    (" + modes[2].getColumns() + ")");
+        String modeStr = getStringInput(scanner, "Choose import type: ");
+        if (modeStr == null) { System.out.println("Cancelled."); return; }
+        int modeChoice = Integer.parseInt(modeStr);
+        if (modeChoice <= 0 || modeChoice > modes.length) {
+            System.out.println("Invalid import type.");
+            return;
+        }
+
+        String pathStr = getStringInput(scanner, "CSV file path (the first line is a header): ");
+        if (pathStr == null) { System.out.println("Cancelled."); return; }
+        Path file = Paths.get(pathStr);
+        if (!Files.isReadable(file)) {
+            System.out.println("Cannot read file: " + file);
+            return;
+        }
+
+        ProductCsvImporter importer = new ProductCsvImporter(adminPanel, modes[modeChoice - 1]);
+        try {
+            importer.importFile(file);
+        } catch (IOException e) {
+            System.err.println("Reading the file failed: " + e.getMessage());
+        }
+        System.out.printf("Import finished: %d rows applied, %d failed.%n", importer.getSucceeded(), importer.getFailed());
+    }
+
+    private static void exportOrdersFlow(Scanner scanner) throws RemoteException {
+        System.out.println("\n--- Export Orders to File (leave a filter empty to skip it) ---");
+        OrderFilter filter = getOrderFilter(scanner);
+        String pathStr = getStringInput(scanner, "Output file (.csv or .json): ");
+        if (pathStr == null) { System.out.println("Cancelled."); return; }
+        Path file = Paths.get(pathStr);
+
+        OrderExporter exporter = new OrderExporter(file);
+        try {
+            exporter.write(adminPanel.exportOrders(filter), file);
+            System.out.printf("Exported %d orders with %d items to %s.%n", exporter.getOrders(), exporter.getItems(), file);
+        } catch (IOException e) {
+            System.err.println("Writing the file failed: " + e.getMessage());
+        }
+    }
+
     private static void viewDashboardStatistics() throws RemoteException {
         String stats = adminPanel.getDashboardStatistics();
         System.out.println("\n--- Dashboard Statistics ---");
         System.out.println(stats);
     }
 
-    private static void viewAdvancedReports() throws RemoteException {
-        String report = adminPanel.getAdvancedStatisticsReport();
+    private static void viewAdvancedReports(Scanner scanner) throws RemoteException {
+        String report = null;
+        String days = getOptionalInput(scanner, "Report on the last N days (leave empty for all time): ");
+        if (days != null) {
+            try {
+                Date now = new Date();
+                Date from = new Date(now.getTime() - TimeUnit.DAYS.toMillis(Math.max(1, Integer.parseInt(days)) - 1));
+                report = adminPanel.getAdvancedStatisticsReport(from, now);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid number, showing the full report.");
+            }
+        }
+        if (report == null) {
+            report = adminPanel.getAdvancedStatisticsReport();
+        }
         System.out.println("\n--- Advanced Statistics Report ---");
         System.out.println(report);
     }
 
     private static void listOrdersAdmin() throws RemoteException {
-        List<Order> allOrders = adminPanel.viewAllOrders();
-        System.out.println("\n--- All Orders ---");
-        if (allOrders.isEmpty()) {
+        OrderPage page = adminPanel.viewAllOrders(new OrderFilter(), null, PAGE_SIZE);
+        System.out.println("\n--- Latest Orders ---");
+        if (page.getOrders().isEmpty()) {
             System.out.println("No orders found.");
             return;
         }
-        allOrders.forEach(o -> System.out.printf("ID: %d, CustomerID: %d, Date: %s, Total: %.2f, Status: %s%n", o.getId(), o.getCustomerId(), o.getOrderDate(), o.getTotalAmount(), o.getStatus()));
+        page.getOrders().forEach(o -> System.out.printf("ID: %d, CustomerID: %d, Date: %s, Total: %.2f, Status: %s%n", o.getId(), o.getCustomerId(), o.getOrderDate(), o.getTotalAmount(), o.getStatus()));
+        if (page.hasNextPage()) {
+            System.out.println("(Older orders are listed under List Orders.)");
+        }
     }
     
     private static void updateOrderStatusFlow(Scanner scanner) throws RemoteException {
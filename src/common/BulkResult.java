@@ -0,0 +1,64 @@
+package common;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The outcome of a bulk admin call, one entry per submitted row in submission order.
+ * A row either succeeded, with the ID of the product it added or changed, or failed with an error
+ * message; the other rows are applied regardless of failed ones.
+ */
+public class BulkResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final int[] productIds; // The product ID per row; for a failed add, 0.
+    private final String[] errors; // The error message per row, or null where the row succeeded.
+
+    public BulkResult(int[] productIds, String[] errors) {
+        if (productIds.length != errors.length) {
+            throw new IllegalArgumentException("One product ID and one error slot are needed per row.");
+        }
+        this.productIds = productIds;
+        this.errors = errors;
+    }
+
+    public int size() {
+        return productIds.length;
+    }
+
+    public boolean isSuccess(int row) {
+        return errors[row] == null;
+    }
+
+    public int getProductId(int row) {
+        return productIds[row];
+    }
+
+    /**
+     * Returns why the row failed, or null if it succeeded.
+     */
+    public String getError(int row) {
+        return errors[row];
+    }
+
+    public int getSucceeded() {
+        int succeeded = 0;
+        for (String error : errors) {
+            if (error == null) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return size() - getSucceeded();
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResult{" +
+                "productIds=" + Arrays.toString(productIds) +
+                ", errors=" + Arrays.toString(errors) +
+                '}';
+    }
+}
@@ -0,0 +1,59 @@
+package common;
+
+import java.io.Serializable;
+
+/**
+ * One change to a shopping cart, sent in a list to {@link IUserSession#updateCart(java.util.List)}.
+ */
+public class CartOperation implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Type {
+        ADD, // Adds units to the product's line, creating it if needed.
+        SET, // Sets the line to a quantity; 0 removes it.
+        REMOVE // Removes the line.
+    }
+
+    private final Type type;
+    private final int productId;
+    private final int quantity; // Unused for REMOVE.
+
+    public CartOperation(Type type, int productId, int quantity) {
+        this.type = type;
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public static CartOperation add(int productId, int quantity) {
+        return new CartOperation(Type.ADD, productId, quantity);
+    }
+
+    public static CartOperation set(int productId, int quantity) {
+        return new CartOperation(Type.SET, productId, quantity);
+    }
+
+    public static CartOperation remove(int productId) {
+        return new CartOperation(Type.REMOVE, productId, 0);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public String toString() {
+        return "CartOperation{" +
+                "type=" + type +
+                ", productId=" + productId +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
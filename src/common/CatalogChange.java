@@ -0,0 +1,64 @@
+package common;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Tells a client that the catalog changed, so that it can refresh its local copy.
+ * The change only names what changed; the client fetches the new data with getCatalogChanges,
+ * passing the version of its copy. Changes that reach a client late, merged or not at all are
+ * therefore harmless: the next fetch returns everything since the client's version.
+ */
+public class CatalogChange implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Kind {
+        PRODUCT_CHANGED, // Products added or edited by the admin.
+        PRODUCT_DELETED,
+        STOCK_CHANGED, // Stock updated by the admin or sold by a checkout.
+        CATEGORY_CHANGED // Categories added, renamed or deleted; the product IDs are the products moved or deleted with them.
+    }
+
+    private final Kind kind;
+    private final long version; // The catalog version after the change.
+    private final int[] productIds;
+
+    public CatalogChange(Kind kind, long version, int[] productIds) {
+        this.kind = kind;
+        this.version = version;
+        this.productIds = productIds.clone();
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int[] getProductIds() {
+        return productIds.clone();
+    }
+
+    /**
+     * Combines this change with a later one of the same kind: the later version and the products of both.
+     */
+    public CatalogChange mergeWith(CatalogChange later) {
+        if (later.kind != kind) {
+            throw new IllegalArgumentException("Cannot merge a " + later.kind + " change into a " + kind + " change.");
+        }
+        int[] merged = IntStream.concat(Arrays.stream(productIds), Arrays.stream(later.productIds)).distinct().toArray();
+        return new CatalogChange(kind, Math.max(version, later.version), merged);
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogChange{" +
+                "kind=" + kind +
+                ", version=" + version +
+                ", productIds=" + Arrays.toString(productIds) +
+                '}';
+    }
+}
@@ -0,0 +1,69 @@
+package common;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The catalog changes between two catalog versions, for a client that keeps its own copy of the catalog.
+ * Apply the changed products (added or updated) and remove the deleted IDs, then remember
+ * {@link #getVersion()} and pass it to the next call. If the server no longer knows the changes since the
+ * client's version (or the client has none yet) the delta is a full snapshot: the client's copy must then be
+ * replaced by the changed products, and the deleted IDs are empty.
+ */
+public class CatalogDelta implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final long sinceVersion; // The version the changes are relative to (as requested).
+    private final long version; // The catalog version after the changes.
+    private final boolean fullSnapshot;
+    private final List<Product> changedProducts; // Added or updated since sinceVersion, by ID.
+    private final int[] deletedProductIds; // Deleted (or no longer visible) since sinceVersion.
+
+    public CatalogDelta(long sinceVersion, long version, boolean fullSnapshot, List<Product> changedProducts,
+                        Collection<Integer> deletedProductIds) {
+        this.sinceVersion = sinceVersion;
+        this.version = version;
+        this.fullSnapshot = fullSnapshot;
+        this.changedProducts = new ProductList(changedProducts); // Compact on the wire.
+        this.deletedProductIds = deletedProductIds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public long getSinceVersion() {
+        return sinceVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isFullSnapshot() {
+        return fullSnapshot;
+    }
+
+    public List<Product> getChangedProducts() {
+        return changedProducts;
+    }
+
+    public int[] getDeletedProductIds() {
+        return deletedProductIds.clone();
+    }
+
+    /**
+     * Returns true if nothing changed since the requested version.
+     */
+    public boolean isEmpty() {
+        return !fullSnapshot && changedProducts.isEmpty() && deletedProductIds.length == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogDelta{" +
+                "sinceVersion=" + sinceVersion +
+                ", version=" + version +
+                ", fullSnapshot=" + fullSnapshot +
+                ", changedProducts=" + changedProducts.size() +
+                ", deletedProductIds=" + Arrays.toString(deletedProductIds) +
+                '}';
+    }
+}
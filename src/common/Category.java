@@ -1,14 +1,18 @@
 package common;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 /**
  * Represents a product category.
  * This is a simple Data Transfer Object (DTO) used to pass category information
- * between the server and the client.
+ * between the server and the client, in a compact binary format (see WireFormat).
  */
-public class Category implements Serializable {
+public class Category implements Externalizable {
     private static final long serialVersionUID = 1L;
+    private static final int FORMAT_VERSION = 1;
     private int id; // The unique identifier for the category.
     private String name; // The name of the category (e.g., "Running Shoes").
 
@@ -17,6 +21,12 @@ public class Category implements Serializable {
         this.name = name;
     }
 
+    /**
+     * Creates an empty category; used when a category is read from the wire.
+     */
+    public Category() {
+    }
+
     public int getId() {
         return id;
     }
@@ -33,6 +43,20 @@ public class Category implements Serializable {
         this.name = name;
     }
 
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeVersion(out, FORMAT_VERSION);
+        WireFormat.writeInt(out, id);
+        WireFormat.writeString(out, name);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readVersion(in, "Category");
+        id = WireFormat.readInt(in);
+        name = WireFormat.readString(in);
+    }
+
     @Override
     public String toString() {
         return "Category{" +
@@ -1,14 +1,19 @@
 package common;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 /**
  * Represents a customer account.
  * This Data Transfer Object (DTO) holds all information related to a customer.
- * It is marked as Serializable to be sent between the RMI server and client.
+ * It is marked as Serializable to be sent between the RMI server and client,
+ * in a compact binary format (see WireFormat).
  */
-public class Customer implements Serializable {
+public class Customer implements Externalizable {
     private static final long serialVersionUID = 1L;
+    private static final int FORMAT_VERSION = 1;
     private int id; // Unique identifier for the customer.
     private String username; // The customer's login username.
     private String password; // The customer's password (should be hashed in a real application).
@@ -23,6 +28,12 @@ public class Customer implements Serializable {
         this.address = address;
     }
 
+    /**
+     * Creates an empty customer; used when a customer is read from the wire.
+     */
+    public Customer() {
+    }
+
     public int getId() {
         return id;
     }
@@ -63,6 +74,26 @@ public class Customer implements Serializable {
         this.address = address;
     }
 
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeVersion(out, FORMAT_VERSION);
+        WireFormat.writeInt(out, id);
+        WireFormat.writeString(out, username);
+        WireFormat.writeString(out, password);
+        WireFormat.writeString(out, name);
+        WireFormat.writeString(out, address);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readVersion(in, "Customer");
+        id = WireFormat.readInt(in);
+        username = WireFormat.readString(in);
+        password = WireFormat.readString(in);
+        name = WireFormat.readString(in);
+        address = WireFormat.readString(in);
+    }
+
     @Override
     public String toString() {
         return "Customer{" +
@@ -2,7 +2,9 @@ package common;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Defines the remote methods available to a logged-in administrator.
@@ -32,6 +34,32 @@ public interface IAdminPanel extends Remote {
      */
     void updateStock(int productId, int newQuantity) throws RemoteException;
 
+    /**
+     * Adds many products in one call, e.g. a season's catalog. The server writes them in chunks, one
+     * transaction per chunk; a row that fails (invalid details, database error) does not stop the others.
+     * @param products The products to add; their IDs are ignored.
+     * @return One result per product, in order, with the generated ID or the reason it failed.
+     * @throws RemoteException if the list is larger than the server accepts in one call or a database error occurs.
+     */
+    BulkResult addProducts(List<Product> products) throws RemoteException;
+
+    /**
+     * Replaces the details of many existing products in one call, written in chunks like {@link #addProducts}.
+     * @param products The products with their updated information.
+     * @return One result per product, in order; products that do not exist fail.
+     * @throws RemoteException if the list is larger than the server accepts in one call or a database error occurs.
+     */
+    BulkResult updateProducts(List<Product> products) throws RemoteException;
+
+    /**
+     * Sets the stock quantities of many products in one call, e.g. after a stock count, written in chunks
+     * like {@link #addProducts}.
+     * @param quantities Product ID -> new stock quantity; use a LinkedHashMap to keep the rows in order.
+     * @return One result per entry, in the map's iteration order; products that do not exist fail.
+     * @throws RemoteException if the map is larger than the server accepts in one call or a database error occurs.
+     */
+    BulkResult updateStocks(Map<Integer, Integer> quantities) throws RemoteException;
+
     /**
      * Retrieves a summary of simple store statistics (dashboard view).
      * @return A string containing key metrics like total users, products, and orders.
@@ -47,6 +75,25 @@ public interface IAdminPanel extends Remote {
      */
     String getAdvancedStatisticsReport() throws RemoteException;
 
+    /**
+     * Retrieves the advanced report for a period of days (in UTC).
+     * @param from A point in time on the first day of the period.
+     * @param to A point in time on the last day of the period.
+     * @return A formatted string containing the report for the period.
+     * @throws RemoteException if the period is invalid or a database error occurs.
+     */
+    String getAdvancedStatisticsReport(Date from, Date to) throws RemoteException;
+
+    /**
+     * Retrieves the server's per-method call statistics: calls, errors, calls in progress and
+     * latency percentiles for every remote method called since the server started, followed by the
+     * notification counters and the database connection pool counters (active, idle, waiters,
+     * acquire latency, timeouts) and prepared statement cache counters (hits, misses, evictions).
+     * @return A formatted table, slowest methods (by 99th percentile) first.
+     * @throws RemoteException if a communication-related error occurs.
+     */
+    String getRemoteMethodStatistics() throws RemoteException;
+
     /**
      * Retrieves a list of all products in the store.
      * @return A list of all Product objects.
@@ -54,6 +101,30 @@ public interface IAdminPanel extends Remote {
      */
     List<Product> browseProducts() throws RemoteException;
 
+    /**
+     * Retrieves one page of a filtered and sorted product listing.
+     * Pass null as the cursor for the first page, then the page's next cursor for each following page,
+     * keeping the filter and sort order unchanged.
+     * @param filter The criteria to match, or null for all products.
+     * @param sort The listing order, or null for ID order.
+     * @param cursor The next cursor of the previous page, or null for the first page.
+     * @param pageSize The maximum number of products on the page (capped by the server).
+     * @return The page, with a next cursor if more products follow.
+     * @throws RemoteException if the cursor is invalid or a database error occurs.
+     */
+    ProductPage browseProducts(ProductFilter filter, ProductSort sort, String cursor, int pageSize) throws RemoteException;
+
+    /**
+     * Retrieves the catalog changes since a catalog version, so the client can keep a local copy of the
+     * products it may browse up to date without downloading the whole catalog.
+     * Pass 0 the first time, then the version of the previous delta.
+     * @param sinceVersion The version of the client's copy, or 0 if it has none.
+     * @return The products added, updated and deleted since that version, or a full snapshot if the server
+     *         no longer has the changes since that version.
+     * @throws RemoteException if a database error occurs.
+     */
+    CatalogDelta getCatalogChanges(long sinceVersion) throws RemoteException;
+
     /**
      * Updates the status of an existing order.
      * @param orderId The ID of the order to update.
@@ -64,11 +135,36 @@ public interface IAdminPanel extends Remote {
 
     /**
      * Retrieves a list of all orders placed by all customers.
-     * @return A list of all Order objects.
+     * @return A list of all Order objects with their items, newest first.
      * @throws RemoteException if a database error occurs.
+     * @deprecated Loads and sends every order with its items in one response; use
+     *             {@link #viewAllOrders(OrderFilter, String, int)} to read them page by page.
      */
+    @Deprecated
     List<Order> viewAllOrders() throws RemoteException;
 
+    /**
+     * Retrieves one page of the orders of all customers, newest first, with the items of each order.
+     * Pass null as the cursor for the first page, then the page's next cursor for each following page,
+     * keeping the filter unchanged.
+     * @param filter The status and date range to match, or null for all orders.
+     * @param cursor The next cursor of the previous page, or null for the first page.
+     * @param pageSize The maximum number of orders on the page (capped by the server).
+     * @return The page, with a next cursor if more orders follow.
+     * @throws RemoteException if the cursor is invalid or a database error occurs.
+     */
+    OrderPage viewAllOrders(OrderFilter filter, String cursor, int pageSize) throws RemoteException;
+
+    /**
+     * Starts an export of the orders of all customers with their items, oldest first, e.g. for finance.
+     * Unlike {@link #viewAllOrders(OrderFilter, String, int)} the orders are not sent in one response: read them from the returned
+     * export chunk by chunk and write each chunk out before asking for the next.
+     * @param filter The status and date range to match, or null for all orders.
+     * @return The open export.
+     * @throws RemoteException if too many exports are running or a database error occurs.
+     */
+    IOrderExport exportOrders(OrderFilter filter) throws RemoteException;
+
     /**
      * Adds a new product category.
      * @param categoryName The name of the new category.
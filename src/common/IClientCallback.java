@@ -13,4 +13,11 @@ public interface IClientCallback extends Remote {
      * @throws RemoteException if a communication-related error occurs.
      */
     void notify(String message) throws RemoteException;
+
+    /**
+     * Called by the server when the product catalog changed, so the client can refresh the cached entries.
+     * @param change What changed, and the catalog version after the change.
+     * @throws RemoteException if a communication-related error occurs.
+     */
+    void catalogChanged(CatalogChange change) throws RemoteException;
 } 
\ No newline at end of file
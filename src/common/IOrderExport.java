@@ -0,0 +1,28 @@
+package common;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * A server-side read of the order history for an export, opened by {@link IAdminPanel#exportOrders}.
+ * The orders come in chunks, oldest first, so neither side has to hold the whole history in memory.
+ * Call {@link #nextChunk()} until it returns an empty list, or {@link #close()} to stop early.
+ * An export that is not read from for a while is closed by the server.
+ */
+public interface IOrderExport extends Remote {
+    /**
+     * Retrieves the next orders of the export with their items.
+     * @return The next chunk of orders, or an empty list once all orders have been sent; the export is then closed.
+     * @throws RemoteException if the export was closed or a database error occurs.
+     */
+    List<Order> nextChunk() throws RemoteException;
+
+    /**
+     * Ends the export early and releases its resources on the server. There is no need to close an export
+     * that returned its last (empty) chunk: it is closed and unexported already.
+     * @throws java.rmi.NoSuchObjectException if the export has already been closed.
+     * @throws RemoteException if a communication-related error occurs.
+     */
+    void close() throws RemoteException;
+}
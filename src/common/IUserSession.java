@@ -18,6 +18,44 @@ public interface IUserSession extends Remote {
      */
     List<Product> browseProducts() throws RemoteException;
 
+    /**
+     * Retrieves one page of a filtered and sorted product listing.
+     * Pass null as the cursor for the first page, then the page's next cursor for each following page,
+     * keeping the filter and sort order unchanged.
+     * @param filter The criteria to match, or null for all available products.
+     * @param sort The listing order, or null for ID order.
+     * @param cursor The next cursor of the previous page, or null for the first page.
+     * @param pageSize The maximum number of products on the page (capped by the server).
+     * @return The page, with a next cursor if more products follow.
+     * @throws RemoteException if the cursor is invalid or a database error occurs.
+     */
+    ProductPage browseProducts(ProductFilter filter, ProductSort sort, String cursor, int pageSize) throws RemoteException;
+
+    /**
+     * Retrieves the catalog changes since a catalog version, so the client can keep a local copy of the
+     * products it may browse up to date without downloading the whole catalog.
+     * Pass 0 the first time, then the version of the previous delta.
+     * @param sinceVersion The version of the client's copy, or 0 if it has none.
+     * @return The products added, updated and deleted since that version, or a full snapshot if the server
+     *         no longer has the changes since that version.
+     * @throws RemoteException if a database error occurs.
+     */
+    CatalogDelta getCatalogChanges(long sinceVersion) throws RemoteException;
+
+    /**
+     * Searches the products for words in their name, description, category, brand, size or color.
+     * Results are ranked (matches in the name first) and come with the number of matches per category,
+     * brand, size, color and price range. Pass null as the cursor for the first page, then the page's
+     * next cursor for each following page, keeping the query and filter unchanged.
+     * @param query The words to look for; the last one may be incomplete. Null or empty matches all products.
+     * @param filter Further criteria to match, or null for none.
+     * @param cursor The next cursor of the previous page, or null for the first page.
+     * @param pageSize The maximum number of products on the page (capped by the server).
+     * @return The page of matches, with the facet counts and a next cursor if more matches follow.
+     * @throws RemoteException if the cursor is invalid or a database error occurs.
+     */
+    SearchResult searchProducts(String query, ProductFilter filter, String cursor, int pageSize) throws RemoteException;
+
     /**
      * Adds a specified quantity of a product to the user's shopping cart.
      * @param productId The ID of the product to add.
@@ -26,6 +64,16 @@ public interface IUserSession extends Remote {
      */
     void addToCart(int productId, int quantity) throws RemoteException;
 
+    /**
+     * Applies several changes to the user's shopping cart in one call, in list order. The changes are
+     * applied together or not at all: if a product does not exist or does not have enough stock for the
+     * resulting quantity, the cart is left unchanged.
+     * @param operations The changes to make.
+     * @return The resulting cart, as returned by {@link #viewCart()}.
+     * @throws RemoteException if an operation is invalid, stock is insufficient, or another error occurs.
+     */
+    Map<Product, Integer> updateCart(List<CartOperation> operations) throws RemoteException;
+
     /**
      * Retrieves the contents of the user's shopping cart.
      * @return A map where keys are Product objects and values are their quantities in the cart.
@@ -33,6 +81,14 @@ public interface IUserSession extends Remote {
      */
     Map<Product, Integer> viewCart() throws RemoteException;
 
+    /**
+     * Retrieves the contents of the user's shopping cart as product IDs only, for a client that
+     * renders the cart from its own copy of the catalog.
+     * @return A map where keys are product IDs and values are their quantities in the cart.
+     * @throws RemoteException if a communication-related error occurs.
+     */
+    Map<Integer, Integer> getCartQuantities() throws RemoteException;
+
     /**
      * Removes a product entirely from the user's shopping cart.
      * @param productId The ID of the product to remove.
@@ -56,11 +112,26 @@ public interface IUserSession extends Remote {
 
     /**
      * Retrieves the order history for the current customer.
-     * @return A list of Order objects.
+     * @return A list of Order objects with their items, newest first.
      * @throws RemoteException if a communication-related error occurs.
+     * @deprecated Loads and sends every order of the customer with its items in one response; use
+     *             {@link #getOrderHistory(OrderFilter, String, int)} to read them page by page.
      */
+    @Deprecated
     List<Order> getOrderHistory() throws RemoteException;
 
+    /**
+     * Retrieves one page of the current customer's order history, newest first, with the items of each order.
+     * Pass null as the cursor for the first page, then the page's next cursor for each following page,
+     * keeping the filter unchanged.
+     * @param filter The status and date range to match, or null for all orders.
+     * @param cursor The next cursor of the previous page, or null for the first page.
+     * @param pageSize The maximum number of orders on the page (capped by the server).
+     * @return The page, with a next cursor if more orders follow.
+     * @throws RemoteException if the cursor is invalid or a database error occurs.
+     */
+    OrderPage getOrderHistory(OrderFilter filter, String cursor, int pageSize) throws RemoteException;
+
     /**
      * Logs the current user out of their session.
      * @throws RemoteException if a communication-related error occurs.
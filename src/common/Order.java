@@ -1,19 +1,27 @@
 package common;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 /**
  * Represents a customer order.
  * This DTO contains all details of an order, including the customer, items,
- * and its current status. It is Serializable for RMI transport.
+ * and its current status. It is Serializable for RMI transport, in a compact binary
+ * format (see WireFormat) that writes the items inline.
  */
-public class Order implements Serializable {
+public class Order implements Externalizable {
     private static final long serialVersionUID = 1L;
+    private static final int FORMAT_VERSION = 2; // 2: each item in a length-prefixed frame.
 
     /**
      * Represents the possible states of an order.
+     * The wire format sends the ordinal, so new states may only be added at the end.
      */
     public enum Status {
         PENDING, // Order has been placed but not yet processed.
@@ -39,6 +47,12 @@ public class Order implements Serializable {
         this.status = status;
     }
 
+    /**
+     * Creates an empty order; used when an order is read from the wire.
+     */
+    public Order() {
+    }
+
     public int getId() {
         return id;
     }
@@ -87,6 +101,43 @@ public class Order implements Serializable {
         this.status = status;
     }
 
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeVersion(out, FORMAT_VERSION);
+        WireFormat.writeInt(out, id);
+        WireFormat.writeInt(out, customerId);
+        WireFormat.writeDate(out, orderDate);
+        WireFormat.writeInt(out, items != null ? items.size() : -1);
+        if (items != null) {
+            for (OrderItem item : items) {
+                WireFormat.writeFrame(out, item::writeFields);
+            }
+        }
+        WireFormat.writePrice(out, totalAmount);
+        WireFormat.writeInt(out, status != null ? status.ordinal() : -1);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        int version = WireFormat.readVersion(in, "Order");
+        id = WireFormat.readInt(in);
+        customerId = WireFormat.readInt(in);
+        orderDate = WireFormat.readDate(in);
+        int itemCount = WireFormat.readInt(in);
+        items = itemCount < 0 ? null : new ArrayList<>(WireFormat.initialCapacity(itemCount));
+        for (int i = 0; i < itemCount; i++) {
+            OrderItem item = new OrderItem();
+            item.readFields(version >= 2 ? WireFormat.readFrame(in) : in);
+            items.add(item);
+        }
+        totalAmount = WireFormat.readPrice(in);
+        int ordinal = WireFormat.readInt(in);
+        if (ordinal >= Status.values().length) {
+            throw new InvalidObjectException("Unknown order status: " + ordinal);
+        }
+        status = ordinal < 0 ? null : Status.values()[ordinal];
+    }
+
     @Override
     public String toString() {
         return "Order{" +
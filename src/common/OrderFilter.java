@@ -0,0 +1,60 @@
+package common;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The criteria for browsing a filtered order listing.
+ * Every criterion is optional; a field that is left null does not restrict the result.
+ */
+public class OrderFilter implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private Order.Status status; // Only orders in this status.
+    private Date from; // Only orders placed at or after this time.
+    private Date to; // Only orders placed before this time.
+
+    public OrderFilter() {
+    }
+
+    public Order.Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Order.Status status) {
+        this.status = status;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public void setFrom(Date from) {
+        this.from = from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    public void setTo(Date to) {
+        this.to = to;
+    }
+
+    /**
+     * Returns true if the order satisfies every criterion of this filter.
+     */
+    public boolean matches(Order order) {
+        return (status == null || status == order.getStatus())
+                && (from == null || !order.getOrderDate().before(from))
+                && (to == null || order.getOrderDate().before(to));
+    }
+
+    @Override
+    public String toString() {
+        return "OrderFilter{" +
+                "status=" + status +
+                ", from=" + from +
+                ", to=" + to +
+                '}';
+    }
+}
@@ -1,14 +1,20 @@
 package common;
 
-import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 /**
  * Represents a single line item within an Order.
  * This DTO links a Product to an Order and stores the quantity and price at the time of purchase.
- * It is Serializable for RMI transport.
+ * It is Serializable for RMI transport, in a compact binary format (see WireFormat).
  */
-public class OrderItem implements Serializable {
+public class OrderItem implements Externalizable {
     private static final long serialVersionUID = 1L;
+    private static final int FORMAT_VERSION = 1;
     private int productId; // The ID of the product in this line item.
     private int quantity; // The number of units of the product purchased.
     private double price; // The price of a single unit at the time of purchase.
@@ -19,6 +25,12 @@ public class OrderItem implements Serializable {
         this.price = price;
     }
 
+    /**
+     * Creates an empty line item; used when an item is read from the wire.
+     */
+    public OrderItem() {
+    }
+
     public int getProductId() {
         return productId;
     }
@@ -43,6 +55,31 @@ public class OrderItem implements Serializable {
         this.price = price;
     }
 
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        writeFields(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        readFields(in);
+    }
+
+    // Also used by Order, which writes each of its items in a frame of its own.
+    void writeFields(DataOutput out) throws IOException {
+        WireFormat.writeVersion(out, FORMAT_VERSION);
+        WireFormat.writeInt(out, productId);
+        WireFormat.writeInt(out, quantity);
+        WireFormat.writePrice(out, price);
+    }
+
+    void readFields(DataInput in) throws IOException {
+        WireFormat.readVersion(in, "OrderItem");
+        productId = WireFormat.readInt(in);
+        quantity = WireFormat.readInt(in);
+        price = WireFormat.readPrice(in);
+    }
+
     @Override
     public String toString() {
         return "OrderItem{" +
@@ -0,0 +1,40 @@
+package common;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of an order listing, newest orders first. Every order includes its items.
+ * The next-page cursor is an opaque token; pass it back unchanged, together with the same
+ * filter, to fetch the following page.
+ */
+public class OrderPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final List<Order> orders; // The orders on this page, newest first.
+    private final String nextCursor; // The cursor for the next page, or null if this is the last page.
+
+    public OrderPage(List<Order> orders, String nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNextPage() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderPage{" +
+                "orders=" + orders +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
@@ -1,14 +1,20 @@
 package common;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 /**
  * Represents a product available in the store.
  * This Data Transfer Object (DTO) contains all attributes of a product
  * and is Serializable to be passed between the server and client.
+ * It is written in a compact binary format (see WireFormat); lists of products are sent as a
+ * ProductList, which writes each distinct category, brand, size and color only once.
  */
-public class Product implements Serializable {
+public class Product implements Externalizable {
     private static final long serialVersionUID = 1L;
+    private static final int FORMAT_VERSION = 1;
     private int id; // The unique identifier for the product.
     private String name; // The name of the product.
     private String description; // A detailed description of the product.
@@ -31,6 +37,12 @@ public class Product implements Serializable {
         this.color = color;
     }
 
+    /**
+     * Creates an empty product; used when a product is read from the wire.
+     */
+    public Product() {
+    }
+
     public int getId() {
         return id;
     }
@@ -103,6 +115,34 @@ public class Product implements Serializable {
         this.color = color;
     }
 
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeVersion(out, FORMAT_VERSION);
+        WireFormat.writeInt(out, id);
+        WireFormat.writeString(out, name);
+        WireFormat.writeString(out, description);
+        WireFormat.writePrice(out, price);
+        WireFormat.writeInt(out, stockQuantity);
+        WireFormat.writeString(out, category);
+        WireFormat.writeString(out, brand);
+        WireFormat.writeString(out, size);
+        WireFormat.writeString(out, color);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readVersion(in, "Product");
+        id = WireFormat.readInt(in);
+        name = WireFormat.readString(in);
+        description = WireFormat.readString(in);
+        price = WireFormat.readPrice(in);
+        stockQuantity = WireFormat.readInt(in);
+        category = WireFormat.readString(in);
+        brand = WireFormat.readString(in);
+        size = WireFormat.readString(in);
+        color = WireFormat.readString(in);
+    }
+
     @Override
     public String toString() {
         return "Product{" +
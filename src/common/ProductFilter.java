@@ -0,0 +1,104 @@
+package common;
+
+import java.io.Serializable;
+
+/**
+ * The criteria for browsing a filtered product listing.
+ * Every criterion is optional; a field that is left null (or false) does not restrict the result.
+ * Text criteria must match the product's value exactly.
+ */
+public class ProductFilter implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String category; // The category name.
+    private String brand;
+    private String size;
+    private String color;
+    private Double minPrice; // Inclusive lower price bound.
+    private Double maxPrice; // Inclusive upper price bound.
+    private boolean inStockOnly; // Only products with at least one unit in stock.
+
+    public ProductFilter() {
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public String getSize() {
+        return size;
+    }
+
+    public void setSize(String size) {
+        this.size = size;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public void setColor(String color) {
+        this.color = color;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public boolean isInStockOnly() {
+        return inStockOnly;
+    }
+
+    public void setInStockOnly(boolean inStockOnly) {
+        this.inStockOnly = inStockOnly;
+    }
+
+    /**
+     * Returns true if the product satisfies every criterion of this filter.
+     */
+    public boolean matches(Product product) {
+        return (category == null || category.equals(product.getCategory()))
+                && (brand == null || brand.equals(product.getBrand()))
+                && (size == null || size.equals(product.getSize()))
+                && (color == null || color.equals(product.getColor()))
+                && (minPrice == null || product.getPrice() >= minPrice)
+                && (maxPrice == null || product.getPrice() <= maxPrice)
+                && (!inStockOnly || product.getStockQuantity() > 0);
+    }
+
+    @Override
+    public String toString() {
+        return "ProductFilter{" +
+                "category='" + category + '\'' +
+                ", brand='" + brand + '\'' +
+                ", size='" + size + '\'' +
+                ", color='" + color + '\'' +
+                ", minPrice=" + minPrice +
+                ", maxPrice=" + maxPrice +
+                ", inStockOnly=" + inStockOnly +
+                '}';
+    }
+}
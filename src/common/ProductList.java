@@ -0,0 +1,144 @@
+package common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A list of products that is compact on the wire. The server returns product listings in this
+ * form: it writes every distinct category, brand, size and color value once, in a dictionary at the
+ * start, and then each product's fields inline with dictionary indexes in place of those values,
+ * so the client also gets one shared String per distinct value. Otherwise it behaves like an ArrayList.
+ * Null elements are not supported.
+ */
+public final class ProductList extends AbstractList<Product> implements RandomAccess, Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int FORMAT_VERSION = 1;
+
+    private ArrayList<Product> products;
+
+    /**
+     * Creates an empty list; also used when a list is read from the wire.
+     */
+    public ProductList() {
+        this.products = new ArrayList<>();
+    }
+
+    public ProductList(Collection<? extends Product> products) {
+        this.products = new ArrayList<>(products);
+    }
+
+    @Override
+    public Product get(int index) {
+        return products.get(index);
+    }
+
+    @Override
+    public int size() {
+        return products.size();
+    }
+
+    @Override
+    public Product set(int index, Product product) {
+        return products.set(index, product);
+    }
+
+    @Override
+    public void add(int index, Product product) {
+        products.add(index, product);
+    }
+
+    @Override
+    public Product remove(int index) {
+        return products.remove(index);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        // Index 0 stands for null; the values get 1, 2, ... in order of first appearance.
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int[] lookups = new int[products.size() * 4];
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            lookups[4 * i] = indexOf(product.getCategory(), indexes, dictionary);
+            lookups[4 * i + 1] = indexOf(product.getBrand(), indexes, dictionary);
+            lookups[4 * i + 2] = indexOf(product.getSize(), indexes, dictionary);
+            lookups[4 * i + 3] = indexOf(product.getColor(), indexes, dictionary);
+        }
+
+        WireFormat.writeVersion(out, FORMAT_VERSION);
+        WireFormat.writeInt(out, dictionary.size());
+        for (String value : dictionary) {
+            WireFormat.writeString(out, value);
+        }
+        WireFormat.writeInt(out, products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            WireFormat.writeInt(out, product.getId());
+            WireFormat.writeString(out, product.getName());
+            WireFormat.writeString(out, product.getDescription());
+            WireFormat.writePrice(out, product.getPrice());
+            WireFormat.writeInt(out, product.getStockQuantity());
+            for (int field = 0; field < 4; field++) {
+                WireFormat.writeInt(out, lookups[4 * i + field]);
+            }
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        // The products' fields are written inline, so a newer version's fields could not be skipped.
+        WireFormat.readVersion(in, "ProductList", FORMAT_VERSION);
+        int dictionarySize = WireFormat.readInt(in);
+        List<String> dictionary = new ArrayList<>(WireFormat.initialCapacity(dictionarySize + 1));
+        dictionary.add(null);
+        for (int i = 1; i <= dictionarySize; i++) {
+            dictionary.add(WireFormat.share(WireFormat.readString(in)));
+        }
+        int size = WireFormat.readInt(in);
+        products = new ArrayList<>(WireFormat.initialCapacity(size));
+        for (int i = 0; i < size; i++) {
+            Product product = new Product();
+            product.setId(WireFormat.readInt(in));
+            product.setName(WireFormat.readString(in));
+            product.setDescription(WireFormat.readString(in));
+            product.setPrice(WireFormat.readPrice(in));
+            product.setStockQuantity(WireFormat.readInt(in));
+            product.setCategory(lookup(dictionary, WireFormat.readInt(in)));
+            product.setBrand(lookup(dictionary, WireFormat.readInt(in)));
+            product.setSize(lookup(dictionary, WireFormat.readInt(in)));
+            product.setColor(lookup(dictionary, WireFormat.readInt(in)));
+            products.add(product);
+        }
+    }
+
+    private static int indexOf(String value, Map<String, Integer> indexes, List<String> dictionary) {
+        if (value == null) {
+            return 0;
+        }
+        Integer index = indexes.get(value);
+        if (index == null) {
+            dictionary.add(value);
+            index = dictionary.size();
+            indexes.put(value, index);
+        }
+        return index;
+    }
+
+    private static String lookup(List<String> dictionary, int index) throws InvalidObjectException {
+        if (index < 0 || index >= dictionary.size()) {
+            throw new InvalidObjectException("Invalid dictionary index: " + index);
+        }
+        return dictionary.get(index);
+    }
+}
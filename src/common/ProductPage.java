@@ -0,0 +1,40 @@
+package common;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of a product listing.
+ * The next-page cursor is an opaque token; pass it back unchanged, together with the same
+ * filter and sort order, to fetch the following page.
+ */
+public class ProductPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final List<Product> products; // The products on this page, in listing order.
+    private final String nextCursor; // The cursor for the next page, or null if this is the last page.
+
+    public ProductPage(List<Product> products, String nextCursor) {
+        this.products = new ProductList(products); // Compact on the wire.
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNextPage() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductPage{" +
+                "products=" + products +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,33 @@
+package common;
+
+import java.util.Comparator;
+
+/**
+ * The orders in which a product listing can be browsed.
+ * Every order ends with the product ID as a tie-breaker, so a page cursor always points
+ * to exactly one position in the listing.
+ */
+public enum ProductSort {
+    ID,
+    NAME,
+    PRICE_LOW_TO_HIGH,
+    PRICE_HIGH_TO_LOW;
+
+    /**
+     * Returns the listing order as a comparator, for sorting products in memory (the in-memory
+     * storage engine and the client's catalog copy).
+     */
+    public Comparator<Product> comparator() {
+        Comparator<Product> byId = Comparator.comparingInt(Product::getId);
+        switch (this) {
+            case NAME:
+                return Comparator.comparing(Product::getName).thenComparing(byId);
+            case PRICE_LOW_TO_HIGH:
+                return Comparator.comparingDouble(Product::getPrice).thenComparing(byId);
+            case PRICE_HIGH_TO_LOW:
+                return Comparator.comparingDouble(Product::getPrice).thenComparing(byId).reversed();
+            default:
+                return byId;
+        }
+    }
+}
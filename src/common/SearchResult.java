@@ -0,0 +1,56 @@
+package common;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a product search, best matches first, with the facet counts of all matches.
+ * The next-page cursor is an opaque token; pass it back unchanged, together with the same
+ * query and filter, to fetch the following page.
+ */
+public class SearchResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final List<Product> products; // The products on this page, in rank order.
+    private final int totalMatches; // The number of products matching the query and filter, on all pages.
+    // Facet name (category, brand, size, color, price) -> value -> number of matches with that value, most frequent first.
+    private final Map<String, Map<String, Integer>> facetCounts;
+    private final String nextCursor; // The cursor for the next page, or null if this is the last page.
+
+    public SearchResult(List<Product> products, int totalMatches, Map<String, Map<String, Integer>> facetCounts, String nextCursor) {
+        this.products = new ProductList(products); // Compact on the wire.
+        this.totalMatches = totalMatches;
+        this.facetCounts = facetCounts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public int getTotalMatches() {
+        return totalMatches;
+    }
+
+    public Map<String, Map<String, Integer>> getFacetCounts() {
+        return facetCounts;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNextPage() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult{" +
+                "products=" + products +
+                ", totalMatches=" + totalMatches +
+                ", facetCounts=" + facetCounts +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,193 @@
+package common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Helpers for the hand-written wire format of the DTOs (see their writeExternal methods).
+ *
+ * Every DTO starts with a format version byte and then writes its fields in a fixed order: integers
+ * as variable-length (zig-zag) numbers, prices as whole cents where possible and strings as
+ * length-prefixed UTF-8. A newer version may only append fields: a reader ignores data it does not
+ * know, because the stream skips the unread rest of an externalized object. An object written inside
+ * another one (e.g. the items of an order) goes in a length-prefixed frame, so that its unread rest can
+ * be skipped too; a reader that cannot skip unknown fields rejects versions newer than its own.
+ */
+final class WireFormat {
+
+    // The longest string a reader accepts. Real fields are far shorter (a description is a TEXT column,
+    // at most 64 KB); the limit keeps a corrupt or hostile length prefix from allocating a huge buffer.
+    static final int MAX_STRING_BYTES = 1 << 20;
+
+    // The most elements a reader allocates room for before reading them; longer lists grow as they are read,
+    // so a bogus count fails at the end of the stream instead of allocating first.
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    private WireFormat() {
+    }
+
+    static void writeVersion(DataOutput out, int version) throws IOException {
+        out.writeByte(version);
+    }
+
+    /**
+     * Reads the format version, rejecting data that is not in any known version. Newer versions are
+     * accepted, as their appended fields are skipped.
+     */
+    static int readVersion(DataInput in, String type) throws IOException {
+        return readVersion(in, type, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads the format version of data whose unknown fields cannot be skipped, so a version newer than
+     * the reader's own is rejected as well.
+     */
+    static int readVersion(DataInput in, String type, int newest) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > newest) {
+            throw new InvalidObjectException("Unsupported " + type + " format version: " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Writes the fields of an object nested in another object.
+     */
+    @FunctionalInterface
+    interface FieldWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * Writes a nested object as a length-prefixed frame.
+     */
+    static void writeFrame(DataOutput out, FieldWriter fields) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(32);
+        fields.write(new DataOutputStream(buffer));
+        writeInt(out, buffer.size());
+        out.write(buffer.toByteArray());
+    }
+
+    /**
+     * Reads a frame written by writeFrame and returns its contents; whatever the caller leaves unread
+     * (fields of a newer version) is skipped with the frame.
+     */
+    static DataInput readFrame(DataInput in) throws IOException {
+        int length = readInt(in);
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new InvalidObjectException("Invalid frame length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    static void writeInt(DataOutput out, int value) throws IOException {
+        writeLong(out, value);
+    }
+
+    static int readInt(DataInput in) throws IOException {
+        return (int) readLong(in);
+    }
+
+    /**
+     * Writes a number in 1 to 10 bytes, 7 bits at a time; small positive and negative values are short.
+     */
+    static void writeLong(DataOutput out, long value) throws IOException {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.writeByte((int) zigZag);
+    }
+
+    static long readLong(DataInput in) throws IOException {
+        long zigZag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigZag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+        throw new InvalidObjectException("Malformed variable-length number.");
+    }
+
+    /**
+     * Writes a string that is usually unique (names, descriptions, addresses); null is allowed.
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeInt(out, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = readInt(in);
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_STRING_BYTES) {
+            throw new InvalidObjectException("String too long: " + length + " bytes.");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the capacity to allocate for a list whose element count was just read.
+     */
+    static int initialCapacity(int count) {
+        return Math.max(0, Math.min(count, MAX_INITIAL_CAPACITY));
+    }
+
+    /**
+     * Writes an amount of money; whole cents (almost every price) take 1 to 4 bytes instead of 8.
+     */
+    static void writePrice(DataOutput out, double price) throws IOException {
+        long cents = Math.round(price * 100);
+        if (cents / 100.0 == price) {
+            writeLong(out, cents << 1);
+        } else {
+            writeLong(out, 1);
+            out.writeDouble(price);
+        }
+    }
+
+    static double readPrice(DataInput in) throws IOException {
+        long value = readLong(in);
+        return (value & 1) == 0 ? (value >> 1) / 100.0 : in.readDouble();
+    }
+
+    static void writeDate(DataOutput out, Date value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeLong(out, value.getTime());
+        }
+    }
+
+    static Date readDate(DataInput in) throws IOException {
+        return in.readBoolean() ? new Date(readLong(in)) : null;
+    }
+
+    /**
+     * Returns the canonical instance of a low-cardinality value, so that equal values are one object.
+     */
+    static String share(String value) {
+        return value != null ? value.intern() : null;
+    }
+}
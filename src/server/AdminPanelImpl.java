@@ -1,53 +1,78 @@
 package server;
 
+import common.BulkResult;
+import common.CatalogDelta;
+import common.Customer;
 import common.IAdminPanel;
+import common.IOrderExport;
 import common.Product;
+import common.ProductFilter;
+import common.ProductList;
+import common.ProductPage;
+import common.ProductSort;
 import common.Order;
+import common.OrderFilter;
+import common.OrderPage;
 import common.Category;
+import server.storage.SalesFigure;
+import server.storage.StorageEngine;
 
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class AdminPanelImpl extends UnicastRemoteObject implements IAdminPanel {
 
     private final StoreFactoryImpl storeFactory;
-
-    // A reference to the main data store might be needed here
-    // For example: private final DataStore dataStore;
+    private final StorageEngine storage;
+    private final CatalogCache catalog;
+    private final InventoryService inventory;
+    private final StoreStatistics statistics;
+    private final ReportService reports;
+    private final OrderExportService exports;
+    private final SessionRegistry sessions;
+    private final CartStore carts;
+    private final CustomerCache customers;
+    // Shared by all admin panels. Category changes update the catalog cache based on the old name,
+    // so a rename or delete must not interleave with another change to the same category.
+    private final StripedLocks categoryLocks;
+    private final int bulkChunkSize; // Rows written per transaction by the bulk methods.
+    private final int bulkMaxRows; // Rows accepted per bulk call.
 
     protected AdminPanelImpl(StoreFactoryImpl storeFactory) throws RemoteException {
         super();
         this.storeFactory = storeFactory;
+        this.storage = storeFactory.getStorage();
+        this.catalog = storeFactory.getCatalog();
+        this.inventory = storeFactory.getInventory();
+        this.statistics = storeFactory.getStatistics();
+        this.reports = storeFactory.getReports();
+        this.exports = storeFactory.getExports();
+        this.sessions = storeFactory.getSessions();
+        this.carts = storeFactory.getCarts();
+        this.customers = storeFactory.getCustomers();
+        this.categoryLocks = storeFactory.getCategoryLocks();
+        this.bulkChunkSize = Math.max(1, ServerConfig.get().getInt("admin.bulk.chunkSize", 500));
+        this.bulkMaxRows = Math.max(1, ServerConfig.get().getInt("admin.bulk.maxRows", 10_000));
     }
 
     @Override
-    public synchronized void addProduct(Product product) throws RemoteException {
-        String sql = "INSERT INTO products (name, description, price, stockQuantity, categoryId, brand, size, color) VALUES (?, ?, ?, ?, (SELECT id FROM categories WHERE name = ?), ?, ?, ?)";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, product.getName());
-            pstmt.setString(2, product.getDescription());
-            pstmt.setDouble(3, product.getPrice());
-            pstmt.setInt(4, product.getStockQuantity());
-            pstmt.setString(5, product.getCategory());
-            pstmt.setString(6, product.getBrand());
-            pstmt.setString(7, product.getSize());
-            pstmt.setString(8, product.getColor());
-
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
-                System.out.println("Product added successfully: " + product.getName());
-            }
-
+    public void addProduct(Product product) throws RemoteException {
+        try {
+            int productId = storage.products().add(product);
+            statistics.productAdded();
+            catalog.invalidateProduct(productId);
+            System.out.println("Product added successfully: " + product.getName());
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Database error while adding product.", e);
@@ -55,68 +80,231 @@ public class AdminPanelImpl extends UnicastRemoteObject implements IAdminPanel {
     }
 
     @Override
-    public synchronized void updateStock(int productId, int newQuantity) throws RemoteException {
-        String sql = "UPDATE products SET stockQuantity = ? WHERE id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, newQuantity);
-            pstmt.setInt(2, productId);
-
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
+    public void updateStock(int productId, int newQuantity) throws RemoteException {
+        try {
+            if (storage.products().updateStock(productId, newQuantity)) {
+                inventory.setStock(productId, newQuantity);
+                catalog.refreshProducts(Collections.singletonList(productId));
                 System.out.println("Stock updated for product ID " + productId);
             } else {
                 System.out.println("Product with ID " + productId + " not found.");
             }
-
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Database error while updating stock.", e);
         }
     }
 
+    // --- Bulk changes ---
+    // Each chunk is written as one JDBC batch in one transaction. If the chunk fails, its rows are
+    // written one by one, so a single bad row only fails itself. The caches are refreshed once per chunk.
+
     @Override
-    public synchronized String getDashboardStatistics() throws RemoteException {
-        StringBuilder stats = new StringBuilder();
-        String totalCustomersSql = "SELECT COUNT(*) FROM customers";
-        String totalProductsSql = "SELECT COUNT(*) FROM products";
-        String totalOrdersSql = "SELECT COUNT(*) FROM orders";
-        String totalRevenueSql = "SELECT SUM(totalAmount) FROM orders WHERE status = 'DELIVERED'";
-
-        try (Connection conn = DatabaseManager.getConnection()) {
-            // Get total customers
-            try (PreparedStatement pstmt = conn.prepareStatement(totalCustomersSql);
-                 ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    stats.append("Total Registered Customers: ").append(rs.getInt(1)).append("\n");
+    public BulkResult addProducts(List<Product> products) throws RemoteException {
+        checkBulkSize(products.size());
+        int[] productIds = new int[products.size()];
+        String[] errors = new String[products.size()];
+        int added = 0;
+        try {
+            for (int from = 0; from < products.size(); from += bulkChunkSize) {
+                List<Integer> rows = new ArrayList<>();
+                List<Product> chunk = new ArrayList<>();
+                for (int row = from; row < Math.min(from + bulkChunkSize, products.size()); row++) {
+                    errors[row] = validate(products.get(row));
+                    if (errors[row] == null) {
+                        rows.add(row);
+                        chunk.add(products.get(row));
+                    }
+                }
+                if (chunk.isEmpty()) {
+                    continue;
+                }
+                List<Integer> addedIds = new ArrayList<>(chunk.size());
+                try {
+                    int[] ids = storage.products().addAll(chunk);
+                    for (int i = 0; i < ids.length; i++) {
+                        productIds[rows.get(i)] = ids[i];
+                        addedIds.add(ids[i]);
+                    }
+                } catch (SQLException e) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        try {
+                            int productId = storage.products().add(chunk.get(i));
+                            productIds[rows.get(i)] = productId;
+                            addedIds.add(productId);
+                        } catch (SQLException rowError) {
+                            errors[rows.get(i)] = "Database error: " + rowError.getMessage();
+                        }
+                    }
                 }
+                added += addedIds.size();
+                statistics.productsAdded(addedIds.size());
+                catalog.invalidateProducts(addedIds);
             }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Database error while adding products.", e);
+        }
+        System.out.println("Bulk add: " + added + " of " + products.size() + " products added.");
+        return new BulkResult(productIds, errors);
+    }
 
-            // Get total products
-            try (PreparedStatement pstmt = conn.prepareStatement(totalProductsSql);
-                 ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    stats.append("Total Products in Catalog: ").append(rs.getInt(1)).append("\n");
+    @Override
+    public BulkResult updateProducts(List<Product> products) throws RemoteException {
+        checkBulkSize(products.size());
+        int[] productIds = new int[products.size()];
+        String[] errors = new String[products.size()];
+        int updated = 0;
+        try {
+            for (int from = 0; from < products.size(); from += bulkChunkSize) {
+                List<Product> chunk = new ArrayList<>();
+                for (int row = from; row < Math.min(from + bulkChunkSize, products.size()); row++) {
+                    Product product = products.get(row);
+                    errors[row] = validate(product);
+                    if (errors[row] == null) {
+                        productIds[row] = product.getId();
+                        chunk.add(product);
+                    }
+                }
+                if (chunk.isEmpty()) {
+                    continue;
+                }
+                Set<Integer> updatedIds;
+                Map<Integer, String> rowErrors = new LinkedHashMap<>();
+                try {
+                    updatedIds = storage.products().updateAll(chunk);
+                } catch (SQLException e) {
+                    updatedIds = new HashSet<>();
+                    for (Product product : chunk) {
+                        try {
+                            if (storage.products().update(product)) {
+                                updatedIds.add(product.getId());
+                            }
+                        } catch (SQLException rowError) {
+                            rowErrors.put(product.getId(), "Database error: " + rowError.getMessage());
+                        }
+                    }
                 }
+                for (int row = from; row < Math.min(from + bulkChunkSize, products.size()); row++) {
+                    if (errors[row] == null && !updatedIds.contains(productIds[row])) {
+                        errors[row] = rowErrors.getOrDefault(productIds[row], "Product with ID " + productIds[row] + " not found.");
+                    }
+                }
+                for (Product product : chunk) {
+                    if (updatedIds.contains(product.getId())) {
+                        inventory.setStock(product.getId(), product.getStockQuantity());
+                    }
+                }
+                updated += updatedIds.size();
+                catalog.invalidateProducts(updatedIds);
             }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Database error while updating products.", e);
+        }
+        System.out.println("Bulk update: " + updated + " products updated.");
+        return new BulkResult(productIds, errors);
+    }
 
-            // Get total orders
-            try (PreparedStatement pstmt = conn.prepareStatement(totalOrdersSql);
-                 ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    stats.append("Total Orders Placed: ").append(rs.getInt(1)).append("\n");
+    @Override
+    public BulkResult updateStocks(Map<Integer, Integer> quantities) throws RemoteException {
+        checkBulkSize(quantities.size());
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(quantities.entrySet());
+        int[] productIds = new int[entries.size()];
+        String[] errors = new String[entries.size()];
+        int updated = 0;
+        try {
+            for (int from = 0; from < entries.size(); from += bulkChunkSize) {
+                int to = Math.min(from + bulkChunkSize, entries.size());
+                Map<Integer, Integer> chunk = new LinkedHashMap<>();
+                for (int row = from; row < to; row++) {
+                    Map.Entry<Integer, Integer> entry = entries.get(row);
+                    if (entry.getKey() == null) {
+                        errors[row] = "The product ID is missing.";
+                        continue;
+                    }
+                    productIds[row] = entry.getKey();
+                    if (entry.getValue() == null || entry.getValue() < 0) {
+                        errors[row] = "The stock quantity must be 0 or more.";
+                        continue;
+                    }
+                    chunk.put(entry.getKey(), entry.getValue());
                 }
-            }
-            
-            // Get total revenue
-            try (PreparedStatement pstmt = conn.prepareStatement(totalRevenueSql);
-                 ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    stats.append("Total Revenue (from delivered orders): $").append(String.format("%.2f", rs.getDouble(1))).append("\n");
+                if (chunk.isEmpty()) {
+                    continue;
+                }
+                Set<Integer> updatedIds;
+                Map<Integer, String> rowErrors = new LinkedHashMap<>();
+                try {
+                    updatedIds = storage.products().updateStocks(chunk);
+                } catch (SQLException e) {
+                    updatedIds = new HashSet<>();
+                    for (Map.Entry<Integer, Integer> entry : chunk.entrySet()) {
+                        try {
+                            if (storage.products().updateStock(entry.getKey(), entry.getValue())) {
+                                updatedIds.add(entry.getKey());
+                            }
+                        } catch (SQLException rowError) {
+                            rowErrors.put(entry.getKey(), "Database error: " + rowError.getMessage());
+                        }
+                    }
+                }
+                for (int row = from; row < to; row++) {
+                    if (errors[row] == null && !updatedIds.contains(productIds[row])) {
+                        errors[row] = rowErrors.getOrDefault(productIds[row], "Product with ID " + productIds[row] + " not found.");
+                    }
+                }
+                for (Integer productId : updatedIds) {
+                    inventory.setStock(productId, chunk.get(productId));
                 }
+                updated += updatedIds.size();
+                catalog.refreshProducts(updatedIds);
             }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Database error while updating stock.", e);
+        }
+        System.out.println("Bulk stock update: " + updated + " products updated.");
+        return new BulkResult(productIds, errors);
+    }
 
+    private void checkBulkSize(int rows) throws RemoteException {
+        if (rows > bulkMaxRows) {
+            throw new RemoteException("Too many rows in one call (" + rows + "); send at most " + bulkMaxRows + " at a time.");
+        }
+    }
+
+    /**
+     * Returns why a product cannot be stored, or null if its details are valid.
+     */
+    private static String validate(Product product) {
+        if (product == null) {
+            return "The product is missing.";
+        }
+        if (product.getName() == null || product.getName().trim().isEmpty()) {
+            return "The product name is required.";
+        }
+        if (product.getPrice() < 0 || Double.isNaN(product.getPrice())) {
+            return "The price must be 0 or more.";
+        }
+        if (product.getStockQuantity() < 0) {
+            return "The stock quantity must be 0 or more.";
+        }
+        return null;
+    }
+
+    @Override
+    public String getDashboardStatistics() throws RemoteException {
+        StringBuilder stats = new StringBuilder();
+        try {
+            // Served from the in-memory counters; no aggregate queries run here.
+            stats.append("Total Registered Customers: ").append(statistics.getCustomerCount()).append("\n");
+            stats.append("Total Products in Catalog: ").append(statistics.getProductCount()).append("\n");
+            stats.append("Total Orders Placed: ").append(statistics.getOrderCount()).append("\n");
+            stats.append("Total Revenue (from delivered orders): $").append(String.format("%.2f", statistics.getDeliveredRevenue())).append("\n");
+            stats.append("Open Customer Sessions: ").append(sessions.getSummary()).append("\n");
+            stats.append("Saved Carts: ").append(carts.getSummary()).append("\n");
+            stats.append("Customer Cache: ").append(customers.getSummary()).append("\n");
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Database error while generating statistics.", e);
@@ -131,49 +319,25 @@ public class AdminPanelImpl extends UnicastRemoteObject implements IAdminPanel {
         StringBuilder report = new StringBuilder();
         report.append("--- Advanced Statistics Report ---\n\n");
 
-        try (Connection conn = DatabaseManager.getConnection()) {
-            // 1. Best-Selling Products
+        try {
+            // 1. Best- and least-selling products
             report.append("--- Best-Selling Products (All Time) ---\n");
-            String bestSellingSql = "SELECT p.name, SUM(oi.quantity) AS total_sold " +
-                                    "FROM order_items oi " +
-                                    "JOIN products p ON oi.productId = p.id " +
-                                    "GROUP BY p.name " +
-                                    "ORDER BY total_sold DESC " +
-                                    "LIMIT 5";
-            try (PreparedStatement pstmt = conn.prepareStatement(bestSellingSql);
-                 ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    report.append(String.format("- %s: %d units sold\n", rs.getString("name"), rs.getInt("total_sold")));
-                }
-            }
+            appendUnits(report, reports.findBestSellers(null, null, 5));
+            report.append("\n");
+            report.append("--- Least-Selling Products (All Time) ---\n");
+            appendUnits(report, reports.findLeastSellers(null, null, 5));
             report.append("\n");
 
             // 2. Top 5 Customers by Spending
             report.append("--- Top 5 Customers (by Total Spending) ---\n");
-            String topCustomersSql = "SELECT c.name, SUM(o.totalAmount) AS total_spent " +
-                                     "FROM orders o " +
-                                     "JOIN customers c ON o.customerId = c.id " +
-                                     "WHERE o.status = 'DELIVERED' " +
-                                     "GROUP BY c.name " +
-                                     "ORDER BY total_spent DESC " +
-                                     "LIMIT 5";
-            try (PreparedStatement pstmt = conn.prepareStatement(topCustomersSql);
-                 ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    report.append(String.format("- %s: $%.2f\n", rs.getString("name"), rs.getDouble("total_spent")));
-                }
-            }
+            appendAmounts(report, reports.findTopCustomers(null, null, 5));
             report.append("\n");
 
-            // 3. Turnover in the last 30 days
+            // 3. Turnover in the last 30 days (today and the 29 days before, in UTC)
             report.append("--- Turnover (Last 30 Days) ---\n");
-            String turnoverSql = "SELECT SUM(totalAmount) FROM orders WHERE status = 'DELIVERED' AND orderDate >= DATE_SUB(NOW(), INTERVAL 30 DAY)";
-            try (PreparedStatement pstmt = conn.prepareStatement(turnoverSql);
-                 ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    report.append(String.format("Total revenue from delivered orders in the last 30 days: $%.2f\n", rs.getDouble(1)));
-                }
-            }
+            LocalDate today = ReportService.utcDay(new Date());
+            double turnover = reports.getTurnover(today.minusDays(29), today.plusDays(1));
+            report.append(String.format("Total revenue from delivered orders in the last 30 days: $%.2f\n", turnover));
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -183,110 +347,154 @@ public class AdminPanelImpl extends UnicastRemoteObject implements IAdminPanel {
     }
 
     @Override
-    public synchronized List<Product> browseProducts() throws RemoteException {
-        List<Product> products = new ArrayList<>();
-        String sql = "SELECT p.*, c.name as categoryName FROM products p LEFT JOIN categories c ON p.categoryId = c.id";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                products.add(new Product(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("description"),
-                        rs.getDouble("price"),
-                        rs.getInt("stockQuantity"),
-                        rs.getString("categoryName"),
-                        rs.getString("brand"),
-                        rs.getString("size"),
-                        rs.getString("color")
-                ));
-            }
+    public String getAdvancedStatisticsReport(Date from, Date to) throws RemoteException {
+        if (from == null || to == null || from.after(to)) {
+            throw new RemoteException("Invalid report period.");
+        }
+        LocalDate first = ReportService.utcDay(from);
+        LocalDate last = ReportService.utcDay(to);
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("--- Statistics Report (%s to %s, UTC) ---\n\n", first, last));
+
+        try {
+            report.append("--- Best-Selling Products ---\n");
+            appendUnits(report, reports.findBestSellers(first, last.plusDays(1), 5));
+            report.append("\n");
+            report.append("--- Least-Selling Products ---\n");
+            appendUnits(report, reports.findLeastSellers(first, last.plusDays(1), 5));
+            report.append("\n");
+            report.append("--- Top 5 Customers (by Spending) ---\n");
+            appendAmounts(report, reports.findTopCustomers(first, last.plusDays(1), 5));
+            report.append("\n");
+            report.append("--- Turnover ---\n");
+            report.append(String.format("Total revenue from delivered orders in the period: $%.2f\n",
+                    reports.getTurnover(first, last.plusDays(1))));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Database error while generating advanced statistics report.", e);
+        }
+        return report.toString();
+    }
+
+    @Override
+    public String getRemoteMethodStatistics() throws RemoteException {
+        return "--- Remote Method Statistics ---\n" + storeFactory.getMetrics().getStatisticsSummary()
+                + "\n--- Client Notifications ---\n" + storeFactory.getNotifications().getStatisticsSummary()
+                + "\n--- Database Connection Pool ---\n" + DatabaseManager.getStatisticsSummary()
+                + "\n--- Prepared Statement Cache ---\n" + DatabaseManager.getStatementCacheSummary() + "\n";
+    }
+
+    private static void appendUnits(StringBuilder report, List<SalesFigure> figures) {
+        for (SalesFigure figure : figures) {
+            report.append(String.format("- %s: %d units sold\n", figure.getName(), (long) figure.getValue()));
+        }
+    }
+
+    private static void appendAmounts(StringBuilder report, List<SalesFigure> figures) {
+        for (SalesFigure figure : figures) {
+            report.append(String.format("- %s: $%.2f\n", figure.getName(), figure.getValue()));
+        }
+    }
+
+    @Override
+    public List<Product> browseProducts() throws RemoteException {
+        try {
+            return new ProductList(catalog.getAllProducts());
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Error browsing products.", e);
         }
-        return products;
     }
 
     @Override
-    public synchronized void updateOrderStatus(int orderId, Order.Status newStatus) throws RemoteException {
-        String getUsernameSql = "SELECT c.username FROM customers c JOIN orders o ON c.id = o.customerId WHERE o.id = ?";
-        String updateStatusSql = "UPDATE orders SET status = ? WHERE id = ?";
-        String username = null;
-
-        try (Connection conn = DatabaseManager.getConnection()) {
-            // First, get the username associated with the order to send a notification.
-            try (PreparedStatement pstmt = conn.prepareStatement(getUsernameSql)) {
-                pstmt.setInt(1, orderId);
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    if (rs.next()) {
-                        username = rs.getString("username");
-                    } else {
-                        throw new RemoteException("Order with ID " + orderId + " not found.");
-                    }
-                }
+    public ProductPage browseProducts(ProductFilter filter, ProductSort sort, String cursor, int pageSize) throws RemoteException {
+        return storeFactory.browseProductPage(filter, false, sort, cursor, pageSize);
+    }
+
+    @Override
+    public CatalogDelta getCatalogChanges(long sinceVersion) throws RemoteException {
+        try {
+            return catalog.getChangesSince(sinceVersion, false);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Error reading catalog changes.", e);
+        }
+    }
+
+    @Override
+    public void updateOrderStatus(int orderId, Order.Status newStatus) throws RemoteException {
+        // The revenue counter is adjusted from the old status, so changes to one order must not interleave.
+        ReentrantLock lock = storeFactory.getOrderLocks().forKey(orderId);
+        lock.lock();
+        try {
+            // First, find who placed the order so they can be notified.
+            Order order = storage.orders().findById(orderId);
+            if (order == null) {
+                throw new RemoteException("Order with ID " + orderId + " not found.");
             }
+            Customer customer = storage.customers().findById(order.getCustomerId());
 
             // Update order status
-            try (PreparedStatement pstmt = conn.prepareStatement(updateStatusSql)) {
-                pstmt.setString(1, newStatus.name());
-                pstmt.setInt(2, orderId);
-                int affectedRows = pstmt.executeUpdate();
-                if (affectedRows > 0) {
-                    System.out.println("Order " + orderId + " status updated to " + newStatus);
-                    // After updating, notify the client if they are currently online.
-                    if (username != null) {
-                        String message = "The status of your order #" + orderId + " has been updated to: " + newStatus;
-                        storeFactory.notifyClient(username, message);
-                    }
+            if (storage.orders().updateStatus(orderId, newStatus)) {
+                statistics.orderStatusChanged(order.getStatus(), newStatus, order.getTotalAmount());
+                reports.orderStatusChanged(order, order.getStatus(), newStatus);
+                System.out.println("Order " + orderId + " status updated to " + newStatus);
+                // After updating, notify the client if they are currently online.
+                if (customer != null) {
+                    String message = "The status of your order #" + orderId + " has been updated to: " + newStatus;
+                    storeFactory.notifyClient(customer.getUsername(), message);
                 }
             }
 
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Database error while updating order status.", e);
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized List<Order> viewAllOrders() throws RemoteException {
-        List<Order> allOrders = new ArrayList<>();
-        String sql = "SELECT * FROM orders ORDER BY orderDate DESC";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while(rs.next()){
-                allOrders.add(new Order(
-                        rs.getInt("id"),
-                        rs.getInt("customerId"),
-                        rs.getTimestamp("orderDate"),
-                        new ArrayList<>(), // Order items not fetched for simplicity
-                        rs.getDouble("totalAmount"),
-                        Order.Status.valueOf(rs.getString("status"))
-                ));
-            }
+    @Deprecated
+    public List<Order> viewAllOrders() throws RemoteException {
+        try {
+            // Every order with its items, in a single query.
+            return storage.orders().findAll();
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Error fetching all orders.", e);
         }
-        return allOrders;
     }
 
     @Override
-    public synchronized void addCategory(String categoryName) throws RemoteException {
-        String sql = "INSERT INTO categories (name) VALUES (?)";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, categoryName);
-            pstmt.executeUpdate();
+    public OrderPage viewAllOrders(OrderFilter filter, String cursor, int pageSize) throws RemoteException {
+        return storeFactory.browseOrderPage(null, filter, cursor, pageSize);
+    }
+
+    @Override
+    public IOrderExport exportOrders(OrderFilter filter) throws RemoteException {
+        try {
+            IOrderExport export = exports.open(filter != null ? filter : new OrderFilter());
+            System.out.println("Order export started.");
+            return export;
+        } catch (IllegalStateException e) {
+            throw new RemoteException(e.getMessage());
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Database error while starting the order export.", e);
+        }
+    }
+
+    @Override
+    public void addCategory(String categoryName) throws RemoteException {
+        try {
+            storage.categories().add(categoryName);
+            catalog.invalidateCategories();
             System.out.println("Category added successfully: " + categoryName);
         } catch (SQLException e) {
             // SQL state '23000' indicates an integrity constraint violation (e.g., duplicate key).
             // This prevents adding a category that already exists.
-            if (e.getSQLState().startsWith("23")) {
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
                 throw new RemoteException("Category '" + categoryName + "' already exists.", e);
             }
             e.printStackTrace();
@@ -295,162 +503,89 @@ public class AdminPanelImpl extends UnicastRemoteObject implements IAdminPanel {
     }
 
     @Override
-    public synchronized List<Category> getAllCategories() throws RemoteException {
-        List<Category> categories = new ArrayList<>();
-        String sql = "SELECT * FROM categories ORDER BY name";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while(rs.next()){
-                categories.add(new Category(
-                        rs.getInt("id"),
-                        rs.getString("name")
-                ));
-            }
+    public List<Category> getAllCategories() throws RemoteException {
+        try {
+            return new ArrayList<>(catalog.getCategories());
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Error fetching categories.", e);
         }
-        return categories;
     }
 
     @Override
-    public synchronized void deleteProduct(int productId) throws RemoteException {
-        // Safety check: a product cannot be deleted if it has been ordered by a customer.
-        String checkOrdersSql = "SELECT COUNT(*) FROM order_items WHERE productId = ?";
-        String deleteProductSql = "DELETE FROM products WHERE id = ?";
-
-        try (Connection conn = DatabaseManager.getConnection()) {
-            // Check for existing orders containing this product.
-            try (PreparedStatement pstmt = conn.prepareStatement(checkOrdersSql)) {
-                pstmt.setInt(1, productId);
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next() && rs.getInt(1) > 0) {
-                    throw new RemoteException("Cannot delete product ID " + productId + ". It is part of existing orders.");
-                }
+    public void deleteProduct(int productId) throws RemoteException {
+        try {
+            // Safety check: a product cannot be deleted if it has been ordered by a customer.
+            if (storage.products().isOrdered(productId)) {
+                throw new RemoteException("Cannot delete product ID " + productId + ". It is part of existing orders.");
             }
 
             // If no orders, proceed with deletion
-            try (PreparedStatement pstmt = conn.prepareStatement(deleteProductSql)) {
-                pstmt.setInt(1, productId);
-                int affectedRows = pstmt.executeUpdate();
-                if (affectedRows > 0) {
-                    System.out.println("Product with ID " + productId + " deleted successfully.");
-                } else {
-                    throw new RemoteException("Product with ID " + productId + " not found.");
-                }
+            if (storage.products().delete(productId)) {
+                statistics.productsRemoved(1);
+                inventory.forget(Collections.singletonList(productId));
+                catalog.removeProduct(productId);
+                System.out.println("Product with ID " + productId + " deleted successfully.");
+            } else {
+                throw new RemoteException("Product with ID " + productId + " not found.");
             }
         } catch (SQLException e) {
+            // An order placed after the check above is caught by the foreign key from order_items.
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                throw new RemoteException("Cannot delete product ID " + productId + ". It is part of existing orders.", e);
+            }
             e.printStackTrace();
             throw new RemoteException("Database error while deleting product.", e);
         }
     }
 
     @Override
-    public synchronized void deleteCategory(int categoryId) throws RemoteException {
-        String getProductsSql = "SELECT id, name FROM products WHERE categoryId = ?";
-        String checkOrdersSql = "SELECT COUNT(*) FROM order_items WHERE productId = ?";
-        String deleteProductsSql = "DELETE FROM products WHERE categoryId = ?";
-        String deleteCategorySql = "DELETE FROM categories WHERE id = ?";
-        Connection conn = null;
-
+    public void deleteCategory(int categoryId) throws RemoteException {
+        ReentrantLock lock = categoryLocks.forKey(categoryId);
+        lock.lock();
         try {
-            conn = DatabaseManager.getConnection();
-            conn.setAutoCommit(false); // Start transaction
-
-            // 1. Find all products in the category
+            // 1. Check if any product in the category is part of an existing order.
             List<Integer> productIds = new ArrayList<>();
-            Map<Integer, String> productNames = new HashMap<>();
-            try (PreparedStatement pstmt = conn.prepareStatement(getProductsSql)) {
-                pstmt.setInt(1, categoryId);
-                ResultSet rs = pstmt.executeQuery();
-                while (rs.next()) {
-                    int productId = rs.getInt("id");
-                    productIds.add(productId);
-                    productNames.put(productId, rs.getString("name"));
+            for (Product product : storage.categories().findProducts(categoryId)) {
+                productIds.add(product.getId());
+                if (storage.products().isOrdered(product.getId())) {
+                    throw new RemoteException("Cannot delete category. Product '" + product.getName() + "' (ID: " + product.getId() + ") is part of an existing order.");
                 }
             }
 
-            // 2. Check if any of these products are in existing orders
-            try (PreparedStatement pstmt = conn.prepareStatement(checkOrdersSql)) {
-                for (int productId : productIds) {
-                    pstmt.setInt(1, productId);
-                    ResultSet rs = pstmt.executeQuery();
-                    if (rs.next() && rs.getInt(1) > 0) {
-                        conn.rollback(); // Abort transaction
-                        throw new RemoteException("Cannot delete category. Product '" + productNames.get(productId) + "' (ID: " + productId + ") is part of an existing order.");
-                    }
-                }
-            }
-
-            // 3. If no products are in orders, delete the products in the category
-            if (!productIds.isEmpty()) {
-                try (PreparedStatement pstmt = conn.prepareStatement(deleteProductsSql)) {
-                    pstmt.setInt(1, categoryId);
-                    int deletedProducts = pstmt.executeUpdate();
-                    System.out.println("Deleted " + deletedProducts + " products associated with category ID " + categoryId);
-                }
-            }
-
-            // 4. Delete the category itself
-            try (PreparedStatement pstmt = conn.prepareStatement(deleteCategorySql)) {
-                pstmt.setInt(1, categoryId);
-                int affectedRows = pstmt.executeUpdate();
-                if (affectedRows > 0) {
-                    System.out.println("Category with ID " + categoryId + " deleted successfully.");
-                } else {
-                    conn.rollback();
-                    throw new RemoteException("Category with ID " + categoryId + " not found.");
-                }
+            // 2. Delete the products in the category and the category itself in one transaction.
+            String categoryName = catalog.getCategoryName(categoryId);
+            if (storage.categories().deleteWithProducts(categoryId)) {
+                statistics.productsRemoved(productIds.size());
+                inventory.forget(productIds);
+                catalog.removeCategory(categoryName);
+                System.out.println("Category with ID " + categoryId + " deleted successfully.");
+            } else {
+                throw new RemoteException("Category with ID " + categoryId + " not found.");
             }
 
-            conn.commit(); // Commit transaction
-
         } catch (SQLException e) {
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    System.err.println("Error on rollback: " + ex.getMessage());
-                }
+            // An order placed after the check above makes the transaction fail on the foreign key.
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                throw new RemoteException("Cannot delete category. One of its products is part of an existing order.", e);
             }
             e.printStackTrace();
             throw new RemoteException("Database error while deleting category.", e);
         } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                } catch (SQLException e) {
-                    System.err.println("Error restoring auto-commit: " + e.getMessage());
-                }
-            }
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized void updateProduct(Product product) throws RemoteException {
-        String sql = "UPDATE products SET name = ?, description = ?, price = ?, stockQuantity = ?, categoryId = (SELECT id FROM categories WHERE name = ?), brand = ?, size = ?, color = ? WHERE id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, product.getName());
-            pstmt.setString(2, product.getDescription());
-            pstmt.setDouble(3, product.getPrice());
-            pstmt.setInt(4, product.getStockQuantity());
-            pstmt.setString(5, product.getCategory());
-            pstmt.setString(6, product.getBrand());
-            pstmt.setString(7, product.getSize());
-            pstmt.setString(8, product.getColor());
-            pstmt.setInt(9, product.getId());
-
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
+    public void updateProduct(Product product) throws RemoteException {
+        try {
+            if (storage.products().update(product)) {
+                inventory.setStock(product.getId(), product.getStockQuantity());
+                catalog.invalidateProduct(product.getId());
                 System.out.println("Product updated successfully: " + product.getName());
             } else {
                 throw new RemoteException("Product with ID " + product.getId() + " not found.");
             }
-
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Database error while updating product.", e);
@@ -458,24 +593,25 @@ public class AdminPanelImpl extends UnicastRemoteObject implements IAdminPanel {
     }
 
     @Override
-    public synchronized void updateCategory(Category category) throws RemoteException {
-        String sql = "UPDATE categories SET name = ? WHERE id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, category.getName());
-            pstmt.setInt(2, category.getId());
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
+    public void updateCategory(Category category) throws RemoteException {
+        ReentrantLock lock = categoryLocks.forKey(category.getId());
+        lock.lock();
+        try {
+            String oldName = catalog.getCategoryName(category.getId());
+            if (storage.categories().update(category)) {
+                catalog.renameCategory(oldName, category.getName());
                 System.out.println("Category " + category.getId() + " updated successfully to " + category.getName());
             } else {
                 throw new RemoteException("Category with ID " + category.getId() + " not found.");
             }
         } catch (SQLException e) {
-            if (e.getSQLState().startsWith("23")) {
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
                 throw new RemoteException("Another category with the name '" + category.getName() + "' already exists.", e);
             }
             e.printStackTrace();
             throw new RemoteException("Database error while updating category.", e);
+        } finally {
+            lock.unlock();
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,188 @@
+package server;
+
+import common.Product;
+import server.storage.StorageEngine;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the customers' shopping carts in storage, so that a cart survives the end of its session and
+ * a server restart. Sessions report every cart change here; the store keeps only the latest contents
+ * per customer and writes the changed carts every cart.flushIntervalMs, all in one batched transaction.
+ * A burst of changes to one cart thus costs a single write, and a crash loses at most the last interval;
+ * while the database is unavailable, the changed carts wait in memory.
+ * Carts are read back when a customer's session first uses its cart, so logins that only browse cost nothing.
+ */
+public final class CartStore {
+
+    private final StorageEngine storage;
+    // Guarded by this: the carts changed since the last flush, and the carts the running flush is
+    // writing. Both are read by load(), so a session never sees an older cart than the last one saved.
+    private Map<Integer, Map<Integer, Integer>> pending = new HashMap<>();
+    private Map<Integer, Map<Integer, Integer>> flushing = Collections.emptyMap();
+
+    private final LongAdder saved = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final ScheduledExecutorService flusher;
+
+    public CartStore(StorageEngine storage, ServerConfig config) {
+        this.storage = storage;
+        long flushInterval = Math.max(10L, config.getLong("cart.flushIntervalMs", 1_000L));
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cart-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the saved cart of a customer, including changes that are not written yet.
+     */
+    public Map<Integer, Integer> load(int customerId) throws SQLException {
+        synchronized (this) {
+            Map<Integer, Integer> cart = pending.get(customerId);
+            if (cart == null) {
+                cart = flushing.get(customerId);
+            }
+            if (cart != null) {
+                return new HashMap<>(cart);
+            }
+        }
+        return storage.carts().findByCustomer(customerId);
+    }
+
+    /**
+     * Records the new contents of a customer's cart; an empty cart deletes the saved one.
+     * The cart is copied, and written with the next flush.
+     */
+    public void save(int customerId, Map<Integer, Integer> cart) {
+        Map<Integer, Integer> copy = Map.copyOf(cart);
+        synchronized (this) {
+            pending.put(customerId, copy);
+        }
+        saved.increment();
+    }
+
+    /**
+     * Writes the carts changed since the last flush. If the database is unavailable, the carts stay
+     * pending for the next flush. If the batch breaks a constraint, the carts are written one by one, so
+     * a single bad cart (e.g. one holding a product that was just deleted) cannot hold back the others;
+     * a bad cart loses only the lines that no longer refer to an existing product.
+     */
+    void flush() {
+        Map<Integer, Map<Integer, Integer>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            flushing = batch;
+            pending = new HashMap<>();
+        }
+        try {
+            storage.carts().saveAll(batch);
+            written.add(batch.size());
+        } catch (SQLException e) {
+            if (!isConstraintViolation(e)) {
+                System.err.println("Saving " + batch.size() + " carts failed (" + e.getMessage() + "); retrying with the next flush.");
+                requeue(batch);
+                return;
+            }
+            System.err.println("Saving " + batch.size() + " carts failed (" + e.getMessage() + "); retrying one by one.");
+            batch.forEach(this::saveOne);
+        } catch (RuntimeException e) {
+            // Keeps the flusher alive; the carts are written with the next flush.
+            e.printStackTrace();
+            requeue(batch);
+        } finally {
+            synchronized (this) {
+                flushing = Collections.emptyMap();
+            }
+        }
+    }
+
+    private void saveOne(Integer customerId, Map<Integer, Integer> cart) {
+        try {
+            try {
+                storage.carts().saveAll(Collections.singletonMap(customerId, cart));
+            } catch (SQLException e) {
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+                Map<Integer, Integer> valid = validLines(customerId, cart);
+                if (valid == null) {
+                    failed.increment();
+                    System.err.println("Dropped the cart of customer " + customerId + ": the customer does not exist.");
+                    return;
+                }
+                System.err.println("Dropped " + (cart.size() - valid.size()) + " lines for deleted products from the cart of customer " + customerId + ".");
+                storage.carts().saveAll(Collections.singletonMap(customerId, valid));
+            }
+            written.increment();
+        } catch (SQLException e) {
+            if (isConstraintViolation(e)) {
+                failed.increment();
+                System.err.println("Could not save the cart of customer " + customerId + ": " + e.getMessage());
+            } else {
+                requeue(Collections.singletonMap(customerId, cart));
+            }
+        }
+    }
+
+    /**
+     * Returns the lines of the cart whose product still exists, or null if the customer does not exist.
+     */
+    private Map<Integer, Integer> validLines(int customerId, Map<Integer, Integer> cart) throws SQLException {
+        if (storage.customers().findById(customerId) == null) {
+            return null;
+        }
+        Map<Integer, Integer> valid = new HashMap<>();
+        for (Product product : storage.products().findByIds(cart.keySet())) {
+            valid.put(product.getId(), cart.get(product.getId()));
+        }
+        return valid;
+    }
+
+    // A cart changed again since the failed write keeps its newer contents.
+    private synchronized void requeue(Map<Integer, Map<Integer, Integer>> carts) {
+        carts.forEach(pending::putIfAbsent);
+    }
+
+    // SQL state '23xxx' is an integrity constraint violation, here a customer or product that no longer exists.
+    private static boolean isConstraintViolation(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+
+    /**
+     * Returns the cart figures for the dashboard.
+     */
+    public String getSummary() {
+        int waiting;
+        synchronized (this) {
+            waiting = pending.size();
+        }
+        return String.format("%d changes, %d carts written, %d failed, %d waiting", saved.sum(), written.sum(), failed.sum(), waiting);
+    }
+
+    /**
+     * Stops the flusher and writes the carts that are still pending.
+     */
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,460 @@
+package server;
+
+import common.CatalogChange;
+import common.CatalogDelta;
+import common.Category;
+import common.Product;
+import server.storage.StorageEngine;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A read-through cache of the product catalog and the category list.
+ * The catalog is loaded from storage on first use and then kept up to date by the code paths that
+ * change it: AdminPanelImpl invalidates single products and categories, and checkout takes the units
+ * it sold out of the cached stock. Every change bumps a catalog version; browse results are built once per version and
+ * shared by all callers until the next change.
+ *
+ * Every product change is also recorded in a bounded change log, so that a client keeping its own copy of
+ * the catalog can ask for just the products changed since the version it has (see {@link #getChangesSince}).
+ * Versions start at the server's start time in seconds shifted into the upper 32 bits, so they also increase
+ * across restarts and a version from an earlier run is never mistaken for one of this run.
+ *
+ * Cached Product objects are shared and must be treated as read-only. Changes always replace an
+ * entry with a new object, so a list handed out earlier is never modified underneath its reader.
+ */
+public class CatalogCache {
+
+    private static final Comparator<Product> BY_ID = Comparator.comparingInt(Product::getId);
+
+    /**
+     * Called with every change, in version order, while the cache's write lock is held; must not block.
+     */
+    public interface ChangeListener {
+        void catalogChanged(CatalogChange change);
+    }
+
+    /**
+     * The browse lists for one catalog version.
+     */
+    private static final class Snapshot {
+        final long version;
+        final List<Product> all; // Every product, by ID.
+        final List<Product> visible; // Products with a category, as shown to customers.
+
+        Snapshot(long version, List<Product> all, List<Product> visible) {
+            this.version = version;
+            this.all = all;
+            this.visible = visible;
+        }
+    }
+
+    /**
+     * One entry of the change log: a product added, changed or deleted by a catalog version.
+     */
+    private static final class Change {
+        final long version;
+        final int productId;
+
+        Change(long version, int productId) {
+            this.version = version;
+            this.productId = productId;
+        }
+    }
+
+    private final StorageEngine storage;
+    private final Map<Integer, Product> products = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong(Instant.now().getEpochSecond() << 32);
+    private volatile boolean loaded;
+    private volatile Snapshot snapshot;
+    private volatile List<Category> categories; // Sorted by name; null until first loaded.
+
+    // Serializes loads and changes so that a slow load cannot overwrite a newer change.
+    private final Object writeLock = new Object();
+
+    // Guarded by writeLock: the product changes, oldest first, and the version after which the log is complete.
+    private final ArrayDeque<Change> changeLog = new ArrayDeque<>();
+    private final int changeLogSize;
+    private long changeLogStart;
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    public CatalogCache(StorageEngine storage, ServerConfig config) {
+        this.storage = storage;
+        this.changeLogSize = Math.max(0, config.getInt("catalog.changeLogSize", 10_000));
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Returns the current catalog version. It increases with every change to products or categories.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns every product, including those without a category (the admin view).
+     */
+    public List<Product> getAllProducts() throws SQLException {
+        return currentSnapshot().all;
+    }
+
+    /**
+     * Returns the products shown to customers, i.e. those assigned to a category.
+     */
+    public List<Product> getVisibleProducts() throws SQLException {
+        return currentSnapshot().visible;
+    }
+
+    /**
+     * Returns one product, or null if it does not exist.
+     */
+    public Product getProduct(int productId) throws SQLException {
+        ensureLoaded();
+        return products.get(productId);
+    }
+
+    /**
+     * Returns the cached products for the given IDs. Unknown IDs are skipped.
+     */
+    public List<Product> getProducts(Iterable<Integer> productIds) throws SQLException {
+        ensureLoaded();
+        List<Product> result = new ArrayList<>();
+        for (Integer productId : productIds) {
+            Product product = products.get(productId);
+            if (product != null) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    public List<Category> getCategories() throws SQLException {
+        List<Category> current = categories;
+        if (current == null) {
+            synchronized (writeLock) {
+                current = categories;
+                if (current == null) {
+                    current = Collections.unmodifiableList(storage.categories().findAll());
+                    categories = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (!loaded) {
+            synchronized (writeLock) {
+                if (!loaded) {
+                    for (Product product : storage.products().findAll()) {
+                        products.put(product.getId(), product);
+                    }
+                    loaded = true;
+                    // Clients that synced before the load cannot be brought up to date from the log.
+                    changeLogStart = version.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private Snapshot currentSnapshot() throws SQLException {
+        ensureLoaded();
+        Snapshot current = snapshot;
+        long currentVersion = version.get();
+        if (current != null && current.version == currentVersion) {
+            return current;
+        }
+        List<Product> all = new ArrayList<>(products.values());
+        all.sort(BY_ID);
+        List<Product> visible = new ArrayList<>(all.size());
+        for (Product product : all) {
+            if (product.getCategory() != null) {
+                visible.add(product);
+            }
+        }
+        // A change may have happened while building; then the snapshot is tagged with the older
+        // version and simply rebuilt by the next reader.
+        current = new Snapshot(currentVersion, Collections.unmodifiableList(all), Collections.unmodifiableList(visible));
+        snapshot = current;
+        return current;
+    }
+
+    // --- Invalidation, called after the change has been written to storage ---
+
+    /**
+     * Reloads one product from storage, e.g. after it was added or edited.
+     */
+    public void invalidateProduct(int productId) throws SQLException {
+        synchronized (writeLock) {
+            if (!loaded) {
+                return; // The first load will pick up the change.
+            }
+            Product fresh = storage.products().findById(productId);
+            if (fresh != null) {
+                products.put(productId, fresh);
+            } else {
+                products.remove(productId);
+            }
+            long changed = version.incrementAndGet();
+            logChange(changed, productId);
+            fireChange(fresh != null ? CatalogChange.Kind.PRODUCT_CHANGED : CatalogChange.Kind.PRODUCT_DELETED,
+                    changed, Collections.singletonList(productId));
+        }
+    }
+
+    public void removeProduct(int productId) {
+        synchronized (writeLock) {
+            if (products.remove(productId) != null) {
+                long changed = version.incrementAndGet();
+                logChange(changed, productId);
+                fireChange(CatalogChange.Kind.PRODUCT_DELETED, changed, Collections.singletonList(productId));
+            }
+        }
+    }
+
+    /**
+     * Reloads the given products from storage in one query, e.g. after they were added or edited in bulk.
+     */
+    public void invalidateProducts(Collection<Integer> productIds) throws SQLException {
+        reload(productIds, CatalogChange.Kind.PRODUCT_CHANGED);
+    }
+
+    /**
+     * Reloads the given products from storage in one query, e.g. after an admin set their stock.
+     */
+    public void refreshProducts(Collection<Integer> productIds) throws SQLException {
+        reload(productIds, CatalogChange.Kind.STOCK_CHANGED);
+    }
+
+    /**
+     * Takes the units of a placed order out of the cached stock, without reading storage. The products are
+     * replaced by copies with the new stock, and the current browse lists are patched in place of a rebuild
+     * (a stock change moves no product and hides none). An admin stock update racing with the checkout can
+     * leave the cached figure off until the product next changes, as with the inventory's counts between
+     * reconciliations; the stock itself is checked by the database when an order is placed.
+     * @param sold The quantity sold per product ID.
+     */
+    public void stockSold(Map<Integer, Integer> sold) {
+        if (sold.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (!loaded) {
+                return; // The first load will pick up the change.
+            }
+            Map<Integer, Product> replaced = new HashMap<>();
+            for (Map.Entry<Integer, Integer> entry : sold.entrySet()) {
+                Product cached = products.get(entry.getKey());
+                if (cached != null) {
+                    Product updated = copy(cached);
+                    updated.setStockQuantity(cached.getStockQuantity() - entry.getValue());
+                    products.put(updated.getId(), updated);
+                    replaced.put(updated.getId(), updated);
+                }
+            }
+            if (replaced.isEmpty()) {
+                return;
+            }
+            Snapshot current = snapshot;
+            // Only a snapshot of the latest version holds every earlier change; an older one is rebuilt on demand.
+            boolean patchable = current != null && current.version == version.get();
+            long changed = version.incrementAndGet();
+            if (patchable) {
+                snapshot = new Snapshot(changed, patch(current.all, replaced), patch(current.visible, replaced));
+            }
+            for (Integer productId : replaced.keySet()) {
+                logChange(changed, productId);
+            }
+            fireChange(CatalogChange.Kind.STOCK_CHANGED, changed, replaced.keySet());
+        }
+    }
+
+    // Copies a browse list (sorted by ID) with some of its products replaced.
+    private static List<Product> patch(List<Product> byId, Map<Integer, Product> replaced) {
+        List<Product> patched = new ArrayList<>(byId);
+        for (Product product : replaced.values()) {
+            int index = Collections.binarySearch(patched, product, BY_ID);
+            if (index >= 0) {
+                patched.set(index, product);
+            }
+        }
+        return Collections.unmodifiableList(patched);
+    }
+
+    private void reload(Collection<Integer> productIds, CatalogChange.Kind kind) throws SQLException {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (!loaded) {
+                return; // The first load will pick up the change.
+            }
+            Set<Integer> missing = new HashSet<>(productIds);
+            for (Product fresh : storage.products().findByIds(productIds)) {
+                products.put(fresh.getId(), fresh);
+                missing.remove(fresh.getId());
+            }
+            for (Integer productId : missing) {
+                products.remove(productId);
+            }
+            long changed = version.incrementAndGet();
+            for (Integer productId : productIds) {
+                logChange(changed, productId);
+            }
+            fireChange(kind, changed, productIds);
+        }
+    }
+
+    /**
+     * Reloads the category list after a category was added.
+     */
+    public void invalidateCategories() {
+        synchronized (writeLock) {
+            categories = null;
+            fireChange(CatalogChange.Kind.CATEGORY_CHANGED, version.incrementAndGet(), Collections.emptyList());
+        }
+    }
+
+    /**
+     * Applies a category rename to the category list and to every cached product in it.
+     */
+    public void renameCategory(String oldName, String newName) {
+        synchronized (writeLock) {
+            categories = null;
+            List<Integer> movedIds = new ArrayList<>();
+            if (oldName != null) {
+                for (Product product : products.values()) {
+                    if (oldName.equals(product.getCategory())) {
+                        Product moved = copy(product);
+                        moved.setCategory(newName);
+                        products.put(moved.getId(), moved);
+                        movedIds.add(moved.getId());
+                    }
+                }
+            }
+            long changed = version.incrementAndGet();
+            for (Integer productId : movedIds) {
+                logChange(changed, productId);
+            }
+            fireChange(CatalogChange.Kind.CATEGORY_CHANGED, changed, movedIds);
+        }
+    }
+
+    /**
+     * Drops a deleted category and the products that were deleted with it.
+     */
+    public void removeCategory(String name) {
+        synchronized (writeLock) {
+            categories = null;
+            List<Integer> removedIds = new ArrayList<>();
+            if (name != null) {
+                for (Product product : products.values()) {
+                    if (name.equals(product.getCategory()) && products.remove(product.getId()) != null) {
+                        removedIds.add(product.getId());
+                    }
+                }
+            }
+            long changed = version.incrementAndGet();
+            for (Integer productId : removedIds) {
+                logChange(changed, productId);
+            }
+            fireChange(CatalogChange.Kind.CATEGORY_CHANGED, changed, removedIds);
+        }
+    }
+
+    // --- Change log ---
+
+    /**
+     * Returns the products changed since the given catalog version, as seen by customers (categorizedOnly)
+     * or by the admin panel. If the change log no longer reaches back to that version, or the version is not
+     * one of this server's (e.g. 0 for a client without a copy), the delta is a full snapshot instead.
+     * The delta is built under the write lock, so it describes exactly the catalog at its version.
+     */
+    public CatalogDelta getChangesSince(long sinceVersion, boolean categorizedOnly) throws SQLException {
+        ensureLoaded();
+        synchronized (writeLock) {
+            long current = version.get();
+            if (sinceVersion < changeLogStart || sinceVersion > current) {
+                Snapshot full = currentSnapshot();
+                return new CatalogDelta(sinceVersion, current, true, categorizedOnly ? full.visible : full.all,
+                        Collections.emptyList());
+            }
+            Set<Integer> changedIds = new TreeSet<>();
+            for (Iterator<Change> newestFirst = changeLog.descendingIterator(); newestFirst.hasNext(); ) {
+                Change change = newestFirst.next();
+                if (change.version <= sinceVersion) {
+                    break;
+                }
+                changedIds.add(change.productId);
+            }
+            List<Product> changed = new ArrayList<>();
+            List<Integer> deleted = new ArrayList<>();
+            for (Integer productId : changedIds) {
+                Product product = products.get(productId);
+                if (product != null && (!categorizedOnly || product.getCategory() != null)) {
+                    changed.add(product);
+                } else {
+                    // Also reported when the client never had it (added and deleted since); removing is harmless.
+                    deleted.add(productId);
+                }
+            }
+            return new CatalogDelta(sinceVersion, current, false, changed, deleted);
+        }
+    }
+
+    // Called with writeLock held, so listeners see the changes in version order.
+    private void fireChange(CatalogChange.Kind kind, long changedVersion, Collection<Integer> productIds) {
+        if (changeListeners.isEmpty()) {
+            return;
+        }
+        CatalogChange change = new CatalogChange(kind, changedVersion, productIds.stream().mapToInt(Integer::intValue).toArray());
+        for (ChangeListener listener : changeListeners) {
+            listener.catalogChanged(change);
+        }
+    }
+
+    // Called with writeLock held.
+    private void logChange(long changedVersion, int productId) {
+        changeLog.addLast(new Change(changedVersion, productId));
+        while (changeLog.size() > changeLogSize) {
+            // Changes up to the dropped one's version can no longer be listed completely.
+            changeLogStart = Math.max(changeLogStart, changeLog.pollFirst().version);
+        }
+    }
+
+    /**
+     * Returns the cached name of a category, or null if it is unknown.
+     */
+    public String getCategoryName(int categoryId) throws SQLException {
+        for (Category category : getCategories()) {
+            if (category.getId() == categoryId) {
+                return category.getName();
+            }
+        }
+        return null;
+    }
+
+    private static Product copy(Product p) {
+        return new Product(p.getId(), p.getName(), p.getDescription(), p.getPrice(), p.getStockQuantity(),
+                p.getCategory(), p.getBrand(), p.getSize(), p.getColor());
+    }
+}
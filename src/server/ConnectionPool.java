@@ -0,0 +1,482 @@
+package server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small bounded JDBC connection pool.
+ * Connections handed out by {@link #getConnection()} are proxies: calling close() returns the
+ * physical connection to the pool instead of closing it, so the existing try-with-resources
+ * blocks across the server keep working unchanged.
+ *
+ * The pool validates connections that have been idle for a while, evicts idle connections above
+ * the minimum, retires connections that exceed their maximum lifetime, and makes callers wait
+ * up to the acquire timeout when every connection is in use.
+ * Each physical connection also keeps a {@link StatementCache}, so prepareStatement() calls with
+ * SQL the connection has seen before reuse the already prepared statement.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long acquireTimeoutNanos;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long validateAfterIdleMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition connectionReturned = lock.newCondition();
+    // Most recently returned connections are reused first, so the rest can age out when load drops.
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private int totalConnections; // Physical connections, both idle and in use. Guarded by lock.
+    private int waiters; // Threads currently blocked waiting for a connection. Guarded by lock.
+    private boolean closed; // Guarded by lock.
+
+    private final ScheduledExecutorService housekeeper;
+
+    // Live counters.
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    public ConnectionPool(ServerConfig config) {
+        this.url = config.getString("db.url", "jdbc:mysql://localhost:3306/rmi_onlinestore?useSSL=false&serverTimezone=UTC&useServerPrepStmts=true&rewriteBatchedStatements=true&useCursorFetch=true");
+        this.user = config.getString("db.user", "root");
+        this.password = config.getString("db.password", "");
+        this.maxSize = Math.max(1, config.getInt("db.pool.maxSize", 10));
+        this.minIdle = Math.min(maxSize, Math.max(0, config.getInt("db.pool.minIdle", 2)));
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("db.pool.acquireTimeoutMs", 5_000));
+        this.idleTimeoutMillis = config.getLong("db.pool.idleTimeoutMs", 600_000);
+        this.maxLifetimeMillis = config.getLong("db.pool.maxLifetimeMs", 1_800_000);
+        this.validateAfterIdleMillis = config.getLong("db.pool.validateAfterIdleMs", 5_000);
+        this.validationTimeoutSeconds = Math.max(1, config.getInt("db.pool.validationTimeoutSec", 2));
+        this.statementCacheSize = Math.max(0, config.getInt("db.statementCache.size", 64));
+
+        try {
+            // Only needed once per JVM; older code paths did this on every request.
+            Class.forName(config.getString("db.driver", "com.mysql.cj.jdbc.Driver"));
+        } catch (ClassNotFoundException e) {
+            System.err.println("MySQL JDBC Driver not found.");
+        }
+
+        long housekeepingInterval = Math.max(1_000, config.getLong("db.pool.housekeepingIntervalMs", 30_000));
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, housekeepingInterval, housekeepingInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, creating one if the pool is below its maximum size.
+     * The caller must close the returned connection to hand it back.
+     * @throws SQLTransientConnectionException if no connection becomes available within the acquire timeout.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long remaining = acquireTimeoutNanos;
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean mayCreate = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool has been shut down.");
+                    }
+                    candidate = idle.pollFirst();
+                    if (candidate != null) {
+                        break;
+                    }
+                    if (totalConnections < maxSize) {
+                        totalConnections++; // Reserve the slot before connecting outside the lock.
+                        mayCreate = true;
+                        break;
+                    }
+                    if (remaining <= 0) {
+                        timeoutCount.increment();
+                        throw new SQLTransientConnectionException("Timed out after "
+                                + TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos) + " ms waiting for a database connection ("
+                                + maxSize + " in use, " + waiters + " other waiters).");
+                    }
+                    waiters++;
+                    try {
+                        remaining = connectionReturned.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection.", e);
+                    } finally {
+                        waiters--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (mayCreate) {
+                try {
+                    candidate = new PooledConnection(DriverManager.getConnection(url, user, password));
+                    createdCount.increment();
+                } catch (SQLException e) {
+                    discardSlot();
+                    throw e;
+                }
+            } else if (!isUsable(candidate)) {
+                closePhysical(candidate);
+                discardSlot();
+                remaining = acquireTimeoutNanos - (System.nanoTime() - start);
+                continue;
+            }
+
+            recordAcquire(System.nanoTime() - start);
+            return candidate.lend();
+        }
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        long now = System.currentTimeMillis();
+        if (now - pc.createdAt > maxLifetimeMillis) {
+            return false;
+        }
+        if (now - pc.lastReturnedAt < validateAfterIdleMillis) {
+            return true;
+        }
+        try {
+            if (pc.physical.isValid(validationTimeoutSeconds)) {
+                return true;
+            }
+        } catch (SQLException e) {
+            // Treated the same as an invalid connection.
+        }
+        validationFailures.increment();
+        return false;
+    }
+
+    private void recordAcquire(long nanos) {
+        acquireCount.increment();
+        acquireNanos.add(nanos);
+        maxAcquireNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Called when a borrowed connection is closed by its user.
+     */
+    private void giveBack(PooledConnection pc, boolean broken) {
+        pc.statements.releaseAll();
+        if (!broken) {
+            try {
+                // Leave the connection the way the next borrower expects to find it.
+                if (!pc.physical.getAutoCommit()) {
+                    pc.physical.rollback();
+                    pc.physical.setAutoCommit(true);
+                }
+                pc.physical.clearWarnings();
+            } catch (SQLException e) {
+                broken = true;
+            }
+        }
+        if (broken || System.currentTimeMillis() - pc.createdAt > maxLifetimeMillis) {
+            closePhysical(pc);
+            discardSlot();
+            return;
+        }
+
+        pc.lastReturnedAt = System.currentTimeMillis();
+        lock.lock();
+        try {
+            if (!closed) {
+                idle.addFirst(pc);
+                connectionReturned.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        closePhysical(pc);
+    }
+
+    private void discardSlot() {
+        lock.lock();
+        try {
+            totalConnections--;
+            connectionReturned.signal(); // A waiter may now create a replacement.
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closePhysical(PooledConnection pc) {
+        pc.statements.closeAll();
+        try {
+            pc.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+        closedCount.increment();
+    }
+
+    /**
+     * Periodically retires idle connections that are past their idle timeout (above minIdle)
+     * or past their maximum lifetime.
+     */
+    private void housekeep() {
+        List<PooledConnection> retired = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            // The oldest idle connections sit at the end of the deque.
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pc = it.next();
+                boolean expired = now - pc.createdAt > maxLifetimeMillis;
+                boolean idleTooLong = now - pc.lastReturnedAt > idleTimeoutMillis && idle.size() > minIdle;
+                if (expired || idleTooLong) {
+                    it.remove();
+                    retired.add(pc);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pc : retired) {
+            closePhysical(pc);
+            discardSlot();
+        }
+    }
+
+    /**
+     * Closes all idle connections and refuses further borrowing.
+     * Connections still in use are closed when they are returned.
+     */
+    public void shutdown() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            connectionReturned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        toClose.forEach(this::closePhysical);
+    }
+
+    // --- Live counters ---
+
+    public int getActiveConnections() {
+        lock.lock();
+        try {
+            return totalConnections - idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdleConnections() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiters() {
+        lock.lock();
+        try {
+            return waiters;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    public double getAverageAcquireMillis() {
+        long count = acquireCount.sum();
+        return count == 0 ? 0 : acquireNanos.sum() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxAcquireMillis() {
+        return maxAcquireNanos.get() / 1_000_000.0;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getClosedCount() {
+        return closedCount.sum();
+    }
+
+    public long getValidationFailures() {
+        return validationFailures.sum();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCounters.hits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCounters.misses.sum();
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementCounters.evictions.sum();
+    }
+
+    public double getStatementCacheHitRatio() {
+        long hits = getStatementCacheHits();
+        long total = hits + getStatementCacheMisses();
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    /**
+     * Returns a one-line summary of the pool counters, suitable for logs and reports.
+     */
+    public String getStatisticsSummary() {
+        return String.format("active=%d, idle=%d, max=%d, waiters=%d, acquired=%d, avgAcquire=%.3f ms, maxAcquire=%.3f ms, timeouts=%d, created=%d, closed=%d, validationFailures=%d",
+                getActiveConnections(), getIdleConnections(), maxSize, getWaiters(), getAcquireCount(),
+                getAverageAcquireMillis(), getMaxAcquireMillis(), getTimeoutCount(), getCreatedCount(),
+                getClosedCount(), getValidationFailures());
+    }
+
+    /**
+     * Returns a one-line summary of the statement cache counters of all pooled connections.
+     */
+    public String getStatementCacheSummary() {
+        return String.format("size=%d per connection, hits=%d, misses=%d, evictions=%d, hitRatio=%.1f%%",
+                statementCacheSize, getStatementCacheHits(), getStatementCacheMisses(),
+                getStatementCacheEvictions(), getStatementCacheHitRatio() * 100);
+    }
+
+    /**
+     * A physical connection owned by the pool. Each loan hands out a fresh proxy so that a
+     * caller holding on to a closed connection cannot affect the next borrower.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statements;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastReturnedAt = createdAt;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new StatementCache(physical, statementCacheSize, statementCounters);
+        }
+
+        Connection lend() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LoanHandler(this));
+        }
+    }
+
+    private final class LoanHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+        private boolean broken;
+
+        LoanHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooled, broken);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                case "prepareStatement":
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+                    // Only the plain and generated-keys variants are cached; the others fall through.
+                    Class<?>[] types = method.getParameterTypes();
+                    if (types.length == 1) {
+                        return pooled.statements.prepare((String) args[0], null);
+                    }
+                    if (types.length == 2 && types[1] == int.class) {
+                        return pooled.statements.prepare((String) args[0], (Integer) args[1]);
+                    }
+                    break;
+                case "unwrap":
+                case "isWrapperFor":
+                    break;
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isFatal((SQLException) cause)) {
+                    broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        // SQL state class 08 means the connection itself failed; such connections are not reused.
+        private boolean isFatal(SQLException e) {
+            String state = e.getSQLState();
+            return state != null && state.startsWith("08");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package server;
+
+import common.Customer;
+import server.storage.StorageEngine;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches customer accounts by username for logins and registrations.
+ * A miss costs one lookup on the unique username index; the answer is kept for customer.cache.ttlMs,
+ * including the answer that there is no such customer, so a storm of logins (or of failed logins) after
+ * a restart reaches the database about once per username. The cache holds at most customer.cache.size
+ * usernames, dropping the least recently used. The server invalidates a username when a customer registers
+ * with it; changes made to the customers table by other means show up once the entry expires.
+ */
+public final class CustomerCache {
+
+    private static final class Cached {
+        final Customer customer; // Null if there is no customer with the username.
+        final long loadedAt;
+
+        Cached(Customer customer, long loadedAt) {
+            this.customer = customer;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final StorageEngine storage;
+    private final long ttlMillis;
+    // Guarded by this. In access order, so the eldest entry is the least recently used.
+    private final Map<String, Cached> entries;
+    private long invalidations; // Guarded by this; a lookup does not cache its answer if this moved meanwhile.
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CustomerCache(StorageEngine storage, ServerConfig config) {
+        this.storage = storage;
+        this.ttlMillis = config.getLong("customer.cache.ttlMs", 300_000L);
+        int maxSize = Math.max(1, config.getInt("customer.cache.size", 10_000));
+        this.entries = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns a copy of the customer with the given username, or null if there is none.
+     */
+    public Customer find(String username) throws SQLException {
+        if (username == null) {
+            return null;
+        }
+        long seen;
+        synchronized (this) {
+            Cached entry = entries.get(username);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt < ttlMillis) {
+                hits.increment();
+                return copy(entry.customer);
+            }
+            seen = invalidations;
+        }
+        misses.increment();
+        Customer customer = storage.customers().findByUsername(username);
+        synchronized (this) {
+            // A registration that invalidated the cache during the lookup may have made its answer stale.
+            if (invalidations == seen) {
+                entries.put(username, new Cached(customer, System.currentTimeMillis()));
+            }
+        }
+        return copy(customer);
+    }
+
+    /**
+     * Forgets what is cached for a username, e.g. after a customer registered with it or changed their
+     * account. MySQL compares usernames without regard to case, so entries that differ only in case go too.
+     */
+    public synchronized void invalidate(String username) {
+        invalidations++;
+        for (Iterator<String> keys = entries.keySet().iterator(); keys.hasNext(); ) {
+            if (keys.next().equalsIgnoreCase(username)) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the cache figures for the dashboard.
+     */
+    public String getSummary() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return String.format("%d usernames, %d lookups, %.1f%% hits", size, total, total == 0 ? 0.0 : 100.0 * hitCount / total);
+    }
+
+    // Callers get their own copy; a session keeps its customer for its lifetime.
+    private static Customer copy(Customer c) {
+        return c == null ? null : new Customer(c.getId(), c.getUsername(), c.getPassword(), c.getName(), c.getAddress());
+    }
+}
@@ -1,31 +1,68 @@
 package server;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
- * Manages the connection to the MySQL database.
- * This class provides a static method to get a new database connection.
- * It centralizes the database connection logic, including the JDBC URL and credentials.
+ * Manages the connections to the MySQL database.
+ * Connections are served from a bounded {@link ConnectionPool} configured from the server
+ * properties file (db.url, db.user, db.password and the db.pool.* settings), so callers no longer
+ * pay for a new TCP connection and login handshake on every request.
+ * Closing a connection obtained from this class returns it to the pool.
  */
 public class DatabaseManager {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/rmi_onlinestore?useSSL=false&serverTimezone=UTC";
-    private static final String USER = "root"; // <-- Enter your MySQL username here
-    private static final String PASS = "6055"; // <-- Enter your MySQL password here
+    private static volatile ConnectionPool pool;
 
     private DatabaseManager() {
         // Private constructor to prevent instantiation
     }
 
     public static Connection getConnection() throws SQLException {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            return DriverManager.getConnection(URL, USER, PASS);
-        } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found.");
-            throw new SQLException("MySQL JDBC Driver not found", e);
+        return getPool().getConnection();
+    }
+
+    /**
+     * Returns the shared pool, creating it on first use.
+     */
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseManager.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(ServerConfig.get());
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns the pool's live counters for the admin panel, without creating the pool when no
+     * connection has been requested yet (e.g. with the in-memory engine and no database).
+     */
+    public static String getStatisticsSummary() {
+        ConnectionPool current = pool;
+        return current != null ? current.getStatisticsSummary() : "not in use (no connection requested yet)";
+    }
+
+    /**
+     * Returns the prepared statement cache counters for the admin panel, without creating the pool.
+     */
+    public static String getStatementCacheSummary() {
+        ConnectionPool current = pool;
+        return current != null ? current.getStatementCacheSummary() : "not in use (no connection requested yet)";
+    }
+
+    /**
+     * Closes the pool's idle connections. Called when the server shuts down.
+     */
+    public static void shutdown() {
+        ConnectionPool current = pool;
+        if (current != null) {
+            current.shutdown();
         }
     }
-} 
\ No newline at end of file
+}
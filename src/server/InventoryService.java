@@ -0,0 +1,410 @@
+package server;
+
+import common.Product;
+import server.storage.StorageEngine;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the stock that is still available to carts in memory and lets carts hold units of it.
+ * Adding a product to a cart reserves the units right away, so two customers can no longer both put
+ * the last unit in their cart and have one of them fail at checkout. Holds are released when the
+ * line is removed, the cart is cleared or the customer logs out, and expire after a configurable
+ * time (inventory.holdTtlMs) so abandoned carts give their stock back.
+ *
+ * For each product the service tracks the units on hand and the units held, packed into one
+ * AtomicLong, and changes both with compare-and-set; reserving never takes a lock or touches the
+ * database once the product's stock has been loaded. The database stays authoritative: checkout
+ * still verifies stock in its own transaction, and the on-hand counts are re-read from storage
+ * periodically (inventory.reconcileIntervalMs) and whenever a checkout finds them out of date.
+ */
+public final class InventoryService {
+
+    /**
+     * The units a single cart holds, per product. Owned by one user session.
+     */
+    public static final class CartHolds {
+        private final Map<Integer, Integer> quantities = new HashMap<>(); // Product ID -> units held.
+        private final Map<Integer, Long> expiresAt = new HashMap<>(); // Product ID -> expiry time in ms.
+
+        private CartHolds() {
+        }
+
+        /**
+         * Returns the units currently held for a product (0 once the hold expired).
+         */
+        public synchronized int getHeld(int productId) {
+            return quantities.getOrDefault(productId, 0);
+        }
+    }
+
+    /**
+     * On-hand and held units of one product, packed as (onHand << 32 | held).
+     */
+    private static final class Stock {
+        private final AtomicLong state;
+
+        Stock(int onHand) {
+            state = new AtomicLong(pack(onHand, 0));
+        }
+
+        static long pack(int onHand, int held) {
+            return ((long) onHand << 32) | (held & 0xFFFFFFFFL);
+        }
+
+        static int onHand(long state) {
+            return (int) (state >> 32);
+        }
+
+        static int held(long state) {
+            return (int) state;
+        }
+
+        int available() {
+            long current = state.get();
+            return onHand(current) - held(current);
+        }
+
+        boolean tryHold(int quantity) {
+            while (true) {
+                long current = state.get();
+                int onHand = onHand(current);
+                int held = held(current);
+                if (onHand - held < quantity) {
+                    return false;
+                }
+                if (state.compareAndSet(current, pack(onHand, held + quantity))) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Applies a change to both counts; held never drops below zero.
+         */
+        void add(int onHandDelta, int heldDelta) {
+            while (true) {
+                long current = state.get();
+                long next = pack(onHand(current) + onHandDelta, Math.max(0, held(current) + heldDelta));
+                if (state.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+
+        void setOnHand(int onHand) {
+            while (true) {
+                long current = state.get();
+                if (state.compareAndSet(current, pack(onHand, held(current)))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private final StorageEngine storage;
+    private final long holdTtlMillis;
+    private final Map<Integer, Stock> stocks = new ConcurrentHashMap<>();
+    private final Set<CartHolds> carts = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService maintenance;
+
+    public InventoryService(StorageEngine storage, ServerConfig config) {
+        this.storage = storage;
+        this.holdTtlMillis = config.getLong("inventory.holdTtlMs", 900_000L);
+        long sweepInterval = config.getLong("inventory.sweepIntervalMs", 30_000L);
+        long reconcileInterval = config.getLong("inventory.reconcileIntervalMs", 300_000L);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "inventory-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        maintenance.scheduleWithFixedDelay(this::releaseExpiredHolds, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(() -> {
+            try {
+                reconcileAll();
+            } catch (SQLException e) {
+                System.err.println("Inventory reconciliation failed: " + e.getMessage());
+            }
+        }, reconcileInterval, reconcileInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public CartHolds openCart() {
+        CartHolds cart = new CartHolds();
+        carts.add(cart);
+        return cart;
+    }
+
+    /**
+     * Releases every hold of the cart and stops tracking it. Called when the session ends.
+     */
+    public void closeCart(CartHolds cart) {
+        carts.remove(cart);
+        releaseAll(cart);
+    }
+
+    /**
+     * Returns the units of a product that are neither sold nor held by a cart,
+     * or -1 if the product does not exist.
+     */
+    public int getAvailable(int productId) throws SQLException {
+        Stock stock = stockOf(productId);
+        return stock != null ? stock.available() : -1;
+    }
+
+    /**
+     * Holds additional units of a product for the cart and renews the cart's hold on it.
+     * @return false if the product does not exist or not enough units are available; nothing is held then.
+     */
+    public boolean reserve(CartHolds cart, int productId, int quantity) throws SQLException {
+        Stock stock = stockOf(productId);
+        if (stock == null || !stock.tryHold(quantity)) {
+            return false;
+        }
+        synchronized (cart) {
+            cart.quantities.merge(productId, quantity, Integer::sum);
+            cart.expiresAt.put(productId, System.currentTimeMillis() + holdTtlMillis);
+        }
+        return true;
+    }
+
+    /**
+     * Releases the cart's hold on one product.
+     */
+    public void release(CartHolds cart, int productId) {
+        Integer held;
+        synchronized (cart) {
+            held = cart.quantities.remove(productId);
+            cart.expiresAt.remove(productId);
+        }
+        if (held != null) {
+            Stock stock = stocks.get(productId);
+            if (stock != null) {
+                stock.add(0, -held);
+            }
+        }
+    }
+
+    public void releaseAll(CartHolds cart) {
+        Map<Integer, Integer> held;
+        synchronized (cart) {
+            held = new HashMap<>(cart.quantities);
+            cart.quantities.clear();
+            cart.expiresAt.clear();
+        }
+        held.forEach((productId, quantity) -> {
+            Stock stock = stocks.get(productId);
+            if (stock != null) {
+                stock.add(0, -quantity);
+            }
+        });
+    }
+
+    /**
+     * Tops up the cart's holds to cover the given quantities, e.g. before checkout when some holds expired.
+     * @return false if a product could not be covered; holds that were renewed are kept.
+     */
+    public boolean reserveAll(CartHolds cart, Map<Integer, Integer> quantities) throws SQLException {
+        boolean covered = true;
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            int missing = entry.getValue() - cart.getHeld(entry.getKey());
+            if (missing > 0 && !reserve(cart, entry.getKey(), missing)) {
+                covered = false;
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * Sets the cart's holds on several products to the given quantities, all or nothing: units are held
+     * for increases and released for decreases (0 releases the hold). The stock of products that are
+     * not tracked yet is loaded with one query.
+     * @return the products that could not be covered, with the units the cart could have (-1 if the
+     *         product does not exist); empty if the holds were changed.
+     */
+    public Map<Integer, Integer> setHolds(CartHolds cart, Map<Integer, Integer> quantities) throws SQLException {
+        List<Integer> untracked = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            if (entry.getValue() > 0 && !stocks.containsKey(entry.getKey())) {
+                untracked.add(entry.getKey());
+            }
+        }
+        if (!untracked.isEmpty()) {
+            for (Product product : storage.products().findByIds(untracked)) {
+                stocks.computeIfAbsent(product.getId(), id -> new Stock(product.getStockQuantity()));
+            }
+        }
+
+        // Take the increases first; give them back if any product falls short.
+        Map<Integer, Integer> taken = new HashMap<>();
+        Map<Integer, Integer> shortfalls = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            int productId = entry.getKey();
+            int held = cart.getHeld(productId);
+            int missing = entry.getValue() - held;
+            if (missing <= 0) {
+                continue;
+            }
+            Stock stock = stocks.get(productId);
+            if (stock == null) {
+                shortfalls.put(productId, -1);
+            } else if (stock.tryHold(missing)) {
+                taken.put(productId, missing);
+            } else {
+                shortfalls.put(productId, held + stock.available());
+            }
+        }
+        if (!shortfalls.isEmpty()) {
+            taken.forEach((productId, units) -> stocks.get(productId).add(0, -units));
+            return shortfalls;
+        }
+
+        long expiresAt = System.currentTimeMillis() + holdTtlMillis;
+        Map<Integer, Integer> surplus = new HashMap<>();
+        synchronized (cart) {
+            taken.forEach((productId, units) -> {
+                cart.quantities.merge(productId, units, Integer::sum);
+                cart.expiresAt.put(productId, expiresAt);
+            });
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                int productId = entry.getKey();
+                int held = cart.quantities.getOrDefault(productId, 0);
+                if (held > entry.getValue()) {
+                    surplus.put(productId, held - entry.getValue());
+                    if (entry.getValue() > 0) {
+                        cart.quantities.put(productId, entry.getValue());
+                    } else {
+                        cart.quantities.remove(productId);
+                        cart.expiresAt.remove(productId);
+                    }
+                }
+            }
+        }
+        surplus.forEach((productId, units) -> {
+            Stock stock = stocks.get(productId);
+            if (stock != null) {
+                stock.add(0, -units);
+            }
+        });
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Records a placed order: the ordered units leave the on-hand stock and the cart's holds are consumed.
+     */
+    public void commit(CartHolds cart, Map<Integer, Integer> ordered) {
+        Map<Integer, Integer> held;
+        synchronized (cart) {
+            held = new HashMap<>(cart.quantities);
+            cart.quantities.clear();
+            cart.expiresAt.clear();
+        }
+        Set<Integer> productIds = new HashSet<>(ordered.keySet());
+        productIds.addAll(held.keySet());
+        for (Integer productId : productIds) {
+            Stock stock = stocks.get(productId);
+            if (stock != null) {
+                stock.add(-ordered.getOrDefault(productId, 0), -held.getOrDefault(productId, 0));
+            }
+        }
+    }
+
+    // --- Changes made outside carts ---
+
+    /**
+     * Sets the on-hand stock of a product after an admin changed it; holds are kept.
+     */
+    public void setStock(int productId, int onHand) {
+        Stock stock = stocks.get(productId);
+        if (stock != null) {
+            stock.setOnHand(onHand);
+        }
+    }
+
+    /**
+     * Stops tracking products that were deleted. Existing holds on them are dropped when released.
+     */
+    public void forget(Collection<Integer> productIds) {
+        for (Integer productId : productIds) {
+            stocks.remove(productId);
+        }
+    }
+
+    /**
+     * Re-reads the on-hand stock of the given products from storage in one query.
+     * A checkout that commits between the read and the update is corrected by the next reconciliation.
+     */
+    public void reconcile(Collection<Integer> productIds) throws SQLException {
+        List<Integer> tracked = new ArrayList<>();
+        for (Integer productId : productIds) {
+            if (stocks.containsKey(productId)) {
+                tracked.add(productId);
+            }
+        }
+        if (tracked.isEmpty()) {
+            return;
+        }
+        Set<Integer> missing = new HashSet<>(tracked);
+        for (Product product : storage.products().findByIds(tracked)) {
+            setStock(product.getId(), product.getStockQuantity());
+            missing.remove(product.getId());
+        }
+        forget(missing);
+    }
+
+    public void reconcileAll() throws SQLException {
+        reconcile(new ArrayList<>(stocks.keySet()));
+    }
+
+    public void shutdown() {
+        maintenance.shutdownNow();
+    }
+
+    private Stock stockOf(int productId) throws SQLException {
+        Stock stock = stocks.get(productId);
+        if (stock == null) {
+            int onHand = storage.products().findStock(productId);
+            if (onHand < 0) {
+                return null;
+            }
+            stock = stocks.computeIfAbsent(productId, id -> new Stock(onHand));
+        }
+        return stock;
+    }
+
+    private void releaseExpiredHolds() {
+        long now = System.currentTimeMillis();
+        for (CartHolds cart : carts) {
+            Map<Integer, Integer> expired = new HashMap<>();
+            synchronized (cart) {
+                Iterator<Map.Entry<Integer, Long>> it = cart.expiresAt.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Integer, Long> entry = it.next();
+                    if (entry.getValue() <= now) {
+                        it.remove();
+                        expired.put(entry.getKey(), cart.quantities.remove(entry.getKey()));
+                    }
+                }
+            }
+            expired.forEach((productId, quantity) -> {
+                Stock stock = stocks.get(productId);
+                if (stock != null && quantity != null) {
+                    stock.add(0, -quantity);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package server;
+
+import common.CatalogChange;
+import common.IClientCallback;
+import common.VirtualThreads;
+
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers notifications to the callbacks of logged-in clients in the background.
+ * Callers only put a message in the client's mailbox and return immediately, so an admin action
+ * never waits for a slow or dead client. Each client has its own bounded mailbox, drained in order
+ * by one task at a time on a virtual thread (on JDKs without virtual threads, on a pool of
+ * notify.fallbackThreads threads); when a mailbox is full the oldest message is dropped.
+ * A delivery that fails or takes longer than notify.deliveryTimeoutMs counts as a failure, and a
+ * client whose last notify.maxFailures deliveries all failed is evicted.
+ *
+ * Catalog changes are delivered through the typed catalogChanged callback. A catalog change that
+ * is still waiting in a mailbox absorbs later changes of the same kind. A burst of checkouts
+ * therefore costs each client one callback rather than one per checkout.
+ */
+public final class NotificationDispatcher {
+
+    /**
+     * Called with the username of a client that was evicted after repeated delivery failures.
+     */
+    public interface EvictionListener {
+        void evicted(String username);
+    }
+
+    private static final class Pending {
+        final String message; // Exactly one of message and change is set.
+        final CatalogChange change;
+        final long enqueuedAt;
+
+        Pending(String message, CatalogChange change, long enqueuedAt) {
+            this.message = message;
+            this.change = change;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        void deliverTo(IClientCallback callback) throws RemoteException {
+            if (change != null) {
+                callback.catalogChanged(change);
+            } else {
+                callback.notify(message);
+            }
+        }
+    }
+
+    private static final class Mailbox {
+        final String username;
+        final IClientCallback callback;
+        final ArrayDeque<Pending> queue = new ArrayDeque<>(); // Guarded by this.
+        boolean draining; // True while a drain task owns the mailbox. Guarded by this.
+        boolean closed; // Guarded by this.
+        int consecutiveFailures; // Only touched by the draining task.
+
+        Mailbox(String username, IClientCallback callback) {
+            this.username = username;
+            this.callback = callback;
+        }
+    }
+
+    private final int queueCapacity;
+    private final long deliveryTimeoutMillis;
+    private final int maxFailures;
+    private final EvictionListener evictionListener;
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService workers; // Drains mailboxes.
+    private final ExecutorService calls; // Makes the callbacks; separate so a bounded pool cannot wait on itself.
+
+    private final LongAdder queuedCount = new LongAdder();
+    private final LongAdder deliveredCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public NotificationDispatcher(ServerConfig config, EvictionListener evictionListener) {
+        this.queueCapacity = Math.max(1, config.getInt("notify.queueCapacity", 100));
+        this.deliveryTimeoutMillis = config.getLong("notify.deliveryTimeoutMs", 5_000L);
+        this.maxFailures = Math.max(1, config.getInt("notify.maxFailures", 3));
+        this.evictionListener = evictionListener;
+        int fallbackThreads = config.getInt("notify.fallbackThreads", 32);
+        this.workers = VirtualThreads.newExecutor("notify-drain", fallbackThreads);
+        this.calls = VirtualThreads.newExecutor("notify-call", fallbackThreads);
+    }
+
+    /**
+     * Starts delivering notifications for a client, replacing an earlier registration of the same username.
+     */
+    public void register(String username, IClientCallback callback) {
+        Mailbox previous = mailboxes.put(username, new Mailbox(username, callback));
+        if (previous != null) {
+            close(previous);
+        }
+    }
+
+    /**
+     * Stops delivering notifications for a client; messages still queued are discarded.
+     */
+    public void unregister(String username) {
+        Mailbox mailbox = mailboxes.remove(username);
+        if (mailbox != null) {
+            close(mailbox);
+        }
+    }
+
+    public boolean isRegistered(String username) {
+        return mailboxes.containsKey(username);
+    }
+
+    /**
+     * Queues a message for one client. Does nothing if the client is not registered.
+     */
+    public void send(String username, String message) {
+        Mailbox mailbox = mailboxes.get(username);
+        if (mailbox != null) {
+            enqueue(mailbox, new Pending(message, null, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Queues a message for every registered client.
+     */
+    public void broadcast(String message) {
+        for (Mailbox mailbox : mailboxes.values()) {
+            enqueue(mailbox, new Pending(message, null, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Queues a catalog change for every registered client.
+     */
+    public void broadcastCatalogChange(CatalogChange change) {
+        for (Mailbox mailbox : mailboxes.values()) {
+            enqueue(mailbox, new Pending(null, change, System.nanoTime()));
+        }
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+        calls.shutdownNow();
+    }
+
+    private void enqueue(Mailbox mailbox, Pending pending) {
+        boolean startDrain;
+        synchronized (mailbox) {
+            if (mailbox.closed) {
+                return;
+            }
+            Pending last = mailbox.queue.peekLast();
+            if (pending.change != null && last != null && last.change != null
+                    && last.change.getKind() == pending.change.getKind()) {
+                // Not delivered yet: deliver both in one callback, timed from the older one.
+                mailbox.queue.pollLast();
+                mailbox.queue.add(new Pending(null, last.change.mergeWith(pending.change), last.enqueuedAt));
+                return; // A drain task is already scheduled for the queued change.
+            }
+            if (mailbox.queue.size() >= queueCapacity) {
+                mailbox.queue.poll(); // Keep the newest messages.
+                droppedCount.increment();
+            }
+            mailbox.queue.add(pending);
+            queuedCount.increment();
+            startDrain = !mailbox.draining;
+            mailbox.draining = true;
+        }
+        if (startDrain) {
+            try {
+                workers.execute(() -> drain(mailbox));
+            } catch (RuntimeException e) { // Rejected after shutdown.
+                close(mailbox);
+            }
+        }
+    }
+
+    /**
+     * Delivers the mailbox's messages one by one until it is empty.
+     */
+    private void drain(Mailbox mailbox) {
+        while (true) {
+            Pending next;
+            synchronized (mailbox) {
+                next = mailbox.closed ? null : mailbox.queue.poll();
+                if (next == null) {
+                    mailbox.draining = false;
+                    return;
+                }
+            }
+            if (deliver(mailbox, next)) {
+                mailbox.consecutiveFailures = 0;
+            } else if (++mailbox.consecutiveFailures >= maxFailures) {
+                evict(mailbox);
+            }
+        }
+    }
+
+    private boolean deliver(Mailbox mailbox, Pending pending) {
+        // The remote call runs in a thread of its own so that it can be abandoned after the timeout.
+        Future<?> call = calls.submit(() -> {
+            pending.deliverTo(mailbox.callback);
+            return null;
+        });
+        try {
+            call.get(deliveryTimeoutMillis, TimeUnit.MILLISECONDS);
+            long latency = System.nanoTime() - pending.enqueuedAt;
+            deliveredCount.increment();
+            latencyNanos.add(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            return true;
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            System.err.println("Notification to " + mailbox.username + " timed out after " + deliveryTimeoutMillis + " ms.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            String reason = cause instanceof RemoteException ? cause.getMessage() : String.valueOf(cause);
+            System.err.println("Error notifying client " + mailbox.username + ": " + reason);
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        failedCount.increment();
+        return false;
+    }
+
+    private void evict(Mailbox mailbox) {
+        if (mailboxes.remove(mailbox.username, mailbox)) {
+            close(mailbox);
+            evictedCount.increment();
+            System.err.println("Client " + mailbox.username + " evicted after " + maxFailures + " failed notifications.");
+            if (evictionListener != null) {
+                evictionListener.evicted(mailbox.username);
+            }
+        }
+    }
+
+    private void close(Mailbox mailbox) {
+        synchronized (mailbox) {
+            mailbox.closed = true;
+            droppedCount.add(mailbox.queue.size());
+            mailbox.queue.clear();
+        }
+    }
+
+    // --- Statistics ---
+
+    public int getRegisteredClients() {
+        return mailboxes.size();
+    }
+
+    public long getQueuedCount() {
+        return queuedCount.sum();
+    }
+
+    public long getDeliveredCount() {
+        return deliveredCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.sum();
+    }
+
+    /**
+     * Average time from queueing a message to its successful delivery.
+     */
+    public double getAverageLatencyMillis() {
+        long delivered = deliveredCount.sum();
+        return delivered == 0 ? 0 : latencyNanos.sum() / 1_000_000.0 / delivered;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1_000_000.0;
+    }
+
+    public String getStatisticsSummary() {
+        return String.format("clients=%d, queued=%d, delivered=%d, dropped=%d, failed=%d, evicted=%d, avgLatency=%.3f ms, maxLatency=%.3f ms",
+                getRegisteredClients(), getQueuedCount(), getDeliveredCount(), getDroppedCount(), getFailedCount(),
+                getEvictedCount(), getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+}
@@ -0,0 +1,68 @@
+package server;
+
+import common.IOrderExport;
+import common.Order;
+import server.storage.OrderStream;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * One open order export. Each call reads the next chunk from the storage stream; the stream is
+ * closed, and the export forgotten by its {@link OrderExportService}, when the last chunk has been
+ * read, when the client closes it, or when it has been idle too long.
+ */
+public class OrderExportImpl extends UnicastRemoteObject implements IOrderExport {
+
+    private final OrderExportService service;
+    private final OrderStream stream;
+    private final int chunkSize;
+    private volatile long lastAccess = System.currentTimeMillis();
+    private boolean closed; // Guarded by this.
+
+    OrderExportImpl(OrderExportService service, OrderStream stream, int chunkSize) throws RemoteException {
+        super();
+        this.service = service;
+        this.stream = stream;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public synchronized List<Order> nextChunk() throws RemoteException {
+        if (closed) {
+            throw new RemoteException("The export has been closed.");
+        }
+        lastAccess = System.currentTimeMillis();
+        try {
+            List<Order> chunk = stream.next(chunkSize);
+            if (chunk.isEmpty()) {
+                close();
+            }
+            return chunk;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            close();
+            throw new RemoteException("Database error while exporting orders.", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            stream.close();
+        } catch (SQLException e) {
+            System.err.println("Closing an order export failed: " + e.getMessage());
+        }
+        service.closed(this);
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+}
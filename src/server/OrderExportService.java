@@ -0,0 +1,117 @@
+package server;
+
+import common.IOrderExport;
+import common.OrderFilter;
+import server.storage.OrderStream;
+import server.storage.StorageEngine;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens and tracks the order exports of the admin panels.
+ * An export streams the order history from storage in chunks of export.chunkSize orders, reading
+ * export.fetchSize rows per database round trip, so server memory stays flat whatever the size of the
+ * history. A JDBC export holds a pooled connection while it is open, so at most export.maxOpen exports
+ * run at a time, and an export that is not read from for export.idleTimeoutMs (e.g. because the client
+ * went away) is closed and unexported.
+ */
+public final class OrderExportService {
+
+    private final StorageEngine storage;
+    private final RemoteMetrics metrics;
+    private final int chunkSize;
+    private final int fetchSize;
+    private final long idleTimeoutMillis;
+    private final Semaphore slots;
+    // Open exports -> the remote object exported for each (the metrics proxy, or the export itself).
+    private final Map<OrderExportImpl, IOrderExport> open = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    public OrderExportService(StorageEngine storage, RemoteMetrics metrics, ServerConfig config) {
+        this.storage = storage;
+        this.metrics = metrics;
+        this.chunkSize = Math.max(1, config.getInt("export.chunkSize", 500));
+        this.fetchSize = Math.max(1, config.getInt("export.fetchSize", 1000));
+        this.idleTimeoutMillis = config.getLong("export.idleTimeoutMs", 300_000L);
+        this.slots = new Semaphore(Math.max(1, config.getInt("export.maxOpen", 2)));
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "export-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long sweepInterval = Math.max(1_000L, Math.min(idleTimeoutMillis / 2, 30_000L));
+        sweeper.scheduleWithFixedDelay(this::closeIdleExports, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens an export of the orders that match the filter and returns its remote object.
+     * @throws IllegalStateException if export.maxOpen exports are already running.
+     */
+    public IOrderExport open(OrderFilter filter) throws SQLException, RemoteException {
+        if (!slots.tryAcquire()) {
+            throw new IllegalStateException("Too many order exports are running; try again later.");
+        }
+        OrderStream stream = null;
+        try {
+            stream = storage.orders().stream(filter, fetchSize);
+            OrderExportImpl export = new OrderExportImpl(this, stream, chunkSize);
+            IOrderExport exported = metrics.export(export, IOrderExport.class);
+            open.put(export, exported);
+            return exported;
+        } catch (SQLException | RemoteException | RuntimeException e) {
+            if (stream != null) {
+                stream.close();
+            }
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Called by an export once it has closed its stream.
+     */
+    void closed(OrderExportImpl export) {
+        IOrderExport exported = open.remove(export);
+        if (exported == null) {
+            return;
+        }
+        slots.release();
+        try {
+            // Forced: the call that finished the export is still returning its last chunk.
+            UnicastRemoteObject.unexportObject(exported, true);
+        } catch (NoSuchObjectException e) {
+            // Never exported or already unexported.
+        }
+    }
+
+    public int getOpenCount() {
+        return open.size();
+    }
+
+    private void closeIdleExports() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        for (OrderExportImpl export : new ArrayList<>(open.keySet())) {
+            if (export.getLastAccess() < cutoff) {
+                System.out.println("Closing an order export that was idle for more than " + idleTimeoutMillis + " ms.");
+                export.close();
+            }
+        }
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+        for (OrderExportImpl export : new ArrayList<>(open.keySet())) {
+            export.close();
+        }
+    }
+}
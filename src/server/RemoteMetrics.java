@@ -0,0 +1,293 @@
+package server;
+
+import common.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures every call to the server's remote objects: calls, errors, calls in flight and a latency
+ * histogram per remote method. A remote object is instrumented by exporting a proxy of its remote
+ * interface in its place (see {@link #export}), so the implementations need no timing code. Each
+ * method's figures are published as an MBean named RMIOnlineStore:type=RemoteMethod,... on the
+ * platform MBean server and summarized by {@link #getStatisticsSummary()} for the admin panel.
+ * With metrics.enabled=false remote objects are exported as they are and nothing is measured.
+ */
+public final class RemoteMetrics {
+
+    /**
+     * The figures of one remote method, as published over JMX. Latencies are in milliseconds.
+     */
+    public interface RemoteMethodMBean {
+        String getInterfaceName();
+
+        String getMethodName();
+
+        long getCalls();
+
+        long getErrors();
+
+        long getInFlight();
+
+        double getCallsPerSecond();
+
+        double getMeanMillis();
+
+        double getP50Millis();
+
+        double getP90Millis();
+
+        double getP99Millis();
+
+        double getP999Millis();
+
+        double getMaxMillis();
+
+        void reset();
+    }
+
+    private static final class MethodStats implements RemoteMethodMBean {
+        private final String interfaceName;
+        private final String methodName;
+        private final LatencyHistogram latency = new LatencyHistogram(); // Microseconds.
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong inFlight = new AtomicLong();
+        private volatile long since = System.nanoTime();
+
+        MethodStats(String interfaceName, String methodName) {
+            this.interfaceName = interfaceName;
+            this.methodName = methodName;
+        }
+
+        @Override
+        public String getInterfaceName() {
+            return interfaceName;
+        }
+
+        @Override
+        public String getMethodName() {
+            return methodName;
+        }
+
+        @Override
+        public long getCalls() {
+            return latency.getCount();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public long getInFlight() {
+            return inFlight.get();
+        }
+
+        @Override
+        public double getCallsPerSecond() {
+            double seconds = (System.nanoTime() - since) / 1e9;
+            return seconds <= 0 ? 0 : latency.getCount() / seconds;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return latency.getMean() / 1000.0;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return latency.getPercentile(50) / 1000.0;
+        }
+
+        @Override
+        public double getP90Millis() {
+            return latency.getPercentile(90) / 1000.0;
+        }
+
+        @Override
+        public double getP99Millis() {
+            return latency.getPercentile(99) / 1000.0;
+        }
+
+        @Override
+        public double getP999Millis() {
+            return latency.getPercentile(99.9) / 1000.0;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return latency.getMax() / 1000.0;
+        }
+
+        @Override
+        public void reset() {
+            latency.reset();
+            errors.reset();
+            since = System.nanoTime();
+        }
+    }
+
+    private final boolean enabled;
+    private final Map<Method, MethodStats> methods = new ConcurrentHashMap<>();
+
+    public RemoteMetrics(ServerConfig config) {
+        this.enabled = config.getBoolean("metrics.enabled", true);
+    }
+
+    /**
+     * Exports an instrumented proxy of a remote object in place of the object itself and returns it.
+     * The object must already be exported (as every UnicastRemoteObject is by its constructor); it is
+     * unexported so that only the proxy is reachable. Returns the object unchanged when metrics are disabled.
+     */
+    public <T extends Remote> T export(T target, Class<T> remoteInterface) throws RemoteException {
+        if (!enabled) {
+            return target;
+        }
+        T proxy = remoteInterface.cast(Proxy.newProxyInstance(remoteInterface.getClassLoader(),
+                new Class<?>[]{remoteInterface}, new TimingHandler(target, remoteInterface)));
+        UnicastRemoteObject.unexportObject(target, true);
+        UnicastRemoteObject.exportObject(proxy, 0);
+        return proxy;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clears the figures of every method.
+     */
+    public void reset() {
+        for (MethodStats stats : methods.values()) {
+            stats.reset();
+        }
+    }
+
+    /**
+     * Returns a table of every remote method that was called, slowest (by p99) first.
+     */
+    public String getStatisticsSummary() {
+        if (!enabled) {
+            return "Remote method metrics are disabled (metrics.enabled=false).\n";
+        }
+        List<MethodStats> called = new ArrayList<>();
+        for (MethodStats stats : methods.values()) {
+            if (stats.getCalls() > 0 || stats.getInFlight() > 0) {
+                called.add(stats);
+            }
+        }
+        called.sort(Comparator.comparingDouble(MethodStats::getP99Millis).reversed());
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%-68s %9s %7s %6s %9s %8s %8s %8s %8s %9s%n",
+                "method", "calls", "errors", "busy", "calls/s", "mean ms", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (MethodStats stats : called) {
+            summary.append(String.format("%-68s %9d %7d %6d %9.1f %8.3f %8.3f %8.3f %8.3f %9.3f%n",
+                    stats.getInterfaceName() + "." + stats.getMethodName(), stats.getCalls(), stats.getErrors(),
+                    stats.getInFlight(), stats.getCallsPerSecond(), stats.getMeanMillis(), stats.getP50Millis(),
+                    stats.getP99Millis(), stats.getP999Millis(), stats.getMaxMillis()));
+        }
+        return summary.toString();
+    }
+
+    private MethodStats statsFor(Method method, Class<?> remoteInterface) {
+        MethodStats stats = methods.get(method);
+        if (stats == null) {
+            stats = methods.computeIfAbsent(method, m -> {
+                MethodStats created = new MethodStats(remoteInterface.getSimpleName(), describe(m, remoteInterface));
+                register(created);
+                return created;
+            });
+        }
+        return stats;
+    }
+
+    /**
+     * Names a method; overloaded methods get their parameter types, e.g. browseProducts(ProductFilter,ProductSort,String,int).
+     */
+    private static String describe(Method method, Class<?> remoteInterface) {
+        int overloads = 0;
+        for (Method candidate : remoteInterface.getMethods()) {
+            if (candidate.getName().equals(method.getName())) {
+                overloads++;
+            }
+        }
+        if (overloads < 2) {
+            return method.getName();
+        }
+        StringBuilder name = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameters = method.getParameterTypes();
+        for (int i = 0; i < parameters.length; i++) {
+            name.append(i > 0 ? "," : "").append(parameters[i].getSimpleName());
+        }
+        return name.append(')').toString();
+    }
+
+    private static void register(MethodStats stats) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("RMIOnlineStore:type=RemoteMethod,interface=" + stats.getInterfaceName()
+                    + ",method=" + ObjectName.quote(stats.getMethodName()));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new StandardMBean(stats, RemoteMethodMBean.class), name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register the metrics MBean for " + stats.getMethodName() + ": " + e.getMessage());
+        }
+    }
+
+    private final class TimingHandler implements InvocationHandler {
+        private final Object target;
+        private final Class<?> remoteInterface;
+
+        TimingHandler(Object target, Class<?> remoteInterface) {
+            this.target = target;
+            this.remoteInterface = remoteInterface;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeTarget(method, args);
+            }
+            MethodStats stats = statsFor(method, remoteInterface);
+            stats.inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                return invokeTarget(method, args);
+            } catch (Throwable e) {
+                stats.errors.increment();
+                throw e;
+            } finally {
+                stats.latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                stats.inFlight.decrementAndGet();
+            }
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package server;
+
+import common.Customer;
+import common.Order;
+import common.OrderItem;
+import common.Product;
+import server.storage.DailyFigure;
+import server.storage.SalesFigure;
+import server.storage.StorageEngine;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Answers the sales report questions (best and least sellers, top customers, turnover) for any
+ * range of days from per-day aggregates kept in memory, instead of rescanning the order history.
+ * Each UTC day holds the units sold per product (orders of any status) and the spending per
+ * customer and turnover of delivered orders. The buckets are built from storage on first use,
+ * updated as orders are placed and change status, and rebuilt every report.rebuildIntervalMs to
+ * correct drift. Updates that arrive while a rebuild runs are recorded and replayed onto the new
+ * buckets before they are swapped in, so they are not lost; an order committed just before the
+ * rebuild's queries ran may then be counted twice until the next rebuild.
+ */
+public final class ReportService {
+
+    private static final class Day {
+        final Map<Integer, AtomicLong> unitsByProduct = new ConcurrentHashMap<>();
+        final Map<Integer, AtomicLong> spendingCentsByCustomer = new ConcurrentHashMap<>();
+        final AtomicLong turnoverCents = new AtomicLong();
+    }
+
+    private final StorageEngine storage;
+    private final CatalogCache catalog;
+    private final Map<Integer, String> customerNames = new ConcurrentHashMap<>();
+    private volatile ConcurrentSkipListMap<Long, Day> days; // Keyed by epoch day; null until first built.
+    // Guards the swap of days against updates, and the updates recorded while a rebuild runs (null otherwise).
+    private final Object updateLock = new Object();
+    private List<Consumer<ConcurrentSkipListMap<Long, Day>>> duringRebuild;
+    private final ScheduledExecutorService rebuilder;
+
+    public ReportService(StorageEngine storage, CatalogCache catalog, ServerConfig config) {
+        this.storage = storage;
+        this.catalog = catalog;
+        long interval = config.getLong("report.rebuildIntervalMs", 21_600_000L);
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "report-rebuilder");
+            t.setDaemon(true);
+            return t;
+        });
+        rebuilder.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (SQLException e) {
+                System.err.println("Rebuilding the report buckets failed: " + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rebuilds all day buckets from storage and swaps them in.
+     */
+    public synchronized void rebuild() throws SQLException {
+        synchronized (updateLock) {
+            duringRebuild = new ArrayList<>();
+        }
+        try {
+            ConcurrentSkipListMap<Long, Day> fresh = new ConcurrentSkipListMap<>();
+            for (DailyFigure figure : storage.orders().findDailyUnitsSold()) {
+                day(fresh, figure.getEpochDay()).unitsByProduct
+                        .computeIfAbsent(figure.getId(), k -> new AtomicLong())
+                        .addAndGet(Math.round(figure.getValue()));
+            }
+            for (DailyFigure figure : storage.orders().findDailyDeliveredSpending()) {
+                long cents = toCents(figure.getValue());
+                Day day = day(fresh, figure.getEpochDay());
+                day.spendingCentsByCustomer.computeIfAbsent(figure.getId(), k -> new AtomicLong()).addAndGet(cents);
+                day.turnoverCents.addAndGet(cents);
+            }
+            synchronized (updateLock) {
+                duringRebuild.forEach(update -> update.accept(fresh));
+                days = fresh;
+            }
+        } finally {
+            synchronized (updateLock) {
+                duringRebuild = null;
+            }
+        }
+    }
+
+    // --- Updates ---
+
+    /**
+     * Adds the units of a newly placed order. The order must include its items.
+     */
+    public void orderPlaced(Order order) {
+        apply(buckets -> {
+            Day day = day(buckets, epochDay(order.getOrderDate()));
+            for (OrderItem item : order.getItems()) {
+                day.unitsByProduct.computeIfAbsent(item.getProductId(), k -> new AtomicLong()).addAndGet(item.getQuantity());
+            }
+        });
+    }
+
+    /**
+     * Adds or removes the order's spending when it enters or leaves the DELIVERED status.
+     */
+    public void orderStatusChanged(Order order, Order.Status oldStatus, Order.Status newStatus) {
+        boolean wasDelivered = oldStatus == Order.Status.DELIVERED;
+        boolean isDelivered = newStatus == Order.Status.DELIVERED;
+        if (wasDelivered == isDelivered) {
+            return;
+        }
+        long cents = isDelivered ? toCents(order.getTotalAmount()) : -toCents(order.getTotalAmount());
+        apply(buckets -> {
+            Day day = day(buckets, epochDay(order.getOrderDate()));
+            day.spendingCentsByCustomer.computeIfAbsent(order.getCustomerId(), k -> new AtomicLong()).addAndGet(cents);
+            day.turnoverCents.addAndGet(cents);
+        });
+    }
+
+    /**
+     * Applies an update to the current buckets, and records it for the new ones if a rebuild is running.
+     * Before the first build there is nothing to update; that build reads the change from storage.
+     */
+    private void apply(Consumer<ConcurrentSkipListMap<Long, Day>> update) {
+        synchronized (updateLock) {
+            if (duringRebuild != null) {
+                duringRebuild.add(update);
+            }
+            ConcurrentSkipListMap<Long, Day> current = days;
+            if (current != null) {
+                update.accept(current);
+            }
+        }
+    }
+
+    // --- Queries; from is inclusive, to is exclusive, and null leaves that end open ---
+
+    /**
+     * Returns the products with the most units sold, by product name.
+     */
+    public List<SalesFigure> findBestSellers(LocalDate from, LocalDate to, int limit) throws SQLException {
+        List<SalesFigure> ranking = rankByName(unitsSoldByName(from, to, false));
+        return ranking.subList(0, Math.min(limit, ranking.size()));
+    }
+
+    /**
+     * Returns the products with the fewest units sold, by product name, including products that sold nothing.
+     */
+    public List<SalesFigure> findLeastSellers(LocalDate from, LocalDate to, int limit) throws SQLException {
+        List<SalesFigure> ranking = rankByName(unitsSoldByName(from, to, true));
+        List<SalesFigure> least = new ArrayList<>(ranking.subList(Math.max(0, ranking.size() - limit), ranking.size()));
+        least.sort(Comparator.comparingDouble(SalesFigure::getValue));
+        return least;
+    }
+
+    /**
+     * Returns the customers who spent the most on delivered orders, by customer name.
+     */
+    public List<SalesFigure> findTopCustomers(LocalDate from, LocalDate to, int limit) throws SQLException {
+        Map<Integer, Long> cents = new HashMap<>();
+        for (Day day : window(from, to).values()) {
+            day.spendingCentsByCustomer.forEach((customerId, value) -> cents.merge(customerId, value.get(), Long::sum));
+        }
+        Map<String, Double> byName = new HashMap<>();
+        for (Map.Entry<Integer, Long> entry : cents.entrySet()) {
+            if (entry.getValue() != 0) {
+                byName.merge(customerName(entry.getKey()), entry.getValue() / 100.0, Double::sum);
+            }
+        }
+        List<SalesFigure> ranking = rankByName(byName);
+        return ranking.subList(0, Math.min(limit, ranking.size()));
+    }
+
+    /**
+     * Returns the revenue of delivered orders placed in the window.
+     */
+    public double getTurnover(LocalDate from, LocalDate to) throws SQLException {
+        long cents = 0;
+        for (Day day : window(from, to).values()) {
+            cents += day.turnoverCents.get();
+        }
+        return cents / 100.0;
+    }
+
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * Returns the UTC day of a point in time.
+     */
+    public static LocalDate utcDay(Date date) {
+        return LocalDate.ofEpochDay(epochDay(date));
+    }
+
+    // --- Helpers ---
+
+    private NavigableMap<Long, Day> window(LocalDate from, LocalDate to) throws SQLException {
+        ConcurrentSkipListMap<Long, Day> current = days;
+        if (current == null) {
+            synchronized (this) {
+                if (days == null) {
+                    rebuild();
+                }
+                current = days;
+            }
+        }
+        NavigableMap<Long, Day> window = current;
+        if (from != null) {
+            window = window.tailMap(from.toEpochDay(), true);
+        }
+        if (to != null) {
+            window = window.headMap(to.toEpochDay(), false);
+        }
+        return window;
+    }
+
+    private Map<String, Double> unitsSoldByName(LocalDate from, LocalDate to, boolean includeUnsold) throws SQLException {
+        Map<Integer, Long> units = new HashMap<>();
+        for (Day day : window(from, to).values()) {
+            day.unitsByProduct.forEach((productId, value) -> units.merge(productId, value.get(), Long::sum));
+        }
+        Map<String, Double> byName = new HashMap<>();
+        if (includeUnsold) {
+            for (Product product : catalog.getAllProducts()) {
+                byName.put(product.getName(), 0.0);
+            }
+        }
+        for (Map.Entry<Integer, Long> entry : units.entrySet()) {
+            Product product = catalog.getProduct(entry.getKey());
+            if (product != null) {
+                byName.merge(product.getName(), (double) entry.getValue(), Double::sum);
+            }
+        }
+        return byName;
+    }
+
+    private static List<SalesFigure> rankByName(Map<String, Double> values) {
+        List<SalesFigure> ranking = new ArrayList<>(values.size());
+        values.forEach((name, value) -> ranking.add(new SalesFigure(name, value)));
+        ranking.sort(Comparator.comparingDouble(SalesFigure::getValue).reversed().thenComparing(SalesFigure::getName));
+        return ranking;
+    }
+
+    private String customerName(int customerId) throws SQLException {
+        String name = customerNames.get(customerId);
+        if (name == null) {
+            Customer customer = storage.customers().findById(customerId);
+            name = customer != null ? customer.getName() : "Customer #" + customerId;
+            customerNames.put(customerId, name);
+        }
+        return name;
+    }
+
+    private static Day day(ConcurrentSkipListMap<Long, Day> days, long epochDay) {
+        return days.computeIfAbsent(epochDay, k -> new Day());
+    }
+
+    private static long epochDay(Date date) {
+        return date.toInstant().atZone(ZoneOffset.UTC).toLocalDate().toEpochDay();
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+}
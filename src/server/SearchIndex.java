@@ -0,0 +1,628 @@
+package server;
+
+import common.CatalogChange;
+import common.Product;
+import common.ProductFilter;
+import common.SearchResult;
+import server.storage.ProductCursor;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * An in-memory search index over the products shown to customers.
+ *
+ * Every product gets a slot number, in the order the products were added; a slot is never reused. The words
+ * of a product's name, description, category, brand, size and color are kept in an inverted index: for each
+ * word, the sorted slots of the products containing it, with the fields it occurs in. A query matches the
+ * products that contain all of its words (the last word may also be the start of a word, for
+ * search-as-you-type). Matches are ranked by where the words occur, name before category, brand, size or
+ * color before description, and then in slot order, which is the order of the product IDs.
+ *
+ * Queries run on BitSets of slots. Each word has one set per field weight, and these are intersected into
+ * one set per score. Each value of the category, brand, size and color facets, each fixed price range and
+ * the in-stock products also have a set. Facets are counted with word-wise intersections of these sets with
+ * the matches, so large result sets are counted without visiting each match. Only a price filter is
+ * checked product by product, and a page only visits the matches it returns.
+ *
+ * The index is built from the CatalogCache on first use. Catalog changes only mark the products as
+ * dirty (the listener runs under the cache's write lock and must be cheap); the next search re-reads them
+ * from the cache. A product is marked after the cache changed it, so re-reading always sees that change.
+ */
+public final class SearchIndex {
+
+    // The fields a word occurs in, stored in the low bits of a postings entry.
+    private static final int NAME = 1;
+    private static final int ATTRIBUTE = 2; // Category, brand, size or color.
+    private static final int DESCRIPTION = 4;
+    private static final int FIELD_BITS = 3;
+    // The score a word adds for the best field it occurs in, highest first; parallel to the field bits above.
+    private static final int[] WEIGHTS = {4, 2, 1};
+
+    private static final double[] PRICE_BOUNDS = {25, 50, 100, 200};
+    private static final String[] PRICE_RANGES = {"Under 25", "25 - 50", "50 - 100", "100 - 200", "200 and over"};
+
+    private static final String CURSOR_VERSION = "1";
+
+    /**
+     * The slots of the products containing one word, sorted, each entry being slot << FIELD_BITS | fields.
+     */
+    private static final class Postings {
+        int[] entries = new int[4];
+        int size;
+        // The slots by best field (see WEIGHTS), cached for frequent words; null when not cached or out of date.
+        volatile BitSet[] byWeight;
+
+        void add(int entry) {
+            int at = lowerBound(entry);
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            System.arraycopy(entries, at, entries, at + 1, size - at);
+            entries[at] = entry;
+            size++;
+            byWeight = null;
+        }
+
+        void remove(int slot) {
+            int at = lowerBound(slot << FIELD_BITS);
+            if (at < size && entries[at] >>> FIELD_BITS == slot) {
+                System.arraycopy(entries, at + 1, entries, at, size - at - 1);
+                size--;
+                byWeight = null;
+            }
+        }
+
+        private int lowerBound(int key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (entries[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Adds the slots to the sets of the best field they contain the word in (see WEIGHTS).
+         */
+        void addTo(BitSet[] sets) {
+            for (int i = 0; i < size; i++) {
+                int fields = entries[i] & ((1 << FIELD_BITS) - 1);
+                int best = (fields & NAME) != 0 ? 0 : (fields & ATTRIBUTE) != 0 ? 1 : 2;
+                sets[best].set(entries[i] >>> FIELD_BITS);
+            }
+        }
+    }
+
+    /**
+     * One filterable attribute: the distinct values, a BitSet of slots per value and the value of each slot.
+     */
+    private static final class Facet {
+        final String name;
+        final Function<Product, String> attribute;
+        final Map<String, Integer> ordinals = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+        final List<BitSet> slotsByOrdinal = new ArrayList<>();
+        int[] ordinalBySlot = new int[1024]; // -1 for no value.
+        volatile long[][] words; // slotsByOrdinal as long arrays, for counting; null when out of date.
+
+        Facet(String name, Function<Product, String> attribute) {
+            this.name = name;
+            this.attribute = attribute;
+        }
+
+        void add(int slot, Product product) {
+            String value = attribute.apply(product);
+            int ordinal = -1;
+            if (value != null) {
+                ordinal = ordinals.computeIfAbsent(value, v -> {
+                    values.add(v);
+                    slotsByOrdinal.add(new BitSet());
+                    return values.size() - 1;
+                });
+                slotsByOrdinal.get(ordinal).set(slot);
+            }
+            words = null;
+            if (slot >= ordinalBySlot.length) {
+                ordinalBySlot = Arrays.copyOf(ordinalBySlot, Math.max(slot + 1, ordinalBySlot.length * 2));
+            }
+            ordinalBySlot[slot] = ordinal;
+        }
+
+        void remove(int slot) {
+            int ordinal = ordinalBySlot[slot];
+            if (ordinal >= 0) {
+                slotsByOrdinal.get(ordinal).clear(slot);
+            }
+            ordinalBySlot[slot] = -1;
+            words = null;
+        }
+
+        long[][] words() {
+            long[][] current = words;
+            if (current == null) {
+                current = toWords(slotsByOrdinal);
+                words = current; // Racing readers compute the same arrays.
+            }
+            return current;
+        }
+
+        /**
+         * Returns the slots with the given value: null if no value is asked for, empty if the value is unknown.
+         */
+        BitSet slotsWith(String value) {
+            if (value == null) {
+                return null;
+            }
+            Integer ordinal = ordinals.get(value);
+            return ordinal != null ? slotsByOrdinal.get(ordinal) : new BitSet();
+        }
+    }
+
+    private final CatalogCache catalog;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet(); // Product IDs changed since they were indexed.
+    private volatile boolean built;
+
+    // Guarded by lock.
+    private final Map<Integer, Integer> slotByProductId = new HashMap<>();
+    private int slotCount; // Slots handed out; removed products leave their slot empty.
+    private final BitSet usedSlots = new BitSet();
+    private Product[] productBySlot = new Product[1024];
+    private double[] priceBySlot = new double[1024];
+    private final List<BitSet> slotsByPriceRange = new ArrayList<>();
+    private volatile long[][] priceRangeWords; // slotsByPriceRange as long arrays; null when out of date.
+    private final BitSet inStock = new BitSet();
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    private final Facet[] facets = {
+            new Facet("category", Product::getCategory),
+            new Facet("brand", Product::getBrand),
+            new Facet("size", Product::getSize),
+            new Facet("color", Product::getColor),
+    };
+
+    public SearchIndex(CatalogCache catalog) {
+        this.catalog = catalog;
+        for (int range = 0; range < PRICE_RANGES.length; range++) {
+            slotsByPriceRange.add(new BitSet());
+        }
+        catalog.addChangeListener(this::catalogChanged);
+    }
+
+    private void catalogChanged(CatalogChange change) {
+        for (int productId : change.getProductIds()) {
+            dirty.add(productId);
+        }
+    }
+
+    /**
+     * Returns one page of the products matching a query, best matches first.
+     * @param query Words to look for; null or blank matches every product that passes the filter.
+     * @param filter The facet, price and stock criteria, or null for none.
+     * @param cursor The next cursor of the previous page, or null for the first page.
+     * @param pageSize The maximum number of products on the page (capped like product pages).
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public SearchResult search(String query, ProductFilter filter, String cursor, int pageSize) throws SQLException {
+        int size = ProductCursor.pageSize(pageSize);
+        long after = decodeCursor(cursor);
+        ProductFilter criteria = filter != null ? filter : new ProductFilter();
+        List<String> terms = tokenize(query);
+        update();
+        lock.readLock().lock();
+        try {
+            return evaluate(terms, criteria, after, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the index on first use and re-indexes the products changed since the last search.
+     */
+    private void update() throws SQLException {
+        if (built && dirty.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                // Changes from here on are marked again, so clearing first cannot lose one.
+                dirty.clear();
+                for (Product product : catalog.getVisibleProducts()) { // By ID.
+                    index(product, slotCount++);
+                }
+                built = true;
+            }
+            for (Integer productId : dirty) {
+                dirty.remove(productId); // Before reading, so a change made meanwhile is marked again.
+                Product product = catalog.getProduct(productId);
+                reindex(productId, product != null && product.getCategory() != null ? product : null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- Indexing, with the write lock held ---
+
+    /**
+     * Brings one product up to date; product is null if it was deleted or is no longer shown to customers.
+     */
+    private void reindex(int productId, Product product) {
+        Integer slot = slotByProductId.get(productId);
+        if (slot == null) {
+            if (product != null) {
+                index(product, slotCount++);
+            }
+            return;
+        }
+        Product indexed = productBySlot[slot];
+        if (product != null && sameText(indexed, product)) {
+            // Only the price or stock changed (checkouts, mostly): no words or facets to touch.
+            setPriceAndStock(slot, product);
+            productBySlot[slot] = product;
+            return;
+        }
+        unindex(slot);
+        if (product != null) {
+            index(product, slot); // An edited product keeps its slot, and so its place among equal matches.
+        } else {
+            slotByProductId.remove(productId);
+        }
+    }
+
+    private void index(Product product, int slot) {
+        if (slot >= productBySlot.length) {
+            int capacity = Math.max(slot + 1, productBySlot.length * 2);
+            productBySlot = Arrays.copyOf(productBySlot, capacity);
+            priceBySlot = Arrays.copyOf(priceBySlot, capacity);
+        }
+        usedSlots.set(slot);
+        productBySlot[slot] = product;
+        setPriceAndStock(slot, product);
+        slotByProductId.put(product.getId(), slot);
+        for (Map.Entry<String, Integer> word : fieldsByWord(product).entrySet()) {
+            words.computeIfAbsent(word.getKey(), w -> new Postings()).add(slot << FIELD_BITS | word.getValue());
+        }
+        for (Facet facet : facets) {
+            facet.add(slot, product);
+        }
+    }
+
+    private void setPriceAndStock(int slot, Product product) {
+        int range = priceRange(product.getPrice());
+        if (!slotsByPriceRange.get(range).get(slot)) {
+            clearPriceAndStock(slot);
+            slotsByPriceRange.get(range).set(slot);
+            priceRangeWords = null;
+        }
+        priceBySlot[slot] = product.getPrice();
+        inStock.set(slot, product.getStockQuantity() > 0);
+    }
+
+    private void clearPriceAndStock(int slot) {
+        for (BitSet slots : slotsByPriceRange) {
+            if (slots.get(slot)) {
+                slots.clear(slot);
+                priceRangeWords = null;
+            }
+        }
+        inStock.clear(slot);
+    }
+
+    private void unindex(int slot) {
+        for (String word : fieldsByWord(productBySlot[slot]).keySet()) {
+            Postings postings = words.get(word);
+            postings.remove(slot);
+            if (postings.size == 0) {
+                words.remove(word);
+            }
+        }
+        for (Facet facet : facets) {
+            facet.remove(slot);
+        }
+        clearPriceAndStock(slot);
+        productBySlot[slot] = null;
+        usedSlots.clear(slot);
+    }
+
+    private static boolean sameText(Product a, Product b) {
+        return Objects.equals(a.getName(), b.getName()) && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getCategory(), b.getCategory()) && Objects.equals(a.getBrand(), b.getBrand())
+                && Objects.equals(a.getSize(), b.getSize()) && Objects.equals(a.getColor(), b.getColor());
+    }
+
+    private static Map<String, Integer> fieldsByWord(Product product) {
+        Map<String, Integer> fields = new HashMap<>();
+        addWords(fields, product.getName(), NAME);
+        addWords(fields, product.getDescription(), DESCRIPTION);
+        addWords(fields, product.getCategory(), ATTRIBUTE);
+        addWords(fields, product.getBrand(), ATTRIBUTE);
+        addWords(fields, product.getSize(), ATTRIBUTE);
+        addWords(fields, product.getColor(), ATTRIBUTE);
+        return fields;
+    }
+
+    private static void addWords(Map<String, Integer> fields, String text, int field) {
+        for (String word : tokenize(text)) {
+            fields.merge(word, field, (a, b) -> a | b);
+        }
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean inWord = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // --- Querying, with the read lock held ---
+
+    private SearchResult evaluate(List<String> terms, ProductFilter filter, long after, int pageSize) {
+        // Start from every product that passes the facet and stock filters: one BitSet intersection per filter.
+        BitSet candidates = (BitSet) usedSlots.clone();
+        String[] filterValues = {filter.getCategory(), filter.getBrand(), filter.getSize(), filter.getColor()};
+        for (int f = 0; f < facets.length; f++) {
+            BitSet withValue = facets[f].slotsWith(filterValues[f]);
+            if (withValue != null) {
+                candidates.and(withValue);
+            }
+        }
+        if (filter.isInStockOnly()) {
+            candidates.and(inStock);
+        }
+
+        // Split the candidates by score, one word at a time: score -> slots.
+        TreeMap<Integer, BitSet> byScore = new TreeMap<>();
+        byScore.put(0, candidates);
+        for (int i = 0; i < terms.size() && !byScore.isEmpty(); i++) {
+            String term = terms.get(i);
+            BitSet[] termSlots = slotsByWeight(term, i == terms.size() - 1 && term.length() >= 2);
+            TreeMap<Integer, BitSet> next = new TreeMap<>();
+            for (Map.Entry<Integer, BitSet> level : byScore.entrySet()) {
+                for (int w = 0; w < WEIGHTS.length; w++) {
+                    if (!level.getValue().intersects(termSlots[w])) {
+                        continue;
+                    }
+                    BitSet matched = (BitSet) level.getValue().clone();
+                    matched.and(termSlots[w]);
+                    BitSet existing = next.putIfAbsent(level.getKey() + WEIGHTS[w], matched);
+                    if (existing != null) {
+                        existing.or(matched);
+                    }
+                }
+            }
+            byScore = next;
+        }
+        if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+            // Arbitrary bounds: the only filter checked product by product, so after the words narrowed the matches.
+            double minPrice = filter.getMinPrice() != null ? filter.getMinPrice() : Double.NEGATIVE_INFINITY;
+            double maxPrice = filter.getMaxPrice() != null ? filter.getMaxPrice() : Double.POSITIVE_INFINITY;
+            double[] prices = priceBySlot;
+            for (BitSet level : byScore.values()) {
+                for (int slot = level.nextSetBit(0); slot >= 0; slot = level.nextSetBit(slot + 1)) {
+                    if (prices[slot] < minPrice || prices[slot] > maxPrice) {
+                        level.clear(slot);
+                    }
+                }
+            }
+        }
+
+        // Count the facets of all matches with word-wise intersections instead of visiting each match.
+        BitSet matches = new BitSet();
+        for (BitSet level : byScore.values()) {
+            matches.or(level);
+        }
+        long[] matchWords = matches.toLongArray();
+        Map<String, Map<String, Integer>> facetCounts = new LinkedHashMap<>();
+        for (Facet facet : facets) {
+            facetCounts.put(facet.name, counts(matchWords, facet.words(), facet.values));
+        }
+        long[][] rangeWords = priceRangeWords;
+        if (rangeWords == null) {
+            rangeWords = toWords(slotsByPriceRange);
+            priceRangeWords = rangeWords; // Racing readers compute the same arrays.
+        }
+        Map<String, Integer> priceCounts = new LinkedHashMap<>();
+        for (int range = 0; range < PRICE_RANGES.length; range++) {
+            int count = countAnd(matchWords, rangeWords[range]);
+            if (count > 0) {
+                priceCounts.put(PRICE_RANGES[range], count);
+            }
+        }
+        facetCounts.put("price", priceCounts);
+
+        // Visit the matches in rank order from the cursor on, only as far as the page reaches.
+        int afterScore = (int) (after >>> 32);
+        int afterSlot = after == Long.MAX_VALUE ? -1 : slotOf(after);
+        List<Product> page = new ArrayList<>(pageSize);
+        long lastRank = 0;
+        boolean morePages = false;
+        for (Map.Entry<Integer, BitSet> level : byScore.descendingMap().entrySet()) {
+            int score = level.getKey();
+            if (after != Long.MAX_VALUE && score > afterScore) {
+                continue; // Entirely on earlier pages.
+            }
+            BitSet slots = level.getValue();
+            int from = after != Long.MAX_VALUE && score == afterScore ? afterSlot + 1 : 0;
+            for (int slot = slots.nextSetBit(from); slot >= 0 && !morePages; slot = slots.nextSetBit(slot + 1)) {
+                if (page.size() < pageSize) {
+                    page.add(productBySlot[slot]);
+                    lastRank = rank(score, slot);
+                } else {
+                    morePages = true;
+                }
+            }
+            if (morePages) {
+                break;
+            }
+        }
+        return new SearchResult(page, matches.cardinality(), facetCounts, morePages ? encodeCursor(lastRank) : null);
+    }
+
+    /**
+     * Returns the number of matches per value, most frequent first, leaving out values without matches.
+     */
+    private static Map<String, Integer> counts(long[] matchWords, long[][] valueWords, List<String> values) {
+        int[] counts = new int[valueWords.length];
+        List<Integer> ordinals = new ArrayList<>();
+        for (int ordinal = 0; ordinal < valueWords.length; ordinal++) {
+            counts[ordinal] = countAnd(matchWords, valueWords[ordinal]);
+            if (counts[ordinal] > 0) {
+                ordinals.add(ordinal);
+            }
+        }
+        ordinals.sort((x, y) -> Integer.compare(counts[y], counts[x]));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int ordinal : ordinals) {
+            result.put(values.get(ordinal), counts[ordinal]);
+        }
+        return result;
+    }
+
+    private static int countAnd(long[] a, long[] b) {
+        int count = 0;
+        for (int i = 0, n = Math.min(a.length, b.length); i < n; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    private static long[][] toWords(List<BitSet> sets) {
+        long[][] words = new long[sets.size()][];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = sets.get(i).toLongArray();
+        }
+        return words;
+    }
+
+    /**
+     * Returns the slots containing a word (or, for a prefix, any word starting with it), by the weight of
+     * the best field they contain it in. Each slot is in exactly one of the sets.
+     */
+    private BitSet[] slotsByWeight(String term, boolean prefix) {
+        if (!prefix) {
+            Postings postings = words.get(term);
+            return postings != null ? bitSets(postings) : new BitSet[]{new BitSet(), new BitSet(), new BitSet()};
+        }
+        BitSet[] union = {new BitSet(slotCount), new BitSet(slotCount), new BitSet(slotCount)};
+        for (Postings postings : words.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            BitSet[] cached = postings.byWeight;
+            if (cached == null && isFrequent(postings)) {
+                cached = bitSets(postings);
+            }
+            if (cached == null) {
+                postings.addTo(union); // A short prefix can have thousands of rare completions.
+                continue;
+            }
+            for (int w = 0; w < union.length; w++) {
+                union[w].or(cached[w]);
+            }
+        }
+        // A product matching several completions counts with its best field only.
+        union[1].andNot(union[0]);
+        union[2].andNot(union[0]);
+        union[2].andNot(union[1]);
+        return union;
+    }
+
+    private BitSet[] bitSets(Postings postings) {
+        BitSet[] cached = postings.byWeight;
+        if (cached != null) {
+            return cached;
+        }
+        BitSet[] sets = {new BitSet(), new BitSet(), new BitSet()};
+        postings.addTo(sets);
+        if (isFrequent(postings)) {
+            postings.byWeight = sets; // Racing readers compute the same sets.
+        }
+        return sets;
+    }
+
+    /**
+     * Frequent words keep their BitSets, which are then no larger than their postings; rare words are cheap to convert.
+     */
+    private boolean isFrequent(Postings postings) {
+        return postings.size * 32L >= slotCount;
+    }
+
+    private static int priceRange(double price) {
+        int range = 0;
+        while (range < PRICE_BOUNDS.length && price >= PRICE_BOUNDS[range]) {
+            range++;
+        }
+        return range;
+    }
+
+    // --- Ranks and cursors ---
+
+    /**
+     * Orders matches by score, highest first, then by slot, lowest first: a higher rank comes earlier.
+     */
+    private static long rank(int score, int slot) {
+        return (long) score << 32 | (Integer.MAX_VALUE - slot);
+    }
+
+    private static int slotOf(long rank) {
+        return Integer.MAX_VALUE - (int) (rank & 0xFFFFFFFFL);
+    }
+
+    private static String encodeCursor(long rank) {
+        String raw = CURSOR_VERSION + "|" + rank;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the rank of the last product of the previous page; every rank is below Long.MAX_VALUE.
+     */
+    private static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+            if (parts.length != 2 || !CURSOR_VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Unsupported cursor version.");
+            }
+            return Long.parseLong(parts[1]);
+        } catch (IllegalArgumentException e) { // Also covers NumberFormatException and bad Base64.
+            throw new IllegalArgumentException("Invalid search cursor.", e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package server;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Holds the server's runtime configuration.
+ * Settings are read once from a properties file (by default "server.properties" in the working
+ * directory, or the path given with -Dstore.config=...). Any key can also be overridden with a
+ * JVM system property of the same name, e.g. -Ddb.password=secret.
+ */
+public final class ServerConfig {
+
+    private static final String CONFIG_PATH_PROPERTY = "store.config";
+    private static final String DEFAULT_CONFIG_FILE = "server.properties";
+
+    private static volatile ServerConfig instance;
+
+    private final Properties properties;
+
+    private ServerConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the process-wide configuration, loading it on first use.
+     */
+    public static ServerConfig get() {
+        ServerConfig config = instance;
+        if (config == null) {
+            synchronized (ServerConfig.class) {
+                config = instance;
+                if (config == null) {
+                    config = load();
+                    instance = config;
+                }
+            }
+        }
+        return config;
+    }
+
+    private static ServerConfig load() {
+        Properties properties = new Properties();
+        Path path = Paths.get(System.getProperty(CONFIG_PATH_PROPERTY, DEFAULT_CONFIG_FILE));
+        if (Files.isRegularFile(path)) {
+            try (InputStream in = new FileInputStream(path.toFile())) {
+                properties.load(in);
+                System.out.println("Loaded server configuration from " + path.toAbsolutePath());
+            } catch (IOException e) {
+                System.err.println("Could not read " + path + ", using defaults: " + e.getMessage());
+            }
+        } else {
+            System.out.println("No configuration file found at " + path.toAbsolutePath() + ", using defaults.");
+        }
+        return new ServerConfig(properties);
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for '" + key + "': " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for '" + key + "': " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+}
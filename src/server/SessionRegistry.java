@@ -0,0 +1,228 @@
+package server;
+
+import common.IUserSession;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the customer sessions handed out by the factory and ends them explicitly.
+ * A session is otherwise only released when RMI's distributed GC notices that its client is gone, and
+ * an abandoned session keeps its cart, its stock holds and its RMI object table entry until then.
+ * Carts are saved by the {@link CartStore}, so ending a session does not lose its cart.
+ * The registry ends a session on logout, when it has been idle for session.idleTimeoutMs, or when its
+ * user opens more than session.maxPerUser sessions (the least recently used one goes). Ending a session
+ * releases its holds and unexports it, so later calls on its stub fail with NoSuchObjectException.
+ * When session.maxTotal sessions are open, idle ones are expired first; if none can be, the login is refused.
+ */
+public final class SessionRegistry {
+
+    // Rough heap cost of a session: the session and its proxy, the cart map and holds, and the RMI
+    // object table entry; plus the cost per cart line (map node, boxed keys and values, the hold).
+    static final long SESSION_BYTES = 2_048;
+    static final long CART_LINE_BYTES = 160;
+
+    private static final class Entry {
+        final UserSessionImpl session;
+        final IUserSession exported; // The metrics proxy, or the session itself.
+
+        Entry(UserSessionImpl session, IUserSession exported) {
+            this.session = session;
+            this.exported = exported;
+        }
+    }
+
+    private final int maxPerUser;
+    private final int maxTotal;
+    private final long idleTimeoutMillis;
+    private final Consumer<String> lastSessionEnded; // Called with the username when a user has no session left.
+
+    // Guarded by this: the open sessions, and the same entries per user, least recently opened first.
+    private final Map<UserSessionImpl, Entry> sessions = new IdentityHashMap<>();
+    private final Map<String, Deque<Entry>> byUser = new HashMap<>();
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder loggedOut = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final ScheduledExecutorService sweeper;
+
+    public SessionRegistry(ServerConfig config, Consumer<String> lastSessionEnded) {
+        this.maxPerUser = Math.max(1, config.getInt("session.maxPerUser", 5));
+        this.maxTotal = Math.max(1, config.getInt("session.maxTotal", 10_000));
+        this.idleTimeoutMillis = config.getLong("session.idleTimeoutMs", 900_000L);
+        this.lastSessionEnded = lastSessionEnded;
+        long sweepInterval = config.getLong("session.sweepIntervalMs", 60_000L);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::expireIdleSessions, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers a new, exported session. Ends the user's least recently used session if the user
+     * is over the per-user cap.
+     * @throws IllegalStateException if the server is at its session cap; the session is ended then.
+     */
+    public void register(UserSessionImpl session, IUserSession exported) {
+        Entry entry = new Entry(session, exported);
+        if (size() >= maxTotal) {
+            expireIdleSessions();
+        }
+        List<Entry> toEnd = new ArrayList<>();
+        boolean refused = false;
+        synchronized (this) {
+            if (sessions.size() >= maxTotal) {
+                refused = true;
+            } else {
+                sessions.put(session, entry);
+                Deque<Entry> userSessions = byUser.computeIfAbsent(session.getUsername(), u -> new ArrayDeque<>());
+                userSessions.addLast(entry);
+                while (userSessions.size() > maxPerUser) {
+                    Entry oldest = leastRecentlyUsed(userSessions);
+                    userSessions.remove(oldest);
+                    sessions.remove(oldest.session);
+                    toEnd.add(oldest);
+                }
+                opened.increment();
+            }
+        }
+        if (refused) {
+            end(entry);
+            throw new IllegalStateException("The server has too many open sessions; please try again later.");
+        }
+        for (Entry oldest : toEnd) {
+            evicted.increment();
+            System.out.println("Session limit reached for " + oldest.session.getUsername() + ", closing the least recently used session.");
+            end(oldest);
+        }
+    }
+
+    /**
+     * Ends a session on logout. Has no effect if the session has already ended.
+     */
+    public void logout(UserSessionImpl session) {
+        Entry entry = remove(session);
+        if (entry != null) {
+            loggedOut.increment();
+            end(entry);
+        }
+    }
+
+    /**
+     * Ends every session that has not been used for session.idleTimeoutMs.
+     */
+    void expireIdleSessions() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        List<Entry> idle = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : sessions.values()) {
+                if (entry.session.getLastAccess() < cutoff) {
+                    idle.add(entry);
+                }
+            }
+        }
+        for (Entry entry : idle) {
+            // Removed one by one: a session used since the scan above is still ended, which only
+            // costs its client a new login.
+            if (remove(entry.session) != null) {
+                expired.increment();
+                System.out.println("Session of " + entry.session.getUsername() + " expired after " + idleTimeoutMillis + " ms without activity.");
+                end(entry);
+            }
+        }
+    }
+
+    private synchronized Entry remove(UserSessionImpl session) {
+        Entry entry = sessions.remove(session);
+        if (entry != null) {
+            Deque<Entry> userSessions = byUser.get(session.getUsername());
+            userSessions.remove(entry);
+            if (userSessions.isEmpty()) {
+                byUser.remove(session.getUsername());
+            }
+        }
+        return entry;
+    }
+
+    private static Entry leastRecentlyUsed(Deque<Entry> userSessions) {
+        Entry oldest = null;
+        for (Entry entry : userSessions) {
+            if (oldest == null || entry.session.getLastAccess() < oldest.session.getLastAccess()) {
+                oldest = entry;
+            }
+        }
+        return oldest;
+    }
+
+    // Called outside the registry lock: ending a session waits for a call that holds the session's lock.
+    private void end(Entry entry) {
+        entry.session.end();
+        try {
+            // Forced, so that a logout call can return while it unexports its own session.
+            UnicastRemoteObject.unexportObject(entry.exported, true);
+        } catch (NoSuchObjectException e) {
+            // Already unexported.
+        }
+        synchronized (this) {
+            // Under the lock, so that a login of the same user cannot slip in between the check and the call.
+            if (!byUser.containsKey(entry.session.getUsername())) {
+                lastSessionEnded.accept(entry.session.getUsername());
+            }
+        }
+    }
+
+    // --- Reporting ---
+
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    public synchronized int getUserCount() {
+        return byUser.size();
+    }
+
+    /**
+     * Returns a rough estimate of the heap held by the open sessions, in bytes.
+     */
+    public long estimateMemoryBytes() {
+        List<UserSessionImpl> open;
+        synchronized (this) {
+            open = new ArrayList<>(sessions.keySet());
+        }
+        long bytes = 0;
+        for (UserSessionImpl session : open) {
+            bytes += SESSION_BYTES + CART_LINE_BYTES * session.getCartLineCount();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the session figures for the dashboard.
+     */
+    public String getSummary() {
+        return String.format("%d sessions of %d customers, about %d KB (since startup: %d opened, %d logged out, %d expired, %d evicted)",
+                size(), getUserCount(), estimateMemoryBytes() / 1024, opened.sum(), loggedOut.sum(), expired.sum(), evicted.sum());
+    }
+
+    /**
+     * Stops the sweeper. Sessions stay exported; the server is going away with them.
+     */
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,231 @@
+package server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An LRU cache of prepared statements belonging to one pooled physical connection.
+ * The server prepares the same constant SQL strings over and over; with this cache each distinct
+ * statement is parsed once per connection and reused afterwards. Callers still close statements
+ * in try-with-resources blocks: closing a cached statement only clears its parameters (and resets the fetch
+ * size, row limit and query timeout if the borrower changed them) and makes it available again, the
+ * physical statement stays open until it is evicted or the connection is retired.
+ */
+class StatementCache {
+
+    /**
+     * Cache counters shared by all connections of a pool.
+     */
+    static final class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    private final Connection physical;
+    private final int capacity;
+    private final Counters counters;
+    private final LinkedHashMap<String, CachedStatement> entries;
+
+    StatementCache(Connection physical, int capacity, Counters counters) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.counters = counters;
+        // Access order turns the LinkedHashMap into an LRU list.
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > StatementCache.this.capacity) {
+                    eldest.getValue().evict();
+                    counters.evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL, reusing a cached one when possible.
+     * @param autoGeneratedKeys a Statement.RETURN_GENERATED_KEYS style flag, or null for the plain variant.
+     */
+    synchronized PreparedStatement prepare(String sql, Integer autoGeneratedKeys) throws SQLException {
+        if (capacity <= 0) {
+            counters.misses.increment();
+            return create(sql, autoGeneratedKeys);
+        }
+        String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + "|" + sql;
+        CachedStatement cached = entries.get(key);
+        if (cached != null && cached.evicted) {
+            entries.remove(key); // Its last release failed; prepare a fresh one below.
+            cached = null;
+        }
+        if (cached != null && !cached.inUse) {
+            counters.hits.increment();
+            return cached.checkout();
+        }
+        counters.misses.increment();
+        if (cached != null) {
+            // The same SQL is already open on this connection (e.g. nested use); hand out a plain statement.
+            return create(sql, autoGeneratedKeys);
+        }
+        cached = new CachedStatement(create(sql, autoGeneratedKeys));
+        entries.put(key, cached);
+        return cached.checkout();
+    }
+
+    private PreparedStatement create(String sql, Integer autoGeneratedKeys) throws SQLException {
+        return autoGeneratedKeys == null
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    /**
+     * Makes every statement available again. Called when the connection goes back to the pool,
+     * so a statement the borrower forgot to close cannot be used through a stale reference.
+     */
+    synchronized void releaseAll() {
+        for (CachedStatement cached : entries.values()) {
+            if (cached.inUse) {
+                cached.release();
+            }
+        }
+    }
+
+    /**
+     * Closes all cached statements. Called before the physical connection is closed.
+     */
+    synchronized void closeAll() {
+        List<CachedStatement> all = new ArrayList<>(entries.values());
+        entries.clear();
+        all.forEach(CachedStatement::evict);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void giveBack(CachedStatement cached, CheckoutHandler handler) {
+        if (cached.current == handler) {
+            cached.release();
+        }
+    }
+
+    private final class CachedStatement {
+        private final PreparedStatement statement;
+        private CheckoutHandler current;
+        private boolean inUse;
+        private boolean evicted;
+        private volatile boolean settingsChanged; // Set by a checkout that changed the fetch size, row limit or timeout.
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement checkout() {
+            inUse = true;
+            current = new CheckoutHandler(this);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    current);
+        }
+
+        void release() {
+            if (current != null) {
+                current.returned = true;
+                current = null;
+            }
+            inUse = false;
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+                if (settingsChanged) {
+                    // The next borrower expects a freshly prepared statement's defaults.
+                    statement.setFetchSize(0);
+                    statement.setMaxRows(0);
+                    statement.setQueryTimeout(0);
+                    settingsChanged = false;
+                }
+            } catch (SQLException e) {
+                evicted = true;
+                closeQuietly();
+            }
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing cached statement: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Handles calls on one checkout of a cached statement; close() returns it to the cache.
+     */
+    private final class CheckoutHandler implements InvocationHandler {
+        private final CachedStatement owner;
+        private volatile boolean returned;
+
+        CheckoutHandler(CachedStatement owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        giveBack(owner, this);
+                        returned = true;
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || owner.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setQueryTimeout":
+                    owner.settingsChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Statement has already been closed.");
+            }
+            try {
+                return method.invoke(owner.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,53 +1,198 @@
 package server;
 
 import common.*;
+import server.storage.OrderCursor;
+import server.storage.ProductCursor;
+import server.storage.StorageEngine;
 
+import java.nio.charset.StandardCharsets;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.security.MessageDigest;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class StoreFactoryImpl extends UnicastRemoteObject implements IStoreFactory {
 
-    // A thread-safe map to store callback references for all currently active (logged-in) clients.
-    // The key is the client's username, and the value is their callback object.
-    private final Map<String, IClientCallback> activeClients;
+    // Holds the callback references of all currently active (logged-in) clients, keyed by username,
+    // and delivers notifications to them in the background.
+    private final NotificationDispatcher notifications;
+    // All data access goes through the configured storage engine (MySQL or in-memory).
+    private final StorageEngine storage;
+    // Serves catalog reads from memory; admin changes and checkouts keep it current.
+    private final CatalogCache catalog;
+    // Product search, kept current by the catalog's change events.
+    private final SearchIndex search;
+    // Holds the stock reserved by shopping carts.
+    private final InventoryService inventory;
+    // Customer accounts by username, for logins and registrations.
+    private final CustomerCache customers;
+    // Saves the shopping carts, so that they outlive their sessions.
+    private final CartStore carts;
+    // The dashboard counters, maintained incrementally.
+    private final StoreStatistics statistics;
+    private final ReportService reports;
+    private final RemoteMetrics metrics;
+    // The open customer sessions; ends idle and surplus ones.
+    private final SessionRegistry sessions;
+    // Streams the order history to admin exports.
+    private final OrderExportService exports;
+    // Serialize changes to the same category or order across all admin panels (see AdminPanelImpl).
+    private final StripedLocks categoryLocks = new StripedLocks(32);
+    private final StripedLocks orderLocks = new StripedLocks(32);
 
     public StoreFactoryImpl() throws RemoteException {
+        this(StorageEngine.fromConfig(ServerConfig.get()));
+    }
+
+    public StoreFactoryImpl(StorageEngine storage) throws RemoteException {
         super();
-        activeClients = new ConcurrentHashMap<>();
+        this.storage = storage;
+        this.catalog = new CatalogCache(storage, ServerConfig.get());
+        this.search = new SearchIndex(catalog);
+        this.inventory = new InventoryService(storage, ServerConfig.get());
+        this.carts = new CartStore(storage, ServerConfig.get());
+        this.customers = new CustomerCache(storage, ServerConfig.get());
+        this.statistics = new StoreStatistics(storage, ServerConfig.get());
+        this.reports = new ReportService(storage, catalog, ServerConfig.get());
+        this.metrics = new RemoteMetrics(ServerConfig.get());
+        this.exports = new OrderExportService(storage, metrics, ServerConfig.get());
+        this.notifications = new NotificationDispatcher(ServerConfig.get(),
+                username -> System.out.println("Client " + username + " removed from active clients list."));
+        this.sessions = new SessionRegistry(ServerConfig.get(), notifications::unregister);
+        // Logged-in clients refresh their catalog copies when told what changed.
+        catalog.addChangeListener(notifications::broadcastCatalogChange);
+    }
+
+    StorageEngine getStorage() {
+        return storage;
+    }
+
+    CatalogCache getCatalog() {
+        return catalog;
+    }
+
+    SearchIndex getSearch() {
+        return search;
+    }
+
+    InventoryService getInventory() {
+        return inventory;
+    }
+
+    CartStore getCarts() {
+        return carts;
+    }
+
+    CustomerCache getCustomers() {
+        return customers;
     }
 
+    /**
+     * Stops the factory's background tasks. Called when the server shuts down, and by the benchmarks
+     * after each store they set up.
+     */
+    public void shutdown() {
+        inventory.shutdown();
+        statistics.shutdown();
+        reports.shutdown();
+        notifications.shutdown();
+        exports.shutdown();
+        sessions.shutdown();
+        carts.shutdown(); // After the sessions, before the storage engine: writes the pending carts.
+    }
+
+    StoreStatistics getStatistics() {
+        return statistics;
+    }
+
+    ReportService getReports() {
+        return reports;
+    }
+
+    public RemoteMetrics getMetrics() {
+        return metrics;
+    }
+
+    SessionRegistry getSessions() {
+        return sessions;
+    }
+
+    OrderExportService getExports() {
+        return exports;
+    }
+
+    StripedLocks getCategoryLocks() {
+        return categoryLocks;
+    }
+
+    StripedLocks getOrderLocks() {
+        return orderLocks;
+    }
+
+    /**
+     * Serves one page of a filtered, sorted product listing for the user session and the admin panel.
+     * @param categorizedOnly true to hide products without a category (the customer view).
+     */
+    ProductPage browseProductPage(ProductFilter filter, boolean categorizedOnly, ProductSort sort, String cursor, int pageSize) throws RemoteException {
+        ProductSort order = sort != null ? sort : ProductSort.ID;
+        int size = ProductCursor.pageSize(pageSize);
+        try {
+            ProductCursor after = ProductCursor.decode(cursor, order);
+            // Ask for one extra row to find out whether there is a next page.
+            List<Product> rows = storage.products().findPage(filter != null ? filter : new ProductFilter(),
+                    categorizedOnly, order, after, size + 1);
+            return ProductCursor.toPage(rows, size, order);
+        } catch (IllegalArgumentException e) {
+            throw new RemoteException(e.getMessage());
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Error browsing products.", e);
+        }
+    }
+
+    /**
+     * Serves one page of an order listing for the user session and the admin panel.
+     * @param customerId the customer whose orders to list, or null for all orders.
+     */
+    OrderPage browseOrderPage(Integer customerId, OrderFilter filter, String cursor, int pageSize) throws RemoteException {
+        int size = ProductCursor.pageSize(pageSize);
+        try {
+            OrderCursor after = OrderCursor.decode(cursor);
+            // Ask for one extra order to find out whether there is a next page.
+            List<Order> rows = storage.orders().findPage(customerId, filter != null ? filter : new OrderFilter(), after, size + 1);
+            return OrderCursor.toPage(rows, size);
+        } catch (IllegalArgumentException e) {
+            throw new RemoteException(e.getMessage());
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Error fetching orders.", e);
+        }
+    }
+
+    // login, registerCustomer and adminLogin are not synchronized: logins only read, the notification
+    // dispatcher is thread-safe, and username uniqueness is enforced by the storage (UNIQUE constraint), not by
+    // running registrations one at a time.
     @Override
-    public synchronized IUserSession login(String username, String password, IClientCallback clientCallback) throws RemoteException {
-        String sql = "SELECT * FROM customers WHERE username = ? AND password = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    Customer customer = new Customer(
-                            rs.getInt("id"),
-                            rs.getString("username"),
-                            rs.getString("password"),
-                            rs.getString("name"),
-                            rs.getString("address")
-                    );
-                    System.out.println("Customer login successful: " + username);
-                    // If login succeeds, store the client's callback reference for future notifications.
-                    activeClients.put(username, clientCallback);
-                    return new UserSessionImpl(customer, this);
+    public IUserSession login(String username, String password, IClientCallback clientCallback) throws RemoteException {
+        try {
+            // One indexed lookup by username at most, usually none; the password is checked here.
+            Customer customer = customers.find(username);
+            if (customer != null && passwordMatches(customer, password)) {
+                UserSessionImpl session = new UserSessionImpl(customer, this);
+                IUserSession exported = metrics.export(session, IUserSession.class);
+                sessions.register(session, exported);
+                System.out.println("Customer login successful: " + username);
+                // If login succeeds, store the client's callback reference for future notifications.
+                // Registered after the session, so that a session of the same user ending meanwhile
+                // cannot remove it again.
+                if (clientCallback != null) {
+                    notifications.register(username, clientCallback);
                 }
+                return exported;
             }
+        } catch (IllegalStateException e) {
+            throw new RemoteException(e.getMessage());
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Database error during login.", e);
@@ -57,48 +202,47 @@ public class StoreFactoryImpl extends UnicastRemoteObject implements IStoreFacto
     }
 
     @Override
-    public synchronized void registerCustomer(Customer newCustomer) throws RemoteException {
-        String sql = "INSERT INTO customers (username, password, name, address) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            if (customerExists(conn, newCustomer.getUsername())) {
+    public void registerCustomer(Customer newCustomer) throws RemoteException {
+        try {
+            // Cheap early answer for the common case, from the customer cache. Two concurrent registrations
+            // can both pass this check; the unique username constraint then rejects the second insert below.
+            if (customers.find(newCustomer.getUsername()) != null) {
                 throw new RemoteException("Username already exists.");
             }
 
-            pstmt.setString(1, newCustomer.getUsername());
-            pstmt.setString(2, newCustomer.getPassword());
-            pstmt.setString(3, newCustomer.getName());
-            pstmt.setString(4, newCustomer.getAddress());
-            
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
-                System.out.println("New customer registered: " + newCustomer.getUsername());
+            try {
+                storage.customers().add(newCustomer);
+            } finally {
+                // Also after a failed insert: the cache may still say that the username is free.
+                customers.invalidate(newCustomer.getUsername());
             }
+            statistics.customerAdded();
+            System.out.println("New customer registered: " + newCustomer.getUsername());
 
         } catch (SQLException e) {
+            // SQL state '23xxx' is an integrity constraint violation, here a duplicate username.
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                throw new RemoteException("Username already exists.", e);
+            }
             e.printStackTrace();
             throw new RemoteException("Database error during registration.", e);
         }
     }
 
-    private boolean customerExists(Connection conn, String username) throws SQLException {
-        String sql = "SELECT id FROM customers WHERE username = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, username);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                // If rs.next() is true, a customer with that username was found.
-                return rs.next();
-            }
-        }
+    /**
+     * Compares the password in time that does not depend on where the first difference is.
+     */
+    private static boolean passwordMatches(Customer customer, String password) {
+        return password != null && customer.getPassword() != null
+                && MessageDigest.isEqual(customer.getPassword().getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8));
     }
 
     @Override
-    public synchronized IAdminPanel adminLogin(String username, String password) throws RemoteException {
+    public IAdminPanel adminLogin(String username, String password) throws RemoteException {
         // Hardcoded credentials for admin access.
         if ("admin".equals(username) && "admin".equals(password)) {
             System.out.println("Admin login successful: " + username);
-            return new AdminPanelImpl(this);
+            return metrics.export(new AdminPanelImpl(this), IAdminPanel.class);
         }
         System.out.println("Admin login failed: " + username);
         return null;
@@ -108,36 +252,23 @@ public class StoreFactoryImpl extends UnicastRemoteObject implements IStoreFacto
     public void logout(String username) throws RemoteException {
         if (username != null) {
             // Remove the client from the active list upon logout to stop sending notifications.
-            activeClients.remove(username);
+            notifications.unregister(username);
             System.out.println("Client " + username + " removed from active clients list.");
         }
     }
 
-    // Method to notify all active clients.
+    // Method to notify all active clients. Returns without waiting for the deliveries.
     public void notifyClients(String message) {
-        for (IClientCallback client : activeClients.values()) {
-            try {
-                client.notify(message);
-            } catch (RemoteException e) {
-                // Client is likely disconnected, remove it to prevent future errors.
-                // This part needs careful implementation to avoid ConcurrentModificationException,
-                // but ConcurrentHashMap is safe to modify while iterating.
-                System.err.println("Error notifying client, removing: " + e.getMessage());
-            }
-        }
+        notifications.broadcast(message);
     }
 
-    // Method to notify a single, specific client by their username.
+    // Method to notify a single, specific client by their username. Returns without waiting for the delivery;
+    // a client that keeps failing to receive notifications is removed by the dispatcher.
     public void notifyClient(String username, String message) {
-        IClientCallback client = activeClients.get(username);
-        if (client != null) {
-            try {
-                client.notify(message);
-            } catch (RemoteException e) {
-                System.err.println("Error notifying client " + username + ", removing: " + e.getMessage());
-                // Client is likely disconnected, remove it to prevent future errors.
-                activeClients.remove(username);
-            }
-        }
+        notifications.send(username, message);
+    }
+
+    NotificationDispatcher getNotifications() {
+        return notifications;
     }
-} 
\ No newline at end of file
+}
@@ -1,25 +1,47 @@
 package server;
 
+import common.IStoreFactory;
+import server.storage.StorageEngine;
+
 import java.rmi.Naming;
 import java.rmi.registry.LocateRegistry;
 
 public class StoreServer {
     public static void main(String[] args) {
         try {
+            // Callbacks to clients are outgoing RMI calls; don't let one that never answers hold a
+            // socket and a dispatcher thread forever.
+            if (System.getProperty("sun.rmi.transport.tcp.responseTimeout") == null) {
+                long timeout = ServerConfig.get().getLong("notify.deliveryTimeoutMs", 5_000L);
+                System.setProperty("sun.rmi.transport.tcp.responseTimeout", String.valueOf(timeout * 2));
+            }
+
             // Start the RMI registry on the default port 1099
             LocateRegistry.createRegistry(1099);
             System.out.println("RMI registry started.");
 
+            // Choose the storage engine (MySQL or in-memory) configured in server.properties.
+            StorageEngine storage = StorageEngine.fromConfig(ServerConfig.get());
+            System.out.println("Using " + storage.getName() + " storage.");
+
             // Create a single instance of the factory implementation.
             // This object will handle all incoming requests for sessions.
-            StoreFactoryImpl factory = new StoreFactoryImpl();
+            StoreFactoryImpl factory = new StoreFactoryImpl(storage);
             System.out.println("StoreFactory implementation created.");
 
             // Bind the remote factory object to the RMI registry with the name "StoreFactory".
-            // Clients will use this name to look up the factory.
-            Naming.rebind("rmi://localhost/StoreFactory", factory);
+            // Clients will use this name to look up the factory. The bound object is the factory's
+            // instrumented proxy, so that its calls are measured like those of the sessions it creates.
+            Naming.rebind("rmi://localhost/StoreFactory", factory.getMetrics().export(factory, IStoreFactory.class));
             System.out.println("StoreFactory bound in registry.");
 
+            // Flush pending writes and release pooled database connections when the server is stopped.
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                factory.shutdown();
+                storage.shutdown();
+                DatabaseManager.shutdown();
+            }, "store-shutdown"));
+
             System.out.println("Server is ready.");
 
         } catch (Exception e) {
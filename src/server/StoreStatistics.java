@@ -0,0 +1,140 @@
+package server;
+
+import common.Order;
+import server.storage.StorageEngine;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The dashboard figures (customers, products, orders and delivered revenue), kept in memory.
+ * The counters are seeded from storage once and then updated by the code paths that change them,
+ * so the dashboard does not run any aggregate queries. Every stats.reconcileIntervalMs they are
+ * recomputed from storage, which corrects any drift, e.g. from a change that raced with the last
+ * reconciliation or from rows changed directly in the database.
+ */
+public final class StoreStatistics {
+
+    private final StorageEngine storage;
+    private final AtomicLong customers = new AtomicLong();
+    private final AtomicLong products = new AtomicLong();
+    private final AtomicLong orders = new AtomicLong();
+    // Revenue of delivered orders in cents, so that repeated additions do not accumulate rounding errors.
+    private final AtomicLong deliveredRevenueCents = new AtomicLong();
+    private volatile boolean seeded;
+    private volatile long lastReconciledAt;
+    private final ScheduledExecutorService reconciler;
+
+    public StoreStatistics(StorageEngine storage, ServerConfig config) {
+        this.storage = storage;
+        long interval = config.getLong("stats.reconcileIntervalMs", 60_000L);
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stats-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        // The first run seeds the counters in the background right after startup.
+        reconciler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile();
+            } catch (SQLException e) {
+                System.err.println("Statistics reconciliation failed: " + e.getMessage());
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Recomputes all counters from storage.
+     */
+    public synchronized void reconcile() throws SQLException {
+        long customerCount = storage.customers().count();
+        long productCount = storage.products().count();
+        long orderCount = storage.orders().count();
+        long revenueCents = toCents(storage.orders().sumDeliveredRevenue());
+        customers.set(customerCount);
+        products.set(productCount);
+        orders.set(orderCount);
+        deliveredRevenueCents.set(revenueCents);
+        seeded = true;
+        lastReconciledAt = System.currentTimeMillis();
+    }
+
+    // --- Updates from the code paths that change the figures ---
+
+    public void customerAdded() {
+        customers.incrementAndGet();
+    }
+
+    public void productAdded() {
+        products.incrementAndGet();
+    }
+
+    public void productsAdded(int count) {
+        products.addAndGet(count);
+    }
+
+    public void productsRemoved(int count) {
+        products.addAndGet(-count);
+    }
+
+    public void orderPlaced() {
+        orders.incrementAndGet();
+    }
+
+    /**
+     * Adjusts the delivered revenue when an order enters or leaves the DELIVERED status.
+     */
+    public void orderStatusChanged(Order.Status oldStatus, Order.Status newStatus, double totalAmount) {
+        boolean wasDelivered = oldStatus == Order.Status.DELIVERED;
+        boolean isDelivered = newStatus == Order.Status.DELIVERED;
+        if (wasDelivered != isDelivered) {
+            deliveredRevenueCents.addAndGet(isDelivered ? toCents(totalAmount) : -toCents(totalAmount));
+        }
+    }
+
+    // --- Readers ---
+
+    public long getCustomerCount() throws SQLException {
+        ensureSeeded();
+        return customers.get();
+    }
+
+    public long getProductCount() throws SQLException {
+        ensureSeeded();
+        return products.get();
+    }
+
+    public long getOrderCount() throws SQLException {
+        ensureSeeded();
+        return orders.get();
+    }
+
+    public double getDeliveredRevenue() throws SQLException {
+        ensureSeeded();
+        return deliveredRevenueCents.get() / 100.0;
+    }
+
+    /**
+     * Returns the time of the last reconciliation in milliseconds, or 0 if none has completed yet.
+     */
+    public long getLastReconciledAt() {
+        return lastReconciledAt;
+    }
+
+    public void shutdown() {
+        reconciler.shutdownNow();
+    }
+
+    private void ensureSeeded() throws SQLException {
+        if (!seeded) {
+            reconcile();
+        }
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+}
@@ -0,0 +1,27 @@
+package server;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared by key (lock striping).
+ * Operations on the same key always get the same lock and run one at a time, while operations on
+ * different keys usually get different locks and run in parallel. Unlike a lock per key, the memory
+ * used stays constant no matter how many keys there are.
+ */
+final class StripedLocks {
+
+    private final ReentrantLock[] locks;
+
+    StripedLocks(int stripes) {
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    ReentrantLock forKey(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16); // Spread the high bits, as HashMap does.
+        return locks[Math.floorMod(hash, locks.length)];
+    }
+}
@@ -1,11 +1,12 @@
 package server;
 
 import common.*;
+import server.storage.StorageEngine;
 
+import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
-import java.sql.*;
-import java.util.ArrayList;
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,69 +15,94 @@ public class UserSessionImpl extends UnicastRemoteObject implements IUserSession
 
     private final Customer customer;
     // Stores the current user's shopping cart. The key is the Product ID, and the value is the quantity.
+    // Filled from the cart store on first use (see cart()); every change is saved back to it.
     private final Map<Integer, Integer> shoppingCart; // ProductID -> Quantity
+    private boolean cartLoaded; // Guarded by the session's lock.
     private final StoreFactoryImpl storeFactory;
+    private final StorageEngine storage;
+    private final CatalogCache catalog;
+    private final InventoryService inventory;
+    private final CartStore carts;
+    // The stock this cart holds; released on remove, clear, logout or expiry.
+    private final InventoryService.CartHolds holds;
+    private volatile long lastAccess = System.currentTimeMillis(); // When a remote method was last called.
+    private volatile boolean ended; // Set once by end(); written under the session's lock.
 
     protected UserSessionImpl(Customer customer, StoreFactoryImpl storeFactory) throws RemoteException {
         super();
         this.customer = customer;
         this.shoppingCart = new HashMap<>();
         this.storeFactory = storeFactory;
+        this.storage = storeFactory.getStorage();
+        this.catalog = storeFactory.getCatalog();
+        this.inventory = storeFactory.getInventory();
+        this.carts = storeFactory.getCarts();
+        this.holds = inventory.openCart();
     }
 
     @Override
     public synchronized List<Product> browseProducts() throws RemoteException {
-        List<Product> products = new ArrayList<>();
-        String sql = "SELECT p.*, c.name as categoryName FROM products p JOIN categories c ON p.categoryId = c.id";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                products.add(new Product(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("description"),
-                        rs.getDouble("price"),
-                        rs.getInt("stockQuantity"),
-                        rs.getString("categoryName"),
-                        rs.getString("brand"),
-                        rs.getString("size"),
-                        rs.getString("color")
-                ));
-            }
+        touch();
+        try {
+            // Served from the catalog cache; customers only see products that belong to a category.
+            return new ProductList(catalog.getVisibleProducts());
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Error browsing products.", e);
         }
-        return products;
+    }
+
+    @Override
+    public ProductPage browseProducts(ProductFilter filter, ProductSort sort, String cursor, int pageSize) throws RemoteException {
+        touch();
+        return storeFactory.browseProductPage(filter, true, sort, cursor, pageSize);
+    }
+
+    @Override
+    public CatalogDelta getCatalogChanges(long sinceVersion) throws RemoteException {
+        touch();
+        try {
+            return catalog.getChangesSince(sinceVersion, true);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Error reading catalog changes.", e);
+        }
+    }
+
+    @Override
+    public SearchResult searchProducts(String query, ProductFilter filter, String cursor, int pageSize) throws RemoteException {
+        touch();
+        try {
+            return storeFactory.getSearch().search(query, filter, cursor, pageSize);
+        } catch (IllegalArgumentException e) {
+            throw new RemoteException(e.getMessage());
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Error searching products.", e);
+        }
     }
 
     @Override
     public synchronized void addToCart(int productId, int quantity) throws RemoteException {
+        touch();
         if (quantity <= 0) {
             throw new RemoteException("Quantity must be positive.");
         }
 
-        String sql = "SELECT stockQuantity FROM products WHERE id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, productId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    int stock = rs.getInt("stockQuantity");
-                    int currentCartQuantity = shoppingCart.getOrDefault(productId, 0);
-                    if (stock >= quantity + currentCartQuantity) {
-                        shoppingCart.put(productId, currentCartQuantity + quantity);
-                        System.out.println("Product " + productId + " added to cart for customer " + customer.getUsername());
-                    } else {
-                        throw new RemoteException("Not enough stock for product ID: " + productId + ". Available: " + stock);
-                    }
-                } else {
-                    throw new RemoteException("Product with ID " + productId + " not found.");
-                }
+        try {
+            // Reserve the units right away so they cannot be sold to someone else before checkout.
+            Map<Integer, Integer> cart = cart();
+            if (inventory.reserve(holds, productId, quantity)) {
+                cart.merge(productId, quantity, Integer::sum);
+                saveCart();
+                System.out.println("Product " + productId + " added to cart for customer " + customer.getUsername());
+                return;
+            }
+            int available = inventory.getAvailable(productId);
+            if (available < 0) {
+                throw new RemoteException("Product with ID " + productId + " not found.");
             }
+            throw new RemoteException("Not enough stock for product ID: " + productId + ". Available: " + available);
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Database error while adding to cart.", e);
@@ -84,43 +110,117 @@ public class UserSessionImpl extends UnicastRemoteObject implements IUserSession
     }
 
     @Override
-    public synchronized Map<Product, Integer> viewCart() throws RemoteException {
-        Map<Product, Integer> detailedCart = new HashMap<>();
-        if (shoppingCart.isEmpty()) {
-            return detailedCart;
+    public synchronized Map<Product, Integer> updateCart(List<CartOperation> operations) throws RemoteException {
+        touch();
+        if (operations == null || operations.isEmpty()) {
+            throw new RemoteException("No cart operations given.");
         }
 
-        StringBuilder sqlBuilder = new StringBuilder("SELECT p.*, c.name as categoryName FROM products p JOIN categories c ON p.categoryId = c.id WHERE p.id IN (");
-        for (int i = 0; i < shoppingCart.size(); i++) {
-            sqlBuilder.append("?,");
+        // Reject the whole list if any operation is malformed, before anything is touched.
+        for (CartOperation operation : operations) {
+            if (operation == null || operation.getType() == null) {
+                throw new RemoteException("Invalid cart operation: " + operation + ".");
+            }
+            switch (operation.getType()) {
+                case ADD:
+                    if (operation.getQuantity() <= 0) {
+                        throw new RemoteException("Quantity must be positive.");
+                    }
+                    break;
+                case SET:
+                    if (operation.getQuantity() < 0) {
+                        throw new RemoteException("Quantity must not be negative.");
+                    }
+                    break;
+                case REMOVE:
+                    break;
+                default:
+                    throw new RemoteException("Unsupported cart operation: " + operation.getType() + ".");
+            }
         }
-        sqlBuilder.deleteCharAt(sqlBuilder.length() - 1).append(")");
 
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sqlBuilder.toString())) {
+        // Work out the resulting cart first; nothing changes unless every product has enough stock.
+        Map<Integer, Integer> cart = cart();
+        Map<Integer, Integer> updated = new HashMap<>(cart);
+        for (CartOperation operation : operations) {
+            int productId = operation.getProductId();
+            switch (operation.getType()) {
+                case ADD:
+                    updated.merge(productId, operation.getQuantity(), Integer::sum);
+                    break;
+                case SET:
+                    if (operation.getQuantity() == 0) {
+                        updated.remove(productId);
+                    } else {
+                        updated.put(productId, operation.getQuantity());
+                    }
+                    break;
+                case REMOVE:
+                    updated.remove(productId);
+                    break;
+                default:
+                    throw new IllegalStateException("Unvalidated cart operation: " + operation.getType());
+            }
+        }
 
-            int i = 1;
-            for (Integer productId : shoppingCart.keySet()) {
-                pstmt.setInt(i++, productId);
+        // The changed lines and their new quantities (0 for removed lines).
+        Map<Integer, Integer> changed = new HashMap<>();
+        for (Integer productId : cart.keySet()) {
+            if (!updated.containsKey(productId)) {
+                changed.put(productId, 0);
+            }
+        }
+        updated.forEach((productId, quantity) -> {
+            if (!quantity.equals(cart.get(productId))) {
+                changed.put(productId, quantity);
             }
+        });
 
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Product product = new Product(
-                            rs.getInt("id"),
-                            rs.getString("name"),
-                            rs.getString("description"),
-                            rs.getDouble("price"),
-                            rs.getInt("stockQuantity"),
-                            rs.getString("categoryName"),
-                            rs.getString("brand"),
-                            rs.getString("size"),
-                            rs.getString("color")
-                    );
-                    detailedCart.put(product, shoppingCart.get(product.getId()));
-                }
+        try {
+            // Holds every changed line in full at once; stock not yet known is read in one query.
+            Map<Integer, Integer> shortfalls = inventory.setHolds(holds, changed);
+            if (!shortfalls.isEmpty()) {
+                StringBuilder message = new StringBuilder();
+                shortfalls.forEach((productId, available) -> {
+                    message.append(message.length() == 0 ? "" : " ");
+                    message.append(available < 0
+                            ? "Product with ID " + productId + " not found."
+                            : "Not enough stock for product ID: " + productId + ". Available: " + available + ".");
+                });
+                throw new RemoteException(message + " Your cart was not changed.");
             }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Database error while updating the cart.", e);
+        }
+        if (!changed.isEmpty()) {
+            cart.clear();
+            cart.putAll(updated);
+            saveCart();
+            System.out.println("Cart updated for customer " + customer.getUsername());
+        }
+        return pricedCart(cart);
+    }
 
+    @Override
+    public synchronized Map<Product, Integer> viewCart() throws RemoteException {
+        touch();
+        return pricedCart(cart());
+    }
+
+    /**
+     * Returns the cart with each product's current details, taken from the catalog cache.
+     */
+    private Map<Product, Integer> pricedCart(Map<Integer, Integer> cart) throws RemoteException {
+        Map<Product, Integer> detailedCart = new HashMap<>();
+        if (cart.isEmpty()) {
+            return detailedCart;
+        }
+
+        try {
+            for (Product product : catalog.getProducts(cart.keySet())) {
+                detailedCart.put(product, cart.get(product.getId()));
+            }
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RemoteException("Error viewing cart.", e);
@@ -128,10 +228,20 @@ public class UserSessionImpl extends UnicastRemoteObject implements IUserSession
         return detailedCart;
     }
 
+    @Override
+    public synchronized Map<Integer, Integer> getCartQuantities() throws RemoteException {
+        touch();
+        return new HashMap<>(cart());
+    }
+
     @Override
     public synchronized void removeFromCart(int productId) throws RemoteException {
-        if (shoppingCart.containsKey(productId)) {
-            shoppingCart.remove(productId);
+        touch();
+        Map<Integer, Integer> cart = cart();
+        if (cart.containsKey(productId)) {
+            cart.remove(productId);
+            inventory.release(holds, productId);
+            saveCart();
             System.out.println("Product " + productId + " removed from cart for customer " + customer.getUsername());
         } else {
             System.err.println("Attempted to remove non-existent product " + productId + " from cart for " + customer.getUsername());
@@ -140,183 +250,146 @@ public class UserSessionImpl extends UnicastRemoteObject implements IUserSession
 
     @Override
     public synchronized void clearCart() throws RemoteException {
-        if (!shoppingCart.isEmpty()) {
-            shoppingCart.clear();
+        touch();
+        Map<Integer, Integer> cart = cart();
+        if (!cart.isEmpty()) {
+            cart.clear();
+            inventory.releaseAll(holds);
+            saveCart();
             System.out.println("Cart cleared for customer " + customer.getUsername());
         }
     }
 
     @Override
     public synchronized Order placeOrder() throws RemoteException {
-        if (shoppingCart.isEmpty()) {
+        touch();
+        if (cart().isEmpty()) {
             throw new RemoteException("Shopping cart is empty.");
         }
 
-        Connection conn = null;
-        Order createdOrder = null;
-        
         try {
-            conn = DatabaseManager.getConnection();
-            conn.setAutoCommit(false); // Start transaction: all or nothing.
-
-            // 1. Verify stock for all items in the cart before proceeding.
-            // This is a crucial check to ensure the order is valid. A real-world system might use row-level locking.
-            for (Map.Entry<Integer, Integer> entry : shoppingCart.entrySet()) {
-                String checkStockSql = "SELECT stockQuantity FROM products WHERE id = ?";
-                try (PreparedStatement ps = conn.prepareStatement(checkStockSql)) {
-                    ps.setInt(1, entry.getKey());
-                    ResultSet rs = ps.executeQuery();
-                    if (rs.next()) {
-                        if (rs.getInt("stockQuantity") < entry.getValue()) {
-                            // Fetch product name for a more informative error message.
-                            String productName = getProductName(conn, entry.getKey());
-                            throw new SQLException("Not enough stock for product: " + productName + " (ID: " + entry.getKey() + ")");
-                        }
-                    } else {
-                        throw new SQLException("Product not found with ID: " + entry.getKey());
-                    }
-                }
+            // Holds that expired are taken again if the stock is still there; stock held by other
+            // carts is not sold. The repository then checks stock, records the order and updates
+            // stock in one transaction.
+            Map<Integer, Integer> orderedItems = new HashMap<>(shoppingCart);
+            if (!inventory.reserveAll(holds, orderedItems)) {
+                throw new RemoteException("Error placing order: not enough stock is left for some items; your reservation has expired.");
             }
-
-            // 2. Create the main order record in the 'orders' table.
-            String createOrderSql = "INSERT INTO orders (customerId, orderDate, totalAmount, status) VALUES (?, ?, ?, ?)";
-            double totalAmount = calculateTotalAmount(conn);
-            
-            try(PreparedStatement psOrder = conn.prepareStatement(createOrderSql, Statement.RETURN_GENERATED_KEYS)) {
-                psOrder.setInt(1, customer.getId());
-                psOrder.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
-                psOrder.setDouble(3, totalAmount);
-                psOrder.setString(4, Order.Status.PENDING.name());
-                psOrder.executeUpdate();
-                
-                ResultSet generatedKeys = psOrder.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    int orderId = generatedKeys.getInt(1);
-
-                    // 3. Add each item from the cart to the 'order_items' table and update the product stock.
-                    String orderItemSql = "INSERT INTO order_items (orderId, productId, quantity, price) VALUES (?, ?, ?, ?)";
-                    String updateStockSql = "UPDATE products SET stockQuantity = stockQuantity - ? WHERE id = ?";
-                    
-                    try(PreparedStatement psItem = conn.prepareStatement(orderItemSql);
-                        PreparedStatement psUpdateStock = conn.prepareStatement(updateStockSql)) {
-
-                        for (Map.Entry<Integer, Integer> entry : shoppingCart.entrySet()) {
-                            // Get current price
-                            double price = getProductPrice(conn, entry.getKey());
-
-                            // Add to order_items
-                            psItem.setInt(1, orderId);
-                            psItem.setInt(2, entry.getKey());
-                            psItem.setInt(3, entry.getValue());
-                            psItem.setDouble(4, price);
-                            psItem.addBatch();
-
-                            // Update stock
-                            psUpdateStock.setInt(1, entry.getValue());
-                            psUpdateStock.setInt(2, entry.getKey());
-                            psUpdateStock.addBatch();
-                        }
-                        psItem.executeBatch();
-                        psUpdateStock.executeBatch();
-                    }
-                    
-                    // Create the Order object to return to the client.
-                    createdOrder = new Order(orderId, customer.getId(), new java.util.Date(), new ArrayList<>(), totalAmount, Order.Status.PENDING);
-
-                }
+            Order createdOrder;
+            try {
+                createdOrder = storage.orders().placeOrder(customer.getId(), orderedItems);
+            } catch (SQLException e) {
+                // The in-memory counts disagreed with the database; bring them back in line.
+                inventory.reconcile(orderedItems.keySet());
+                throw e;
             }
-            
-            conn.commit(); // If all steps were successful, commit the transaction to the database.
+            inventory.commit(holds, orderedItems);
+            storeFactory.getStatistics().orderPlaced();
+            storeFactory.getReports().orderPlaced(createdOrder);
+            catalog.stockSold(orderedItems);
             System.out.println("Order placed successfully for customer: " + customer.getUsername());
             shoppingCart.clear();
-
+            saveCart();
+            return createdOrder;
         } catch (SQLException e) {
             e.printStackTrace();
-            if (conn != null) {
-                try {
-                    conn.rollback(); // If any SQL error occurs, roll back the entire transaction.
-                    System.err.println("Transaction rolled back.");
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                }
-            }
             throw new RemoteException("Error placing order: " + e.getMessage(), e);
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true); // Always restore auto-commit mode.
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                }
-            }
         }
-        
-        return createdOrder;
     }
-    
-    private double calculateTotalAmount(Connection conn) throws SQLException {
-        double total = 0;
-        for (Map.Entry<Integer, Integer> entry : shoppingCart.entrySet()) {
-            total += getProductPrice(conn, entry.getKey()) * entry.getValue();
+
+    @Override
+    @Deprecated
+    public synchronized List<Order> getOrderHistory() throws RemoteException {
+        touch();
+        try {
+            return storage.orders().findByCustomer(this.customer.getId());
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new RemoteException("Error fetching order history.", e);
         }
-        return total;
     }
 
-    private String getProductName(Connection conn, int productId) throws SQLException {
-        String sql = "SELECT name FROM products WHERE id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, productId);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getString("name");
-            }
-            return "Unknown Product";
+    @Override
+    public OrderPage getOrderHistory(OrderFilter filter, String cursor, int pageSize) throws RemoteException {
+        touch();
+        return storeFactory.browseOrderPage(customer.getId(), filter, cursor, pageSize);
+    }
+
+    @Override
+    public void logout() throws RemoteException {
+        touch();
+        // The session registry releases the cart, unexports this session and, if it was the user's
+        // last session, removes the client's callback reference.
+        System.out.println("Customer " + customer.getUsername() + " logging out.");
+        storeFactory.getSessions().logout(this);
+    }
+
+    // --- Lifecycle, driven by the SessionRegistry ---
+
+    /**
+     * Records a call. Fails once the session has ended, for calls that were already on their way.
+     */
+    private void touch() throws NoSuchObjectException {
+        if (ended) {
+            throw new NoSuchObjectException("The session has ended; please log in again.");
         }
+        lastAccess = System.currentTimeMillis();
     }
 
-    private double getProductPrice(Connection conn, int productId) throws SQLException {
-        String sql = "SELECT price FROM products WHERE id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, productId);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getDouble("price");
-            }
-            throw new SQLException("Product not found with ID: " + productId);
+    /**
+     * Ends the session: releases the cart's stock holds and drops the in-memory cart; the saved cart is
+     * kept for the customer's next session. Waits for a call in progress.
+     */
+    synchronized void end() {
+        if (ended) {
+            return;
         }
+        ended = true;
+        inventory.closeCart(holds);
+        shoppingCart.clear();
     }
 
-    @Override
-    public synchronized List<Order> getOrderHistory() throws RemoteException {
-        List<Order> orderHistory = new ArrayList<>();
-        // This is a simplified query. A full implementation would also fetch order items.
-        String sql = "SELECT * FROM orders WHERE customerId = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, this.customer.getId());
-            ResultSet rs = pstmt.executeQuery();
-            while(rs.next()){
-                orderHistory.add(new Order(
-                    rs.getInt("id"),
-                    rs.getInt("customerId"),
-                    rs.getDate("orderDate"),
-                    new ArrayList<>(), // Order items not fetched for simplicity
-                    rs.getDouble("totalAmount"),
-                    Order.Status.valueOf(rs.getString("status"))
-                ));
+    // --- The saved cart ---
+
+    /**
+     * Returns the cart, loading the customer's saved cart on first use. Called with the session's lock held.
+     * Saved lines come back without stock holds; checkout takes them again if the stock is still there,
+     * as it does for expired holds. Lines for products that no longer exist are dropped.
+     */
+    private Map<Integer, Integer> cart() throws RemoteException {
+        if (!cartLoaded) {
+            try {
+                Map<Integer, Integer> saved = carts.load(customer.getId());
+                for (Map.Entry<Integer, Integer> line : saved.entrySet()) {
+                    if (inventory.getAvailable(line.getKey()) >= 0) {
+                        shoppingCart.put(line.getKey(), line.getValue());
+                    }
+                }
+                cartLoaded = true;
+                if (shoppingCart.size() < saved.size()) {
+                    saveCart();
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                throw new RemoteException("Database error while loading the cart.", e);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new RemoteException("Error fetching order history.", e);
         }
-        return orderHistory;
+        return shoppingCart;
     }
 
-    @Override
-    public void logout() throws RemoteException {
-        // The factory handles the actual removal of the client's callback reference.
-        // This method just signals the intent to log out.
-        System.out.println("Customer " + customer.getUsername() + " logging out.");
-        storeFactory.logout(customer.getUsername());
+    private void saveCart() {
+        carts.save(customer.getId(), shoppingCart);
+    }
+
+    String getUsername() {
+        return customer.getUsername();
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    int getCartLineCount() {
+        return shoppingCart.size(); // Read without the lock; only used for an estimate.
     }
 } 
\ No newline at end of file
@@ -0,0 +1,22 @@
+package server.storage;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Data access for saved shopping carts, one per customer.
+ * A cart maps product IDs to quantities. Carts are rows of the carts table, which is written in batches
+ * by the server's cart store rather than on every change.
+ */
+public interface CartRepository {
+
+    /**
+     * Returns the saved cart of a customer; empty if the customer has none.
+     */
+    Map<Integer, Integer> findByCustomer(int customerId) throws SQLException;
+
+    /**
+     * Replaces the saved carts of the given customers in one transaction. An empty cart deletes the customer's saved cart.
+     */
+    void saveAll(Map<Integer, Map<Integer, Integer>> carts) throws SQLException;
+}
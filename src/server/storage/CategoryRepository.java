@@ -0,0 +1,41 @@
+package server.storage;
+
+import common.Category;
+import common.Product;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Data access for product categories.
+ * Category names are unique; violating that raises an SQLException with an SQL state of class 23.
+ */
+public interface CategoryRepository {
+
+    /**
+     * Returns all categories ordered by name.
+     */
+    List<Category> findAll() throws SQLException;
+
+    /**
+     * Returns the products assigned to a category.
+     */
+    List<Product> findProducts(int categoryId) throws SQLException;
+
+    /**
+     * Adds a category and returns its generated ID.
+     */
+    int add(String name) throws SQLException;
+
+    /**
+     * Renames a category.
+     * @return false if the category does not exist.
+     */
+    boolean update(Category category) throws SQLException;
+
+    /**
+     * Deletes a category together with all products assigned to it, in one transaction.
+     * @return false if the category does not exist (nothing is deleted in that case).
+     */
+    boolean deleteWithProducts(int categoryId) throws SQLException;
+}
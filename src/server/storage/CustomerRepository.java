@@ -0,0 +1,29 @@
+package server.storage;
+
+import common.Customer;
+
+import java.sql.SQLException;
+
+/**
+ * Data access for customer accounts.
+ * Usernames are unique; violating that raises an SQLException with an SQL state of class 23.
+ */
+public interface CustomerRepository {
+
+    /**
+     * Returns the customer with the given username, or null if there is none. The caller checks the password.
+     */
+    Customer findByUsername(String username) throws SQLException;
+
+    /**
+     * Returns the customer with the given ID, or null if it does not exist.
+     */
+    Customer findById(int customerId) throws SQLException;
+
+    /**
+     * Adds a new customer and returns the generated ID.
+     */
+    int add(Customer customer) throws SQLException;
+
+    int count() throws SQLException;
+}
@@ -0,0 +1,29 @@
+package server.storage;
+
+/**
+ * A figure for one product or customer on one day, e.g. the units of a product sold that day.
+ * Days are UTC calendar days, counted as days since 1970-01-01.
+ */
+public final class DailyFigure {
+    private final long epochDay;
+    private final int id;
+    private final double value;
+
+    public DailyFigure(long epochDay, int id, double value) {
+        this.epochDay = epochDay;
+        this.id = id;
+        this.value = value;
+    }
+
+    public long getEpochDay() {
+        return epochDay;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public double getValue() {
+        return value;
+    }
+}
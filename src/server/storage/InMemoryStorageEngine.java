@@ -0,0 +1,850 @@
+package server.storage;
+
+import common.Category;
+import common.Customer;
+import common.Order;
+import common.OrderFilter;
+import common.OrderItem;
+import common.Product;
+import common.ProductFilter;
+import common.ProductSort;
+import server.DatabaseManager;
+import server.ServerConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Storage engine that keeps the whole store in concurrent maps.
+ * Reads never touch MySQL. Writes are applied in memory under a single write lock (they are short)
+ * and, when persistence is enabled, handed to a {@link WriteBehindQueue} that replays them against
+ * MySQL in the same order. IDs are assigned in memory, continuing from the highest ID loaded at startup,
+ * so this engine assumes it is the only writer of the database while it runs.
+ *
+ * Objects returned by the repositories are copies; changing them has no effect on the store.
+ */
+public class InMemoryStorageEngine implements StorageEngine {
+
+    private final Map<Integer, Product> products = new ConcurrentHashMap<>();
+    private final Map<Integer, Category> categories = new ConcurrentHashMap<>();
+    private final Map<Integer, Customer> customers = new ConcurrentHashMap<>();
+    // Keyed by usernameKey(username): MySQL's unique index on customers.username ignores case.
+    private final Map<String, Customer> customersByUsername = new ConcurrentHashMap<>();
+    private final Map<Integer, Order> orders = new ConcurrentHashMap<>();
+    // Units ordered per product ID, used for the "is part of an order" checks.
+    private final Map<Integer, Integer> unitsOrdered = new ConcurrentHashMap<>();
+    // Saved carts by customer ID; each cart is an immutable map from product ID to quantity.
+    private final Map<Integer, Map<Integer, Integer>> carts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger productIds = new AtomicInteger();
+    private final AtomicInteger categoryIds = new AtomicInteger();
+    private final AtomicInteger customerIds = new AtomicInteger();
+    private final AtomicInteger orderIds = new AtomicInteger();
+
+    // Serializes writes so that multi-entity changes (orders, category deletes) are atomic
+    // and the write-behind queue sees them in commit order.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final WriteBehindQueue writeBehind; // Null when running without a database.
+
+    private final ProductRepository productRepository = new MemoryProducts();
+    private final CategoryRepository categoryRepository = new MemoryCategories();
+    private final CustomerRepository customerRepository = new MemoryCustomers();
+    private final OrderRepository orderRepository = new MemoryOrders();
+    private final CartRepository cartRepository = new MemoryCarts();
+
+    /**
+     * Creates an empty store.
+     * @param writeBehind the queue that persists writes, or null to keep everything in memory only.
+     */
+    public InMemoryStorageEngine(WriteBehindQueue writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Creates the engine described by the store.memory.* settings. With persistence enabled the
+     * current contents of MySQL are loaded first.
+     */
+    public static InMemoryStorageEngine fromConfig(ServerConfig config) {
+        if (!config.getBoolean("store.memory.persist", true)) {
+            System.out.println("In-memory storage without persistence: data is lost when the server stops.");
+            return new InMemoryStorageEngine(null);
+        }
+        WriteBehindQueue queue = new WriteBehindQueue(
+                config.getInt("store.memory.writeBehind.capacity", 10_000),
+                config.getInt("store.memory.writeBehind.batchSize", 100));
+        InMemoryStorageEngine engine = new InMemoryStorageEngine(queue);
+        try {
+            engine.loadFromDatabase();
+        } catch (SQLException e) {
+            queue.shutdown(0);
+            throw new IllegalStateException("Could not load the store from MySQL: " + e.getMessage(), e);
+        }
+        return engine;
+    }
+
+    private void loadFromDatabase() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM categories");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    putCategory(new Category(rs.getInt("id"), rs.getString("name")));
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(JdbcProductRepository.SELECT_PRODUCTS);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    putProduct(JdbcProductRepository.mapProduct(rs));
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM customers");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    putCustomer(JdbcCustomerRepository.mapCustomer(rs));
+                }
+            }
+            Map<Integer, List<OrderItem>> items = JdbcOrderRepository.findAllItems(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM orders");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Order order = JdbcOrderRepository.mapOrder(rs);
+                    order.setItems(items.getOrDefault(order.getId(), new ArrayList<>()));
+                    putOrder(order);
+                }
+            }
+            JdbcCartRepository.findAll(conn).forEach((customerId, cart) -> carts.put(customerId, Map.copyOf(cart)));
+        }
+        System.out.println("In-memory storage loaded " + products.size() + " products, " + categories.size()
+                + " categories, " + customers.size() + " customers, " + orders.size() + " orders and "
+                + carts.size() + " saved carts.");
+    }
+
+    // --- Raw puts, also used while loading ---
+
+    private void putCategory(Category category) {
+        categories.put(category.getId(), category);
+        categoryIds.accumulateAndGet(category.getId(), Math::max);
+    }
+
+    private void putProduct(Product product) {
+        products.put(product.getId(), product);
+        productIds.accumulateAndGet(product.getId(), Math::max);
+    }
+
+    /**
+     * Folds a username to the form it is compared in, like the case-insensitive collation of customers.username.
+     */
+    private static String usernameKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private void putCustomer(Customer customer) {
+        customers.put(customer.getId(), customer);
+        customersByUsername.put(usernameKey(customer.getUsername()), customer);
+        customerIds.accumulateAndGet(customer.getId(), Math::max);
+    }
+
+    private void putOrder(Order order) {
+        orders.put(order.getId(), order);
+        for (OrderItem item : order.getItems()) {
+            unitsOrdered.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        orderIds.accumulateAndGet(order.getId(), Math::max);
+    }
+
+    private void persist(String description, WriteBehindQueue.Write write) {
+        if (writeBehind != null) {
+            writeBehind.submit(description, write);
+        }
+    }
+
+    /**
+     * Returns the write-behind queue, or null when running without a database.
+     */
+    public WriteBehindQueue getWriteBehindQueue() {
+        return writeBehind;
+    }
+
+    @Override
+    public ProductRepository products() {
+        return productRepository;
+    }
+
+    @Override
+    public CategoryRepository categories() {
+        return categoryRepository;
+    }
+
+    @Override
+    public CustomerRepository customers() {
+        return customerRepository;
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orderRepository;
+    }
+
+    @Override
+    public CartRepository carts() {
+        return cartRepository;
+    }
+
+    @Override
+    public String getName() {
+        return writeBehind != null ? "memory (write-behind to MySQL)" : "memory";
+    }
+
+    @Override
+    public void shutdown() {
+        if (writeBehind != null) {
+            writeBehind.shutdown(30_000);
+        }
+    }
+
+    // --- Copy helpers ---
+
+    static Product copy(Product p) {
+        return new Product(p.getId(), p.getName(), p.getDescription(), p.getPrice(), p.getStockQuantity(),
+                p.getCategory(), p.getBrand(), p.getSize(), p.getColor());
+    }
+
+    static Customer copy(Customer c) {
+        return new Customer(c.getId(), c.getUsername(), c.getPassword(), c.getName(), c.getAddress());
+    }
+
+    static Order copy(Order o) {
+        List<OrderItem> items = new ArrayList<>(o.getItems().size());
+        for (OrderItem item : o.getItems()) {
+            items.add(new OrderItem(item.getProductId(), item.getQuantity(), item.getPrice()));
+        }
+        return new Order(o.getId(), o.getCustomerId(), o.getOrderDate(), items, o.getTotalAmount(), o.getStatus());
+    }
+
+    /**
+     * Copies an order without its items, for findById (which, like the JDBC engine's, reads the header only).
+     */
+    static Order copyHeader(Order o) {
+        return new Order(o.getId(), o.getCustomerId(), o.getOrderDate(), new ArrayList<>(), o.getTotalAmount(), o.getStatus());
+    }
+
+    private static SQLException constraintViolation(String message) {
+        return new SQLIntegrityConstraintViolationException(message, "23000");
+    }
+
+    /**
+     * Drops deleted products from the saved carts, like the cascading foreign key from carts to products.
+     * Called under the write lock; the database side is handled by the cascade itself.
+     */
+    private void removeFromCarts(Collection<Integer> productIds) {
+        carts.replaceAll((customerId, cart) -> {
+            if (Collections.disjoint(cart.keySet(), productIds)) {
+                return cart;
+            }
+            Map<Integer, Integer> remaining = new HashMap<>(cart);
+            remaining.keySet().removeAll(productIds);
+            return Map.copyOf(remaining);
+        });
+        carts.values().removeIf(Map::isEmpty);
+    }
+
+    private Category findCategoryByName(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (Category category : categories.values()) {
+            if (category.getName().equals(name)) {
+                return category;
+            }
+        }
+        return null;
+    }
+
+    // --- Repositories ---
+
+    private final class MemoryProducts implements ProductRepository {
+
+        @Override
+        public List<Product> findAll() {
+            List<Product> result = new ArrayList<>(products.size());
+            for (Product product : products.values()) {
+                result.add(copy(product));
+            }
+            result.sort(Comparator.comparingInt(Product::getId));
+            return result;
+        }
+
+        @Override
+        public List<Product> findPage(ProductFilter filter, boolean categorizedOnly, ProductSort sort, ProductCursor after, int limit) {
+            List<Product> matches = new ArrayList<>();
+            for (Product product : products.values()) {
+                if ((categorizedOnly && product.getCategory() == null) || !filter.matches(product)
+                        || (after != null && !after.precedes(product))) {
+                    continue;
+                }
+                matches.add(product);
+            }
+            matches.sort(ProductCursor.comparator(sort));
+            List<Product> result = new ArrayList<>(Math.min(limit, matches.size()));
+            for (int i = 0; i < limit && i < matches.size(); i++) {
+                result.add(copy(matches.get(i)));
+            }
+            return result;
+        }
+
+        @Override
+        public Product findById(int productId) {
+            Product product = products.get(productId);
+            return product != null ? copy(product) : null;
+        }
+
+        @Override
+        public List<Product> findByIds(Collection<Integer> ids) {
+            List<Product> result = new ArrayList<>(ids.size());
+            for (Integer id : ids) {
+                Product product = products.get(id);
+                if (product != null) {
+                    result.add(copy(product));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public int findStock(int productId) {
+            Product product = products.get(productId);
+            return product != null ? product.getStockQuantity() : -1;
+        }
+
+        @Override
+        public int add(Product product) {
+            writeLock.lock();
+            try {
+                Product stored = copy(product);
+                Category category = findCategoryByName(product.getCategory());
+                stored.setCategory(category != null ? category.getName() : null);
+                stored.setId(productIds.incrementAndGet());
+                products.put(stored.getId(), stored);
+                Product toPersist = copy(stored);
+                persist("add product " + stored.getId(), conn -> JdbcProductRepository.insert(conn, toPersist, true));
+                return stored.getId();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public boolean update(Product product) {
+            writeLock.lock();
+            try {
+                if (!products.containsKey(product.getId())) {
+                    return false;
+                }
+                Product stored = copy(product);
+                Category category = findCategoryByName(product.getCategory());
+                stored.setCategory(category != null ? category.getName() : null);
+                products.put(stored.getId(), stored);
+                Product toPersist = copy(stored);
+                persist("update product " + stored.getId(), conn -> JdbcProductRepository.update(conn, toPersist));
+                return true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public boolean updateStock(int productId, int newQuantity) {
+            writeLock.lock();
+            try {
+                Product current = products.get(productId);
+                if (current == null) {
+                    return false;
+                }
+                Product stored = copy(current);
+                stored.setStockQuantity(newQuantity);
+                products.put(productId, stored);
+                persist("update stock of product " + productId, conn -> JdbcProductRepository.updateStock(conn, productId, newQuantity));
+                return true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public int[] addAll(List<Product> toAdd) {
+            writeLock.lock();
+            try {
+                int[] ids = new int[toAdd.size()];
+                List<Product> toPersist = new ArrayList<>(toAdd.size());
+                for (int i = 0; i < ids.length; i++) {
+                    Product stored = copy(toAdd.get(i));
+                    Category category = findCategoryByName(stored.getCategory());
+                    stored.setCategory(category != null ? category.getName() : null);
+                    stored.setId(productIds.incrementAndGet());
+                    products.put(stored.getId(), stored);
+                    toPersist.add(copy(stored));
+                    ids[i] = stored.getId();
+                }
+                if (!toPersist.isEmpty()) {
+                    persist("add " + toPersist.size() + " products", conn -> JdbcProductRepository.insertAll(conn, toPersist, true));
+                }
+                return ids;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public Set<Integer> updateAll(List<Product> toUpdate) {
+            writeLock.lock();
+            try {
+                Set<Integer> updated = new HashSet<>();
+                List<Product> toPersist = new ArrayList<>(toUpdate.size());
+                for (Product product : toUpdate) {
+                    if (!products.containsKey(product.getId())) {
+                        continue;
+                    }
+                    Product stored = copy(product);
+                    Category category = findCategoryByName(stored.getCategory());
+                    stored.setCategory(category != null ? category.getName() : null);
+                    products.put(stored.getId(), stored);
+                    toPersist.add(copy(stored));
+                    updated.add(stored.getId());
+                }
+                if (!toPersist.isEmpty()) {
+                    persist("update " + toPersist.size() + " products", conn -> JdbcProductRepository.updateAll(conn, toPersist));
+                }
+                return updated;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public Set<Integer> updateStocks(Map<Integer, Integer> quantities) {
+            writeLock.lock();
+            try {
+                Map<Integer, Integer> toPersist = new LinkedHashMap<>();
+                for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                    Product current = products.get(entry.getKey());
+                    if (current == null) {
+                        continue;
+                    }
+                    Product stored = copy(current);
+                    stored.setStockQuantity(entry.getValue());
+                    products.put(stored.getId(), stored);
+                    toPersist.put(entry.getKey(), entry.getValue());
+                }
+                if (!toPersist.isEmpty()) {
+                    persist("update stock of " + toPersist.size() + " products", conn -> JdbcProductRepository.updateStocks(conn, toPersist));
+                }
+                return new HashSet<>(toPersist.keySet());
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public boolean delete(int productId) throws SQLException {
+            writeLock.lock();
+            try {
+                if (unitsOrdered.containsKey(productId)) {
+                    // Mirrors the foreign key from order_items to products.
+                    throw constraintViolation("Product " + productId + " is referenced by existing orders.");
+                }
+                if (products.remove(productId) == null) {
+                    return false;
+                }
+                removeFromCarts(Collections.singleton(productId));
+                persist("delete product " + productId, conn -> JdbcProductRepository.delete(conn, productId));
+                return true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isOrdered(int productId) {
+            return unitsOrdered.containsKey(productId);
+        }
+
+        @Override
+        public int count() {
+            return products.size();
+        }
+    }
+
+    private final class MemoryCategories implements CategoryRepository {
+
+        @Override
+        public List<Category> findAll() {
+            List<Category> result = new ArrayList<>();
+            for (Category category : categories.values()) {
+                result.add(new Category(category.getId(), category.getName()));
+            }
+            result.sort(Comparator.comparing(Category::getName));
+            return result;
+        }
+
+        @Override
+        public List<Product> findProducts(int categoryId) {
+            List<Product> result = new ArrayList<>();
+            Category category = categories.get(categoryId);
+            if (category == null) {
+                return result;
+            }
+            for (Product product : products.values()) {
+                if (category.getName().equals(product.getCategory())) {
+                    result.add(copy(product));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public int add(String name) throws SQLException {
+            writeLock.lock();
+            try {
+                if (findCategoryByName(name) != null) {
+                    throw constraintViolation("Duplicate category name '" + name + "'.");
+                }
+                int id = categoryIds.incrementAndGet();
+                categories.put(id, new Category(id, name));
+                persist("add category " + id, conn -> JdbcCategoryRepository.insert(conn, id, name));
+                return id;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public boolean update(Category category) throws SQLException {
+            writeLock.lock();
+            try {
+                Category current = categories.get(category.getId());
+                if (current == null) {
+                    return false;
+                }
+                Category sameName = findCategoryByName(category.getName());
+                if (sameName != null && sameName.getId() != category.getId()) {
+                    throw constraintViolation("Duplicate category name '" + category.getName() + "'.");
+                }
+                String oldName = current.getName();
+                Category renamed = new Category(category.getId(), category.getName());
+                categories.put(renamed.getId(), renamed);
+                // Products refer to their category by name, so carry the new name over.
+                for (Product product : products.values()) {
+                    if (oldName.equals(product.getCategory())) {
+                        Product moved = copy(product);
+                        moved.setCategory(renamed.getName());
+                        products.put(moved.getId(), moved);
+                    }
+                }
+                persist("rename category " + renamed.getId(), conn -> JdbcCategoryRepository.update(conn, renamed));
+                return true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public boolean deleteWithProducts(int categoryId) throws SQLException {
+            writeLock.lock();
+            try {
+                Category category = categories.get(categoryId);
+                if (category == null) {
+                    return false;
+                }
+                List<Integer> productIdsInCategory = new ArrayList<>();
+                for (Product product : products.values()) {
+                    if (category.getName().equals(product.getCategory())) {
+                        if (unitsOrdered.containsKey(product.getId())) {
+                            throw constraintViolation("Product " + product.getId() + " is referenced by existing orders.");
+                        }
+                        productIdsInCategory.add(product.getId());
+                    }
+                }
+                productIdsInCategory.forEach(products::remove);
+                removeFromCarts(productIdsInCategory);
+                categories.remove(categoryId);
+                persist("delete category " + categoryId, conn -> JdbcCategoryRepository.deleteWithProducts(conn, categoryId));
+                return true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private final class MemoryCustomers implements CustomerRepository {
+
+        @Override
+        public Customer findByUsername(String username) {
+            Customer customer = username != null ? customersByUsername.get(usernameKey(username)) : null;
+            return customer != null ? copy(customer) : null;
+        }
+
+        @Override
+        public Customer findById(int customerId) {
+            Customer customer = customers.get(customerId);
+            return customer != null ? copy(customer) : null;
+        }
+
+        @Override
+        public int add(Customer customer) throws SQLException {
+            writeLock.lock();
+            try {
+                if (customersByUsername.containsKey(usernameKey(customer.getUsername()))) {
+                    throw constraintViolation("Duplicate username '" + customer.getUsername() + "'.");
+                }
+                Customer stored = copy(customer);
+                stored.setId(customerIds.incrementAndGet());
+                putCustomer(stored);
+                Customer toPersist = copy(stored);
+                persist("add customer " + stored.getId(), conn -> JdbcCustomerRepository.insert(conn, toPersist, true));
+                return stored.getId();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public int count() {
+            return customers.size();
+        }
+    }
+
+    private final class MemoryOrders implements OrderRepository {
+
+        @Override
+        public Order placeOrder(int customerId, Map<Integer, Integer> cart) throws SQLException {
+            writeLock.lock();
+            try {
+                // 1. Verify every line before changing anything.
+                double totalAmount = 0;
+                for (Map.Entry<Integer, Integer> entry : cart.entrySet()) {
+                    Product product = products.get(entry.getKey());
+                    if (product == null) {
+                        throw new SQLException("Product not found with ID: " + entry.getKey());
+                    }
+                    if (product.getStockQuantity() < entry.getValue()) {
+                        throw new SQLException("Not enough stock for product: " + product.getName() + " (ID: " + entry.getKey() + ")");
+                    }
+                    totalAmount += product.getPrice() * entry.getValue();
+                }
+
+                // 2. Record the order at current prices and take the units out of stock.
+                List<OrderItem> items = new ArrayList<>(cart.size());
+                Map<Integer, Integer> newStock = new LinkedHashMap<>();
+                for (Map.Entry<Integer, Integer> entry : cart.entrySet()) {
+                    Product updated = copy(products.get(entry.getKey()));
+                    updated.setStockQuantity(updated.getStockQuantity() - entry.getValue());
+                    products.put(updated.getId(), updated);
+                    newStock.put(updated.getId(), updated.getStockQuantity());
+                    items.add(new OrderItem(updated.getId(), entry.getValue(), updated.getPrice()));
+                }
+                Order order = new Order(orderIds.incrementAndGet(), customerId, new Date(), items, totalAmount, Order.Status.PENDING);
+                putOrder(order);
+
+                Order toPersist = copy(order);
+                persist("place order " + order.getId(), conn -> {
+                    JdbcOrderRepository.insertWithItems(conn, toPersist);
+                    for (Map.Entry<Integer, Integer> stock : newStock.entrySet()) {
+                        JdbcProductRepository.updateStock(conn, stock.getKey(), stock.getValue());
+                    }
+                });
+                return copy(order);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public Order findById(int orderId) {
+            Order order = orders.get(orderId);
+            return order != null ? copyHeader(order) : null;
+        }
+
+        @Override
+        public List<Order> findByCustomer(int customerId) {
+            return findPage(customerId, new OrderFilter(), null, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public List<Order> findAll() {
+            return findPage(null, new OrderFilter(), null, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public List<Order> findPage(Integer customerId, OrderFilter filter, OrderCursor after, int limit) {
+            List<Order> matches = new ArrayList<>();
+            for (Order order : orders.values()) {
+                if ((customerId == null || order.getCustomerId() == customerId) && filter.matches(order)
+                        && (after == null || after.precedes(order))) {
+                    matches.add(order);
+                }
+            }
+            matches.sort(OrderCursor.NEWEST_FIRST);
+            List<Order> result = new ArrayList<>(Math.min(limit, matches.size()));
+            for (int i = 0; i < limit && i < matches.size(); i++) {
+                result.add(copy(matches.get(i)));
+            }
+            return result;
+        }
+
+        /**
+         * Walks the order IDs upwards instead of sorting a copy of the map, so the stream holds no more
+         * than one chunk. Orders placed after the stream was opened are not included.
+         */
+        @Override
+        public OrderStream stream(OrderFilter filter, int fetchSize) {
+            int lastId = orderIds.get();
+            return new OrderStream() {
+                private int nextId = 1;
+
+                @Override
+                public List<Order> next(int max) {
+                    List<Order> chunk = new ArrayList<>();
+                    while (nextId <= lastId && chunk.size() < max) {
+                        Order order = orders.get(nextId++);
+                        if (order != null && filter.matches(order)) {
+                            chunk.add(copy(order));
+                        }
+                    }
+                    return chunk;
+                }
+
+                @Override
+                public void close() {
+                    nextId = lastId + 1;
+                }
+            };
+        }
+
+        @Override
+        public boolean updateStatus(int orderId, Order.Status newStatus) {
+            writeLock.lock();
+            try {
+                Order current = orders.get(orderId);
+                if (current == null) {
+                    return false;
+                }
+                Order updated = copy(current);
+                updated.setStatus(newStatus);
+                orders.put(orderId, updated);
+                persist("update status of order " + orderId, conn -> JdbcOrderRepository.updateStatus(conn, orderId, newStatus));
+                return true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public int count() {
+            return orders.size();
+        }
+
+        @Override
+        public double sumDeliveredRevenue() {
+            double sum = 0;
+            for (Order order : orders.values()) {
+                if (order.getStatus() == Order.Status.DELIVERED) {
+                    sum += order.getTotalAmount();
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        public List<DailyFigure> findDailyUnitsSold() {
+            Map<Long, Map<Integer, Double>> units = new HashMap<>();
+            for (Order order : orders.values()) {
+                Map<Integer, Double> day = units.computeIfAbsent(epochDay(order.getOrderDate()), k -> new HashMap<>());
+                for (OrderItem item : order.getItems()) {
+                    day.merge(item.getProductId(), (double) item.getQuantity(), Double::sum);
+                }
+            }
+            return daily(units);
+        }
+
+        @Override
+        public List<DailyFigure> findDailyDeliveredSpending() {
+            Map<Long, Map<Integer, Double>> spending = new HashMap<>();
+            for (Order order : orders.values()) {
+                if (order.getStatus() == Order.Status.DELIVERED) {
+                    spending.computeIfAbsent(epochDay(order.getOrderDate()), k -> new HashMap<>())
+                            .merge(order.getCustomerId(), order.getTotalAmount(), Double::sum);
+                }
+            }
+            return daily(spending);
+        }
+
+        private List<DailyFigure> daily(Map<Long, Map<Integer, Double>> values) {
+            List<DailyFigure> figures = new ArrayList<>();
+            values.forEach((day, byId) -> byId.forEach((id, value) -> figures.add(new DailyFigure(day, id, value))));
+            return figures;
+        }
+
+        private long epochDay(Date date) {
+            return Math.floorDiv(date.getTime(), TimeUnit.DAYS.toMillis(1));
+        }
+    }
+
+    private final class MemoryCarts implements CartRepository {
+
+        @Override
+        public Map<Integer, Integer> findByCustomer(int customerId) {
+            return new HashMap<>(carts.getOrDefault(customerId, Collections.emptyMap()));
+        }
+
+        @Override
+        public void saveAll(Map<Integer, Map<Integer, Integer>> toSave) throws SQLException {
+            if (toSave.isEmpty()) {
+                return;
+            }
+            writeLock.lock();
+            try {
+                Map<Integer, Map<Integer, Integer>> toPersist = new HashMap<>();
+                for (Map.Entry<Integer, Map<Integer, Integer>> entry : toSave.entrySet()) {
+                    // Mirrors the foreign keys from carts to customers and products.
+                    if (!customers.containsKey(entry.getKey())) {
+                        throw constraintViolation("Customer " + entry.getKey() + " does not exist.");
+                    }
+                    for (Integer productId : entry.getValue().keySet()) {
+                        if (!products.containsKey(productId)) {
+                            throw constraintViolation("Product " + productId + " does not exist.");
+                        }
+                    }
+                    toPersist.put(entry.getKey(), Map.copyOf(entry.getValue()));
+                }
+                toPersist.forEach((customerId, cart) -> {
+                    if (cart.isEmpty()) {
+                        carts.remove(customerId);
+                    } else {
+                        carts.put(customerId, cart);
+                    }
+                });
+                persist("save " + toPersist.size() + " carts", conn -> JdbcCartRepository.replace(conn, toPersist));
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+}
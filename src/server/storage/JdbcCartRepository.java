@@ -0,0 +1,103 @@
+package server.storage;
+
+import server.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * MySQL implementation of {@link CartRepository}.
+ */
+class JdbcCartRepository implements CartRepository {
+
+    @Override
+    public Map<Integer, Integer> findByCustomer(int customerId) throws SQLException {
+        String sql = "SELECT productId, quantity FROM carts WHERE customerId = ?";
+        Map<Integer, Integer> cart = new HashMap<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, customerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    cart.put(rs.getInt("productId"), rs.getInt("quantity"));
+                }
+            }
+        }
+        return cart;
+    }
+
+    @Override
+    public void saveAll(Map<Integer, Map<Integer, Integer>> carts) throws SQLException {
+        if (carts.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                replace(conn, carts);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    e.addSuppressed(ex);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true); // Connections go back to the pool in auto-commit mode.
+            }
+        }
+    }
+
+    // --- Connection-level helpers ---
+
+    /**
+     * Returns every saved cart, by customer ID.
+     */
+    static Map<Integer, Map<Integer, Integer>> findAll(Connection conn) throws SQLException {
+        Map<Integer, Map<Integer, Integer>> carts = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT customerId, productId, quantity FROM carts");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                carts.computeIfAbsent(rs.getInt("customerId"), id -> new HashMap<>())
+                        .put(rs.getInt("productId"), rs.getInt("quantity"));
+            }
+        }
+        return carts;
+    }
+
+    /**
+     * Replaces the saved carts of the given customers with one batched DELETE and one batched INSERT.
+     * Customers are handled in ID order, so concurrent writers lock the rows in the same order.
+     */
+    static void replace(Connection conn, Map<Integer, Map<Integer, Integer>> carts) throws SQLException {
+        Map<Integer, Map<Integer, Integer>> sorted = new TreeMap<>(carts);
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM carts WHERE customerId = ?")) {
+            for (Integer customerId : sorted.keySet()) {
+                pstmt.setInt(1, customerId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO carts (customerId, productId, quantity) VALUES (?, ?, ?)")) {
+            int rows = 0;
+            for (Map.Entry<Integer, Map<Integer, Integer>> cart : sorted.entrySet()) {
+                for (Map.Entry<Integer, Integer> line : cart.getValue().entrySet()) {
+                    pstmt.setInt(1, cart.getKey());
+                    pstmt.setInt(2, line.getKey());
+                    pstmt.setInt(3, line.getValue());
+                    pstmt.addBatch();
+                    rows++;
+                }
+            }
+            if (rows > 0) {
+                pstmt.executeBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package server.storage;
+
+import common.Category;
+import common.Product;
+import server.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MySQL implementation of {@link CategoryRepository}.
+ */
+class JdbcCategoryRepository implements CategoryRepository {
+
+    @Override
+    public List<Category> findAll() throws SQLException {
+        List<Category> categories = new ArrayList<>();
+        String sql = "SELECT * FROM categories ORDER BY name";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                categories.add(new Category(rs.getInt("id"), rs.getString("name")));
+            }
+        }
+        return categories;
+    }
+
+    @Override
+    public List<Product> findProducts(int categoryId) throws SQLException {
+        List<Product> products = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(JdbcProductRepository.SELECT_PRODUCTS + " WHERE p.categoryId = ?")) {
+            pstmt.setInt(1, categoryId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(JdbcProductRepository.mapProduct(rs));
+                }
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public int add(String name) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            return insert(conn, 0, name);
+        }
+    }
+
+    @Override
+    public boolean update(Category category) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            return update(conn, category);
+        }
+    }
+
+    @Override
+    public boolean deleteWithProducts(int categoryId) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = DatabaseManager.getConnection();
+            conn.setAutoCommit(false); // Start transaction
+            boolean deleted = deleteWithProducts(conn, categoryId);
+            if (deleted) {
+                conn.commit();
+            } else {
+                conn.rollback();
+            }
+            return deleted;
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    System.err.println("Error on rollback: " + ex.getMessage());
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    System.err.println("Error restoring auto-commit: " + e.getMessage());
+                }
+                conn.close();
+            }
+        }
+    }
+
+    // --- Connection-level helpers ---
+
+    /**
+     * Inserts a category.
+     * @param id the ID to use, or 0 to let MySQL generate one.
+     * @return the category's ID.
+     */
+    static int insert(Connection conn, int id, String name) throws SQLException {
+        String sql = id > 0
+                ? "INSERT INTO categories (name, id) VALUES (?, ?)"
+                : "INSERT INTO categories (name) VALUES (?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, name);
+            if (id > 0) {
+                pstmt.setInt(2, id);
+            }
+            pstmt.executeUpdate();
+            if (id > 0) {
+                return id;
+            }
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return keys.getInt(1);
+                }
+            }
+            throw new SQLException("Inserting category '" + name + "' did not return an ID.");
+        }
+    }
+
+    static boolean update(Connection conn, Category category) throws SQLException {
+        String sql = "UPDATE categories SET name = ? WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, category.getName());
+            pstmt.setInt(2, category.getId());
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Deletes the products of a category and then the category, on a connection whose
+     * transaction is managed by the caller.
+     */
+    static boolean deleteWithProducts(Connection conn, int categoryId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM products WHERE categoryId = ?")) {
+            pstmt.setInt(1, categoryId);
+            pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM categories WHERE id = ?")) {
+            pstmt.setInt(1, categoryId);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package server.storage;
+
+import common.Customer;
+import server.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * MySQL implementation of {@link CustomerRepository}.
+ */
+class JdbcCustomerRepository implements CustomerRepository {
+
+    static Customer mapCustomer(ResultSet rs) throws SQLException {
+        return new Customer(
+                rs.getInt("id"),
+                rs.getString("username"),
+                rs.getString("password"),
+                rs.getString("name"),
+                rs.getString("address")
+        );
+    }
+
+    @Override
+    public Customer findByUsername(String username) throws SQLException {
+        // A lookup on the unique index of username.
+        String sql = "SELECT * FROM customers WHERE username = ?";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapCustomer(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public Customer findById(int customerId) throws SQLException {
+        String sql = "SELECT * FROM customers WHERE id = ?";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, customerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapCustomer(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public int add(Customer customer) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            return insert(conn, customer, false);
+        }
+    }
+
+    @Override
+    public int count() throws SQLException {
+        return JdbcStorageEngine.count("SELECT COUNT(*) FROM customers");
+    }
+
+    // --- Connection-level helpers ---
+
+    /**
+     * Inserts a customer.
+     * @param withId true to insert the customer's own ID instead of letting MySQL generate one.
+     * @return the customer's ID.
+     */
+    static int insert(Connection conn, Customer customer, boolean withId) throws SQLException {
+        String sql = withId
+                ? "INSERT INTO customers (username, password, name, address, id) VALUES (?, ?, ?, ?, ?)"
+                : "INSERT INTO customers (username, password, name, address) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, customer.getUsername());
+            pstmt.setString(2, customer.getPassword());
+            pstmt.setString(3, customer.getName());
+            pstmt.setString(4, customer.getAddress());
+            if (withId) {
+                pstmt.setInt(5, customer.getId());
+            }
+            pstmt.executeUpdate();
+            if (withId) {
+                return customer.getId();
+            }
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return keys.getInt(1);
+                }
+            }
+            throw new SQLException("Inserting customer '" + customer.getUsername() + "' did not return an ID.");
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package server.storage;
+
+import common.Order;
+import common.OrderFilter;
+import common.OrderItem;
+import server.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MySQL implementation of {@link OrderRepository}.
+ */
+class JdbcOrderRepository implements OrderRepository {
+
+    static Order mapOrder(ResultSet rs) throws SQLException {
+        return new Order(
+                rs.getInt("id"),
+                rs.getInt("customerId"),
+                rs.getTimestamp("orderDate"),
+                new ArrayList<>(), // Filled in by queries that join the items.
+                rs.getDouble("totalAmount"),
+                Order.Status.valueOf(rs.getString("status"))
+        );
+    }
+
+    /**
+     * Places an order in a fixed number of round trips, however many lines the cart has:
+     * one locking read of all cart products, the order insert, one batch of conditional stock
+     * decrements and one batch of order_items inserts. The products are locked in ID order
+     * (SELECT ... FOR UPDATE), so concurrent checkouts of the same products wait for each other
+     * instead of overselling, and cannot deadlock on each other's rows.
+     */
+    @Override
+    public Order placeOrder(int customerId, Map<Integer, Integer> cart) throws SQLException {
+        Connection conn = null;
+        Order createdOrder;
+
+        try {
+            conn = DatabaseManager.getConnection();
+            conn.setAutoCommit(false); // Start transaction: all or nothing.
+
+            // 1. Lock all cart products and read their price and stock in one query.
+            List<Integer> productIds = new ArrayList<>(cart.keySet());
+            Collections.sort(productIds);
+            String lockSql = "SELECT id, name, price, stockQuantity FROM products WHERE id IN ("
+                    + JdbcProductRepository.placeholders(productIds.size()) + ") ORDER BY id FOR UPDATE";
+            List<OrderItem> items = new ArrayList<>(productIds.size());
+            double totalAmount = 0;
+            try (PreparedStatement ps = conn.prepareStatement(lockSql)) {
+                for (int i = 0; i < productIds.size(); i++) {
+                    ps.setInt(i + 1, productIds.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    Map<Integer, Boolean> found = new HashMap<>();
+                    while (rs.next()) {
+                        int productId = rs.getInt("id");
+                        int quantity = cart.get(productId);
+                        if (rs.getInt("stockQuantity") < quantity) {
+                            throw new SQLException("Not enough stock for product: " + rs.getString("name") + " (ID: " + productId + ")");
+                        }
+                        double price = rs.getDouble("price");
+                        items.add(new OrderItem(productId, quantity, price));
+                        totalAmount += price * quantity;
+                        found.put(productId, Boolean.TRUE);
+                    }
+                    for (Integer productId : productIds) {
+                        if (!found.containsKey(productId)) {
+                            throw new SQLException("Product not found with ID: " + productId);
+                        }
+                    }
+                }
+            }
+
+            // 2. Create the main order record in the 'orders' table.
+            String createOrderSql = "INSERT INTO orders (customerId, orderDate, totalAmount, status) VALUES (?, ?, ?, ?)";
+            Date orderDate = new Date();
+            int orderId;
+            try (PreparedStatement psOrder = conn.prepareStatement(createOrderSql, Statement.RETURN_GENERATED_KEYS)) {
+                psOrder.setInt(1, customerId);
+                psOrder.setTimestamp(2, new Timestamp(orderDate.getTime()));
+                psOrder.setDouble(3, totalAmount);
+                psOrder.setString(4, Order.Status.PENDING.name());
+                psOrder.executeUpdate();
+                try (ResultSet generatedKeys = psOrder.getGeneratedKeys()) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("Creating the order did not return an ID.");
+                    }
+                    orderId = generatedKeys.getInt(1);
+                }
+            }
+
+            // 3. Decrement the stock, but only where enough is left. The rows are locked, so this
+            // cannot fail after the check above; the condition guards the invariant regardless.
+            String updateStockSql = "UPDATE products SET stockQuantity = stockQuantity - ? WHERE id = ? AND stockQuantity >= ?";
+            try (PreparedStatement psUpdateStock = conn.prepareStatement(updateStockSql)) {
+                for (OrderItem item : items) {
+                    psUpdateStock.setInt(1, item.getQuantity());
+                    psUpdateStock.setInt(2, item.getProductId());
+                    psUpdateStock.setInt(3, item.getQuantity());
+                    psUpdateStock.addBatch();
+                }
+                int[] counts = psUpdateStock.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    // With rewriteBatchedStatements the driver may only report SUCCESS_NO_INFO.
+                    if (counts[i] == 0) {
+                        throw new SQLException("Not enough stock for product ID: " + items.get(i).getProductId());
+                    }
+                }
+            }
+
+            // 4. Add all order lines in one batch.
+            insertItems(conn, orderId, items);
+
+            conn.commit(); // If all steps were successful, commit the transaction to the database.
+            createdOrder = new Order(orderId, customerId, orderDate, items, totalAmount, Order.Status.PENDING);
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback(); // If any SQL error occurs, roll back the entire transaction.
+                    System.err.println("Transaction rolled back.");
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true); // Always restore auto-commit mode.
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+                conn.close();
+            }
+        }
+
+        return createdOrder;
+    }
+
+    @Override
+    public Order findById(int orderId) throws SQLException {
+        String sql = "SELECT * FROM orders WHERE id = ?";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, orderId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapOrder(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public List<Order> findByCustomer(int customerId) throws SQLException {
+        return findPage(customerId, new OrderFilter(), null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Order> findAll() throws SQLException {
+        return findPage(null, new OrderFilter(), null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Loads a page of orders and all of their items in one statement. The derived table picks the
+     * page of orders (keyset condition on orderDate and id, then LIMIT) and only those orders are
+     * joined with order_items, so there is no per-order item query and LIMIT counts orders, not items.
+     */
+    @Override
+    public List<Order> findPage(Integer customerId, OrderFilter filter, OrderCursor after, int limit) throws SQLException {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        appendConditions(where, params, "", customerId, filter);
+        if (after != null) {
+            Timestamp date = new Timestamp(after.getOrderDate());
+            where.append(" AND (orderDate < ? OR (orderDate = ? AND id < ?))");
+            Collections.addAll(params, date, date, after.getId());
+        }
+        String limitClause = "";
+        if (limit != Integer.MAX_VALUE) {
+            limitClause = " LIMIT ?";
+            params.add(limit);
+        }
+        String sql = "SELECT o.*, oi.productId, oi.quantity, oi.price AS itemPrice " +
+                     "FROM (SELECT * FROM orders" + where + " ORDER BY orderDate DESC, id DESC" + limitClause + ") o " +
+                     "LEFT JOIN order_items oi ON oi.orderId = o.id " +
+                     "ORDER BY o.orderDate DESC, o.id DESC, oi.id";
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return mapOrdersWithItems(rs);
+            }
+        }
+    }
+
+    /**
+     * Reads the orders with one joined query on a dedicated connection. The statement is forward-only
+     * and read-only with a fetch size, so with useCursorFetch (see db.url) MySQL keeps the result in a
+     * server-side cursor and the driver holds only fetchSize rows at a time instead of the whole history.
+     * This prepareStatement variant bypasses the statement cache, which is meant for short-lived statements.
+     */
+    @Override
+    public OrderStream stream(OrderFilter filter, int fetchSize) throws SQLException {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        appendConditions(where, params, "o.", null, filter);
+        String sql = "SELECT o.*, oi.productId, oi.quantity, oi.price AS itemPrice " +
+                     "FROM orders o LEFT JOIN order_items oi ON oi.orderId = o.id" + where +
+                     " ORDER BY o.id, oi.id";
+        Connection conn = DatabaseManager.getConnection();
+        try {
+            PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(Math.max(1, fetchSize));
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            return new JdbcOrderStream(conn, pstmt, pstmt.executeQuery());
+        } catch (SQLException | RuntimeException e) {
+            conn.close(); // Also closes the statement.
+            throw e;
+        }
+    }
+
+    /**
+     * Folds the rows of the joined stream query into orders chunk by chunk. The order whose rows
+     * straddle a chunk boundary is carried over to the next chunk.
+     */
+    private static final class JdbcOrderStream implements OrderStream {
+        private final Connection conn;
+        private final PreparedStatement pstmt;
+        private final ResultSet rs;
+        private Order pending; // The order the last row read belongs to; it may have more rows.
+        private boolean closed;
+
+        JdbcOrderStream(Connection conn, PreparedStatement pstmt, ResultSet rs) {
+            this.conn = conn;
+            this.pstmt = pstmt;
+            this.rs = rs;
+        }
+
+        @Override
+        public List<Order> next(int max) throws SQLException {
+            List<Order> orders = new ArrayList<>();
+            while (!closed && orders.size() < max) {
+                if (!rs.next()) {
+                    if (pending != null) {
+                        orders.add(pending);
+                        pending = null;
+                    }
+                    close(); // Give the connection back as soon as the last row is read.
+                    break;
+                }
+                int orderId = rs.getInt("id");
+                if (pending != null && pending.getId() != orderId) {
+                    orders.add(pending);
+                    pending = null;
+                }
+                if (pending == null) {
+                    pending = mapOrder(rs);
+                }
+                int productId = rs.getInt("productId");
+                if (!rs.wasNull()) {
+                    pending.getItems().add(new OrderItem(productId, rs.getInt("quantity"), rs.getDouble("itemPrice")));
+                }
+            }
+            return orders;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                rs.close();
+                pstmt.close();
+            } finally {
+                conn.close(); // Back to the pool even if closing the cursor failed.
+            }
+        }
+    }
+
+    // Appends the customer and filter conditions; prefix qualifies the orders columns, e.g. "o.".
+    private static void appendConditions(StringBuilder where, List<Object> params, String prefix, Integer customerId, OrderFilter filter) {
+        if (customerId != null) {
+            where.append(" AND ").append(prefix).append("customerId = ?");
+            params.add(customerId);
+        }
+        if (filter.getStatus() != null) {
+            where.append(" AND ").append(prefix).append("status = ?");
+            params.add(filter.getStatus().name());
+        }
+        if (filter.getFrom() != null) {
+            where.append(" AND ").append(prefix).append("orderDate >= ?");
+            params.add(new Timestamp(filter.getFrom().getTime()));
+        }
+        if (filter.getTo() != null) {
+            where.append(" AND ").append(prefix).append("orderDate < ?");
+            params.add(new Timestamp(filter.getTo().getTime()));
+        }
+    }
+
+    /**
+     * Folds order rows joined with their items (one row per item, or one row with null item
+     * columns for an order without items) into orders, keeping the row order.
+     */
+    private static List<Order> mapOrdersWithItems(ResultSet rs) throws SQLException {
+        List<Order> orders = new ArrayList<>();
+        Order current = null;
+        while (rs.next()) {
+            int orderId = rs.getInt("id");
+            if (current == null || current.getId() != orderId) {
+                current = mapOrder(rs);
+                orders.add(current);
+            }
+            int productId = rs.getInt("productId");
+            if (!rs.wasNull()) {
+                current.getItems().add(new OrderItem(productId, rs.getInt("quantity"), rs.getDouble("itemPrice")));
+            }
+        }
+        return orders;
+    }
+
+    @Override
+    public boolean updateStatus(int orderId, Order.Status newStatus) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            return updateStatus(conn, orderId, newStatus);
+        }
+    }
+
+    @Override
+    public int count() throws SQLException {
+        return JdbcStorageEngine.count("SELECT COUNT(*) FROM orders");
+    }
+
+    @Override
+    public double sumDeliveredRevenue() throws SQLException {
+        String sql = "SELECT SUM(totalAmount) FROM orders WHERE status = 'DELIVERED'";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getDouble(1) : 0;
+        }
+    }
+
+    @Override
+    public List<DailyFigure> findDailyUnitsSold() throws SQLException {
+        String sql = "SELECT TO_DAYS(o.orderDate) - TO_DAYS('1970-01-01') AS epochDay, oi.productId, SUM(oi.quantity) " +
+                     "FROM order_items oi " +
+                     "JOIN orders o ON oi.orderId = o.id " +
+                     "GROUP BY epochDay, oi.productId";
+        return findDaily(sql);
+    }
+
+    @Override
+    public List<DailyFigure> findDailyDeliveredSpending() throws SQLException {
+        String sql = "SELECT TO_DAYS(orderDate) - TO_DAYS('1970-01-01') AS epochDay, customerId, SUM(totalAmount) " +
+                     "FROM orders " +
+                     "WHERE status = 'DELIVERED' " +
+                     "GROUP BY epochDay, customerId";
+        return findDaily(sql);
+    }
+
+    // The DATETIME columns hold UTC times (serverTimezone=UTC), so TO_DAYS yields UTC days.
+    private List<DailyFigure> findDaily(String sql) throws SQLException {
+        List<DailyFigure> figures = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                figures.add(new DailyFigure(rs.getLong(1), rs.getInt(2), rs.getDouble(3)));
+            }
+        }
+        return figures;
+    }
+
+    /**
+     * Loads the items of every order, grouped by order ID. Used to seed the in-memory engine.
+     */
+    static Map<Integer, List<OrderItem>> findAllItems(Connection conn) throws SQLException {
+        Map<Integer, List<OrderItem>> items = new HashMap<>();
+        String sql = "SELECT orderId, productId, quantity, price FROM order_items ORDER BY id";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                items.computeIfAbsent(rs.getInt("orderId"), k -> new ArrayList<>())
+                        .add(new OrderItem(rs.getInt("productId"), rs.getInt("quantity"), rs.getDouble("price")));
+            }
+        }
+        return items;
+    }
+
+    // --- Connection-level helpers ---
+
+    /**
+     * Inserts an order with its own ID together with its items.
+     */
+    static void insertWithItems(Connection conn, Order order) throws SQLException {
+        String orderSql = "INSERT INTO orders (id, customerId, orderDate, totalAmount, status) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(orderSql)) {
+            pstmt.setInt(1, order.getId());
+            pstmt.setInt(2, order.getCustomerId());
+            pstmt.setTimestamp(3, new Timestamp(order.getOrderDate().getTime()));
+            pstmt.setDouble(4, order.getTotalAmount());
+            pstmt.setString(5, order.getStatus().name());
+            pstmt.executeUpdate();
+        }
+        insertItems(conn, order.getId(), order.getItems());
+    }
+
+    /**
+     * Inserts the lines of an order as one batch (a single multi-row INSERT with rewriteBatchedStatements).
+     */
+    static void insertItems(Connection conn, int orderId, List<OrderItem> items) throws SQLException {
+        String itemSql = "INSERT INTO order_items (orderId, productId, quantity, price) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(itemSql)) {
+            for (OrderItem item : items) {
+                pstmt.setInt(1, orderId);
+                pstmt.setInt(2, item.getProductId());
+                pstmt.setInt(3, item.getQuantity());
+                pstmt.setDouble(4, item.getPrice());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    static boolean updateStatus(Connection conn, int orderId, Order.Status newStatus) throws SQLException {
+        String sql = "UPDATE orders SET status = ? WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, newStatus.name());
+            pstmt.setInt(2, orderId);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+}
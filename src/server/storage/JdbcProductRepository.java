@@ -0,0 +1,515 @@
+package server.storage;
+
+import common.Product;
+import common.ProductFilter;
+import common.ProductSort;
+import server.DatabaseManager;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * MySQL implementation of {@link ProductRepository}.
+ * The static helpers that take a Connection are also used by the in-memory engine's write-behind queue.
+ */
+class JdbcProductRepository implements ProductRepository {
+
+    static final String SELECT_PRODUCTS = "SELECT p.*, c.name as categoryName FROM products p LEFT JOIN categories c ON p.categoryId = c.id";
+
+    static Product mapProduct(ResultSet rs) throws SQLException {
+        return new Product(
+                rs.getInt("id"),
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getDouble("price"),
+                rs.getInt("stockQuantity"),
+                rs.getString("categoryName"),
+                rs.getString("brand"),
+                rs.getString("size"),
+                rs.getString("color")
+        );
+    }
+
+    @Override
+    public List<Product> findAll() throws SQLException {
+        List<Product> products = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_PRODUCTS);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                products.add(mapProduct(rs));
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Keyset pagination: instead of an OFFSET, which makes MySQL read and discard every earlier row,
+     * the query seeks past the cursor's (sort key, id) pair, so every page costs the same and can
+     * use the name and price indexes.
+     */
+    @Override
+    public List<Product> findPage(ProductFilter filter, boolean categorizedOnly, ProductSort sort, ProductCursor after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder(SELECT_PRODUCTS).append(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (categorizedOnly) {
+            sql.append(" AND c.id IS NOT NULL");
+        }
+        if (filter.getCategory() != null) {
+            sql.append(" AND c.name = ?");
+            params.add(filter.getCategory());
+        }
+        if (filter.getBrand() != null) {
+            sql.append(" AND p.brand = ?");
+            params.add(filter.getBrand());
+        }
+        if (filter.getSize() != null) {
+            sql.append(" AND p.size = ?");
+            params.add(filter.getSize());
+        }
+        if (filter.getColor() != null) {
+            sql.append(" AND p.color = ?");
+            params.add(filter.getColor());
+        }
+        if (filter.getMinPrice() != null) {
+            sql.append(" AND p.price >= ?");
+            params.add(BigDecimal.valueOf(filter.getMinPrice()));
+        }
+        if (filter.getMaxPrice() != null) {
+            sql.append(" AND p.price <= ?");
+            params.add(BigDecimal.valueOf(filter.getMaxPrice()));
+        }
+        if (filter.isInStockOnly()) {
+            sql.append(" AND p.stockQuantity > 0");
+        }
+        switch (sort) {
+            case NAME:
+                if (after != null) {
+                    sql.append(" AND (p.name > ? OR (p.name = ? AND p.id > ?))");
+                    Collections.addAll(params, after.getName(), after.getName(), after.getId());
+                }
+                sql.append(" ORDER BY p.name, p.id");
+                break;
+            case PRICE_LOW_TO_HIGH:
+                if (after != null) {
+                    BigDecimal price = BigDecimal.valueOf(after.getPrice());
+                    sql.append(" AND (p.price > ? OR (p.price = ? AND p.id > ?))");
+                    Collections.addAll(params, price, price, after.getId());
+                }
+                sql.append(" ORDER BY p.price, p.id");
+                break;
+            case PRICE_HIGH_TO_LOW:
+                if (after != null) {
+                    BigDecimal price = BigDecimal.valueOf(after.getPrice());
+                    sql.append(" AND (p.price < ? OR (p.price = ? AND p.id < ?))");
+                    Collections.addAll(params, price, price, after.getId());
+                }
+                sql.append(" ORDER BY p.price DESC, p.id DESC");
+                break;
+            default:
+                if (after != null) {
+                    sql.append(" AND p.id > ?");
+                    params.add(after.getId());
+                }
+                sql.append(" ORDER BY p.id");
+        }
+        sql.append(" LIMIT ?");
+        params.add(limit);
+
+        List<Product> products = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapProduct(rs));
+                }
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public Product findById(int productId) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_PRODUCTS + " WHERE p.id = ?")) {
+            pstmt.setInt(1, productId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapProduct(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public List<Product> findByIds(Collection<Integer> productIds) throws SQLException {
+        List<Product> products = new ArrayList<>();
+        if (productIds.isEmpty()) {
+            return products;
+        }
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_PRODUCTS + " WHERE p.id IN (" + placeholders(productIds.size()) + ")")) {
+            int i = 1;
+            for (Integer productId : productIds) {
+                pstmt.setInt(i++, productId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapProduct(rs));
+                }
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public int findStock(int productId) throws SQLException {
+        String sql = "SELECT stockQuantity FROM products WHERE id = ?";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, productId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt("stockQuantity") : -1;
+            }
+        }
+    }
+
+    @Override
+    public int add(Product product) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            return insert(conn, product, false);
+        }
+    }
+
+    @Override
+    public boolean update(Product product) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            return update(conn, product);
+        }
+    }
+
+    @Override
+    public boolean updateStock(int productId, int newQuantity) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            return updateStock(conn, productId, newQuantity);
+        }
+    }
+
+    @Override
+    public boolean delete(int productId) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            return delete(conn, productId);
+        }
+    }
+
+    @Override
+    public int[] addAll(List<Product> products) throws SQLException {
+        if (products.isEmpty()) {
+            return new int[0];
+        }
+        return inTransaction(conn -> insertAll(conn, products, false));
+    }
+
+    @Override
+    public Set<Integer> updateAll(List<Product> products) throws SQLException {
+        if (products.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return inTransaction(conn -> {
+            List<Integer> productIds = new ArrayList<>(products.size());
+            for (Product product : products) {
+                productIds.add(product.getId());
+            }
+            Set<Integer> existing = lockExisting(conn, productIds);
+            List<Product> toUpdate = new ArrayList<>(existing.size());
+            for (Product product : products) {
+                if (existing.contains(product.getId())) {
+                    toUpdate.add(product);
+                }
+            }
+            updateAll(conn, toUpdate);
+            return existing;
+        });
+    }
+
+    @Override
+    public Set<Integer> updateStocks(Map<Integer, Integer> quantities) throws SQLException {
+        if (quantities.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return inTransaction(conn -> {
+            Set<Integer> existing = lockExisting(conn, quantities.keySet());
+            Map<Integer, Integer> toUpdate = new TreeMap<>(quantities);
+            toUpdate.keySet().retainAll(existing);
+            updateStocks(conn, toUpdate);
+            return existing;
+        });
+    }
+
+    @Override
+    public boolean isOrdered(int productId) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM order_items WHERE productId = ?";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, productId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    @Override
+    public int count() throws SQLException {
+        return JdbcStorageEngine.count("SELECT COUNT(*) FROM products");
+    }
+
+    // --- Connection-level helpers ---
+
+    /**
+     * Inserts a product. The category is resolved by name; an unknown name leaves it unassigned.
+     * @param withId true to insert the product's own ID instead of letting MySQL generate one.
+     * @return the product's ID.
+     */
+    static int insert(Connection conn, Product product, boolean withId) throws SQLException {
+        String sql = withId
+                ? "INSERT INTO products (name, description, price, stockQuantity, categoryId, brand, size, color, id) VALUES (?, ?, ?, ?, (SELECT id FROM categories WHERE name = ?), ?, ?, ?, ?)"
+                : "INSERT INTO products (name, description, price, stockQuantity, categoryId, brand, size, color) VALUES (?, ?, ?, ?, (SELECT id FROM categories WHERE name = ?), ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, product.getName());
+            pstmt.setString(2, product.getDescription());
+            pstmt.setDouble(3, product.getPrice());
+            pstmt.setInt(4, product.getStockQuantity());
+            pstmt.setString(5, product.getCategory());
+            pstmt.setString(6, product.getBrand());
+            pstmt.setString(7, product.getSize());
+            pstmt.setString(8, product.getColor());
+            if (withId) {
+                pstmt.setInt(9, product.getId());
+            }
+            pstmt.executeUpdate();
+            if (withId) {
+                return product.getId();
+            }
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return keys.getInt(1);
+                }
+            }
+            throw new SQLException("Inserting product '" + product.getName() + "' did not return an ID.");
+        }
+    }
+
+    static boolean update(Connection conn, Product product) throws SQLException {
+        String sql = "UPDATE products SET name = ?, description = ?, price = ?, stockQuantity = ?, categoryId = (SELECT id FROM categories WHERE name = ?), brand = ?, size = ?, color = ? WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, product.getName());
+            pstmt.setString(2, product.getDescription());
+            pstmt.setDouble(3, product.getPrice());
+            pstmt.setInt(4, product.getStockQuantity());
+            pstmt.setString(5, product.getCategory());
+            pstmt.setString(6, product.getBrand());
+            pstmt.setString(7, product.getSize());
+            pstmt.setString(8, product.getColor());
+            pstmt.setInt(9, product.getId());
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    static boolean updateStock(Connection conn, int productId, int newQuantity) throws SQLException {
+        String sql = "UPDATE products SET stockQuantity = ? WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, newQuantity);
+            pstmt.setInt(2, productId);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    static boolean delete(Connection conn, int productId) throws SQLException {
+        String sql = "DELETE FROM products WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, productId);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Inserts products as one batch, which the driver sends as a single multi-row INSERT
+     * (rewriteBatchedStatements). Categories are resolved by name up front instead of with a
+     * subquery per row, which would keep the driver from rewriting the batch.
+     * @param withId true to insert the products' own IDs instead of letting MySQL generate them.
+     * @return the products' IDs, in order.
+     */
+    static int[] insertAll(Connection conn, List<Product> products, boolean withId) throws SQLException {
+        Map<String, Integer> categoryIds = findCategoryIds(conn);
+        String sql = withId
+                ? "INSERT INTO products (name, description, price, stockQuantity, categoryId, brand, size, color, id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+                : "INSERT INTO products (name, description, price, stockQuantity, categoryId, brand, size, color) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        int[] ids = new int[products.size()];
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Product product : products) {
+                bindDetails(pstmt, product, categoryIds);
+                if (withId) {
+                    pstmt.setInt(9, product.getId());
+                }
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            if (withId) {
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = products.get(i).getId();
+                }
+                return ids;
+            }
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                int i = 0;
+                while (i < ids.length && keys.next()) {
+                    ids[i++] = keys.getInt(1);
+                }
+                if (i < ids.length) {
+                    throw new SQLException("Inserting " + ids.length + " products returned only " + i + " IDs.");
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Replaces the details of existing products as one batch.
+     */
+    static void updateAll(Connection conn, List<Product> products) throws SQLException {
+        if (products.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> categoryIds = findCategoryIds(conn);
+        String sql = "UPDATE products SET name = ?, description = ?, price = ?, stockQuantity = ?, categoryId = ?, brand = ?, size = ?, color = ? WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Product product : products) {
+                bindDetails(pstmt, product, categoryIds);
+                pstmt.setInt(9, product.getId());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Sets the stock of existing products (product ID -> new quantity) as one batch.
+     */
+    static void updateStocks(Connection conn, Map<Integer, Integer> quantities) throws SQLException {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE products SET stockQuantity = ? WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                pstmt.setInt(1, entry.getValue());
+                pstmt.setInt(2, entry.getKey());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // Binds parameters 1 to 8: every column except the ID.
+    private static void bindDetails(PreparedStatement pstmt, Product product, Map<String, Integer> categoryIds) throws SQLException {
+        pstmt.setString(1, product.getName());
+        pstmt.setString(2, product.getDescription());
+        pstmt.setDouble(3, product.getPrice());
+        pstmt.setInt(4, product.getStockQuantity());
+        Integer categoryId = product.getCategory() != null ? categoryIds.get(product.getCategory()) : null;
+        if (categoryId != null) {
+            pstmt.setInt(5, categoryId);
+        } else {
+            pstmt.setNull(5, Types.INTEGER); // An unknown name leaves the product unassigned, as in insert().
+        }
+        pstmt.setString(6, product.getBrand());
+        pstmt.setString(7, product.getSize());
+        pstmt.setString(8, product.getColor());
+    }
+
+    /**
+     * Returns category name -> ID. Names are matched ignoring case, like the column's collation.
+     */
+    private static Map<String, Integer> findCategoryIds(Connection conn) throws SQLException {
+        Map<String, Integer> categoryIds = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id, name FROM categories");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                categoryIds.put(rs.getString("name"), rs.getInt("id"));
+            }
+        }
+        return categoryIds;
+    }
+
+    /**
+     * Locks the rows of the given products that exist, in ID order, and returns their IDs.
+     * Checking up front is exact, unlike the update counts of a rewritten batch.
+     */
+    private static Set<Integer> lockExisting(Connection conn, Collection<Integer> productIds) throws SQLException {
+        Set<Integer> distinct = new TreeSet<>(productIds);
+        Set<Integer> existing = new HashSet<>();
+        String sql = "SELECT id FROM products WHERE id IN (" + placeholders(distinct.size()) + ") ORDER BY id FOR UPDATE";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (Integer productId : distinct) {
+                pstmt.setInt(i++, productId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getInt("id"));
+                }
+            }
+        }
+        return existing;
+    }
+
+    private interface Work<T> {
+        T apply(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Runs work in one transaction on a pooled connection: committed if it returns, rolled back if it throws.
+     */
+    private static <T> T inTransaction(Work<T> work) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.apply(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    e.addSuppressed(ex);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true); // Connections go back to the pool in auto-commit mode.
+            }
+        }
+    }
+
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package server.storage;
+
+import server.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Storage engine that reads and writes MySQL directly through {@link DatabaseManager}.
+ */
+public class JdbcStorageEngine implements StorageEngine {
+
+    private final JdbcProductRepository products = new JdbcProductRepository();
+    private final JdbcCategoryRepository categories = new JdbcCategoryRepository();
+    private final JdbcCustomerRepository customers = new JdbcCustomerRepository();
+    private final JdbcOrderRepository orders = new JdbcOrderRepository();
+    private final JdbcCartRepository carts = new JdbcCartRepository();
+
+    @Override
+    public ProductRepository products() {
+        return products;
+    }
+
+    @Override
+    public CategoryRepository categories() {
+        return categories;
+    }
+
+    @Override
+    public CustomerRepository customers() {
+        return customers;
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+    @Override
+    public CartRepository carts() {
+        return carts;
+    }
+
+    @Override
+    public String getName() {
+        return "jdbc";
+    }
+
+    @Override
+    public void shutdown() {
+        // Connections belong to DatabaseManager's pool; nothing to release here.
+    }
+
+    static int count(String sql) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
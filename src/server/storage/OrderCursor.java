@@ -0,0 +1,93 @@
+package server.storage;
+
+import common.Order;
+import common.OrderPage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The position after the last order of a page in an order listing (keyset pagination).
+ * Listings are ordered newest first by (orderDate, id); a cursor holds both values of the
+ * page's last order, so the next page continues right after it. Clients see cursors only as
+ * opaque strings.
+ */
+public final class OrderCursor {
+
+    /**
+     * Newest first, the order used by every order listing.
+     */
+    public static final Comparator<Order> NEWEST_FIRST =
+            Comparator.comparing(Order::getOrderDate).thenComparingInt(Order::getId).reversed();
+
+    private static final String VERSION = "1";
+
+    private final long orderDate; // In milliseconds.
+    private final int id;
+
+    private OrderCursor(long orderDate, int id) {
+        this.orderDate = orderDate;
+        this.id = id;
+    }
+
+    public static OrderCursor after(Order order) {
+        return new OrderCursor(order.getOrderDate().getTime(), order.getId());
+    }
+
+    public long getOrderDate() {
+        return orderDate;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns true if the order comes after this cursor, i.e. it is older.
+     */
+    public boolean precedes(Order order) {
+        long date = order.getOrderDate().getTime();
+        return date < orderDate || (date == orderDate && order.getId() < id);
+    }
+
+    public String encode() {
+        String raw = VERSION + "|" + orderDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encode()}.
+     * @return null for a null or empty cursor, i.e. the first page.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public static OrderCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Unsupported cursor version.");
+            }
+            return new OrderCursor(Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+        } catch (IllegalArgumentException e) { // Also covers NumberFormatException and bad Base64.
+            throw new IllegalArgumentException("Invalid page cursor.", e);
+        }
+    }
+
+    /**
+     * Builds a page from the rows of a query that asked for pageSize + 1 orders.
+     * Page sizes are limited the same way as for products, see {@link ProductCursor#pageSize(int)}.
+     */
+    public static OrderPage toPage(List<Order> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new OrderPage(new ArrayList<>(rows), null);
+        }
+        List<Order> page = new ArrayList<>(rows.subList(0, pageSize));
+        return new OrderPage(page, after(page.get(pageSize - 1)).encode());
+    }
+}
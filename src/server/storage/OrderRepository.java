@@ -0,0 +1,75 @@
+package server.storage;
+
+import common.Order;
+import common.OrderFilter;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data access for orders, their line items and the sales figures derived from them.
+ */
+public interface OrderRepository {
+
+    /**
+     * Turns a cart into an order in one transaction: checks stock for every line, inserts the
+     * order and its items at current prices and decrements stock.
+     * @param cart product ID to quantity.
+     * @return the created order, including its items.
+     * @throws SQLException if a product is missing, stock is insufficient or the transaction fails;
+     *         nothing is changed in that case.
+     */
+    Order placeOrder(int customerId, Map<Integer, Integer> cart) throws SQLException;
+
+    /**
+     * Returns the order with the given ID (without items), or null if it does not exist.
+     */
+    Order findById(int orderId) throws SQLException;
+
+    /**
+     * Returns all orders of one customer with their items, newest first.
+     */
+    List<Order> findByCustomer(int customerId) throws SQLException;
+
+    /**
+     * Returns all orders with their items, newest first.
+     */
+    List<Order> findAll() throws SQLException;
+
+    /**
+     * Returns up to limit orders with their items, newest first, starting right after the cursor.
+     * @param customerId the customer whose orders to return, or null for all customers.
+     * @param after the position to continue from, or null for the first page.
+     */
+    List<Order> findPage(Integer customerId, OrderFilter filter, OrderCursor after, int limit) throws SQLException;
+
+    /**
+     * Opens a forward-only read of all orders that match the filter, with their items, oldest first.
+     * @param fetchSize the number of rows to read from the database per round trip.
+     */
+    OrderStream stream(OrderFilter filter, int fetchSize) throws SQLException;
+
+    /**
+     * Changes the status of an order.
+     * @return false if the order does not exist.
+     */
+    boolean updateStatus(int orderId, Order.Status newStatus) throws SQLException;
+
+    int count() throws SQLException;
+
+    /**
+     * Returns the sum of all delivered orders.
+     */
+    double sumDeliveredRevenue() throws SQLException;
+
+    /**
+     * Returns the units sold per product and UTC day, over orders of any status.
+     */
+    List<DailyFigure> findDailyUnitsSold() throws SQLException;
+
+    /**
+     * Returns the spending per customer and UTC day, over delivered orders.
+     */
+    List<DailyFigure> findDailyDeliveredSpending() throws SQLException;
+}
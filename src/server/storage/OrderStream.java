@@ -0,0 +1,23 @@
+package server.storage;
+
+import common.Order;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * A forward-only read of many orders with their items, oldest first (by ID), for exports.
+ * Only the orders of the current chunk are held in memory, however many orders the read covers.
+ * A stream must be closed; the JDBC stream holds a pooled connection until then.
+ */
+public interface OrderStream extends AutoCloseable {
+
+    /**
+     * Returns up to max following orders with their items.
+     * @return an empty list once every order has been returned.
+     */
+    List<Order> next(int max) throws SQLException;
+
+    @Override
+    void close() throws SQLException;
+}
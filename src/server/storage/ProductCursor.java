@@ -0,0 +1,161 @@
+package server.storage;
+
+import common.Product;
+import common.ProductPage;
+import common.ProductSort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The position after the last product of a page in a sorted product listing (keyset pagination).
+ * A cursor holds the sort key and ID of that product, so the next page starts right after it
+ * no matter how many products precede it, and rows inserted or deleted earlier in the listing
+ * do not shift the page boundaries. Clients see cursors only as opaque strings.
+ */
+public final class ProductCursor {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String VERSION = "1";
+
+    private final ProductSort sort;
+    private final int id;
+    private final String name; // Set for ProductSort.NAME.
+    private final double price; // Set for the price orders.
+
+    private ProductCursor(ProductSort sort, int id, String name, double price) {
+        this.sort = sort;
+        this.id = id;
+        this.name = name;
+        this.price = price;
+    }
+
+    /**
+     * Returns the cursor that points just after the given product.
+     */
+    public static ProductCursor after(Product product, ProductSort sort) {
+        return new ProductCursor(sort, product.getId(), product.getName(), product.getPrice());
+    }
+
+    public ProductSort getSort() {
+        return sort;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * Returns true if the product comes after this cursor in the listing order.
+     */
+    public boolean precedes(Product product) {
+        // A product that carries only the cursor's sort key is enough for the comparator.
+        Product key = new Product(id, name, null, price, 0, null, null, null, null);
+        return comparator(sort).compare(product, key) > 0;
+    }
+
+    /**
+     * Returns the listing order as a comparator. It agrees with the ORDER BY clause of the JDBC
+     * engine, except that names are compared by Java string order rather than by the column collation.
+     */
+    public static Comparator<Product> comparator(ProductSort sort) {
+        return sort.comparator();
+    }
+
+    // --- Encoding ---
+
+    public String encode() {
+        String key;
+        switch (sort) {
+            case NAME:
+                key = name;
+                break;
+            case PRICE_LOW_TO_HIGH:
+            case PRICE_HIGH_TO_LOW:
+                key = Double.toString(price);
+                break;
+            default:
+                key = "";
+        }
+        String raw = VERSION + "|" + sort.name() + "|" + id + "|" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encode()}.
+     * @return null for a null or empty cursor, i.e. the first page.
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for a different sort order.
+     */
+    public static ProductCursor decode(String cursor, ProductSort expectedSort) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String[] parts;
+        ProductSort sort;
+        int id;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            parts = raw.split("\\|", 4);
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Unsupported cursor version.");
+            }
+            sort = ProductSort.valueOf(parts[1]);
+            id = Integer.parseInt(parts[2]);
+        } catch (IllegalArgumentException e) { // Also covers NumberFormatException and bad Base64.
+            throw new IllegalArgumentException("Invalid page cursor.", e);
+        }
+        if (sort != expectedSort) {
+            throw new IllegalArgumentException("The page cursor belongs to a different sort order.");
+        }
+        switch (sort) {
+            case NAME:
+                return new ProductCursor(sort, id, parts[3], 0);
+            case PRICE_LOW_TO_HIGH:
+            case PRICE_HIGH_TO_LOW:
+                try {
+                    return new ProductCursor(sort, id, null, Double.parseDouble(parts[3]));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid page cursor.", e);
+                }
+            default:
+                return new ProductCursor(sort, id, null, 0);
+        }
+    }
+
+    // --- Page assembly ---
+
+    /**
+     * Limits a requested page size to 1..MAX_PAGE_SIZE; zero or less selects the default.
+     */
+    public static int pageSize(int requested) {
+        if (requested <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Builds a page from the rows of a query that asked for pageSize + 1 rows. The extra row only
+     * tells whether another page exists; it is not returned.
+     */
+    public static ProductPage toPage(List<Product> rows, int pageSize, ProductSort sort) {
+        if (rows.size() <= pageSize) {
+            return new ProductPage(new ArrayList<>(rows), null);
+        }
+        List<Product> page = new ArrayList<>(rows.subList(0, pageSize));
+        return new ProductPage(page, after(page.get(pageSize - 1), sort).encode());
+    }
+}
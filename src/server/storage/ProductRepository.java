@@ -0,0 +1,94 @@
+package server.storage;
+
+import common.Product;
+import common.ProductFilter;
+import common.ProductSort;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data access for the product catalog.
+ * Products are exchanged as {@link Product} DTOs; the category is identified by its name.
+ */
+public interface ProductRepository {
+
+    /**
+     * Returns every product, including products whose category no longer exists.
+     */
+    List<Product> findAll() throws SQLException;
+
+    /**
+     * Returns up to limit products that match the filter, in the given order, starting right after the cursor.
+     * @param categorizedOnly true to skip products without a category, as in the customer view.
+     * @param after the position to continue from, or null for the first page.
+     */
+    List<Product> findPage(ProductFilter filter, boolean categorizedOnly, ProductSort sort, ProductCursor after, int limit) throws SQLException;
+
+    /**
+     * Returns the product with the given ID, or null if it does not exist.
+     */
+    Product findById(int productId) throws SQLException;
+
+    /**
+     * Returns the products with the given IDs. Unknown IDs are skipped.
+     */
+    List<Product> findByIds(Collection<Integer> productIds) throws SQLException;
+
+    /**
+     * Returns the current stock of a product, or -1 if it does not exist.
+     */
+    int findStock(int productId) throws SQLException;
+
+    /**
+     * Adds a new product and returns its generated ID.
+     */
+    int add(Product product) throws SQLException;
+
+    /**
+     * Replaces all details of an existing product.
+     * @return false if the product does not exist.
+     */
+    boolean update(Product product) throws SQLException;
+
+    /**
+     * Sets the stock quantity of a product.
+     * @return false if the product does not exist.
+     */
+    boolean updateStock(int productId, int newQuantity) throws SQLException;
+
+    /**
+     * Adds several products in one transaction: either all of them are added or, if any fails, none.
+     * @return the generated IDs, in the order of the products.
+     */
+    int[] addAll(List<Product> products) throws SQLException;
+
+    /**
+     * Replaces all details of several products in one transaction. Products that do not exist are skipped.
+     * @return the IDs of the products that were updated.
+     */
+    Set<Integer> updateAll(List<Product> products) throws SQLException;
+
+    /**
+     * Sets the stock quantities of several products (product ID -> new quantity) in one transaction.
+     * Products that do not exist are skipped.
+     * @return the IDs of the products that were updated.
+     */
+    Set<Integer> updateStocks(Map<Integer, Integer> quantities) throws SQLException;
+
+    /**
+     * Deletes a product.
+     * @return false if the product does not exist.
+     */
+    boolean delete(int productId) throws SQLException;
+
+    /**
+     * Returns true if any order contains the product.
+     */
+    boolean isOrdered(int productId) throws SQLException;
+
+    int count() throws SQLException;
+}
@@ -0,0 +1,22 @@
+package server.storage;
+
+/**
+ * A named figure in a sales ranking, e.g. a product and its units sold or a customer and their spending.
+ */
+public final class SalesFigure {
+    private final String name;
+    private final double value;
+
+    public SalesFigure(String name, double value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getValue() {
+        return value;
+    }
+}
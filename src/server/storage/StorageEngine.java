@@ -0,0 +1,52 @@
+package server.storage;
+
+import server.ServerConfig;
+
+/**
+ * A complete set of repositories backed by one storage technology.
+ * The server talks to storage only through this interface, so the engine can be chosen in
+ * server.properties with store.engine:
+ * <ul>
+ *     <li>jdbc - every call goes to MySQL (the default).</li>
+ *     <li>memory - reads are served from memory; with store.memory.persist=true the data is loaded
+ *     from MySQL at startup and every write is persisted asynchronously, otherwise the server runs
+ *     with no database at all.</li>
+ * </ul>
+ */
+public interface StorageEngine {
+
+    ProductRepository products();
+
+    CategoryRepository categories();
+
+    CustomerRepository customers();
+
+    OrderRepository orders();
+
+    CartRepository carts();
+
+    /**
+     * A short name for logs, e.g. "jdbc".
+     */
+    String getName();
+
+    /**
+     * Flushes pending writes and releases resources. Called when the server shuts down.
+     */
+    void shutdown();
+
+    /**
+     * Creates the engine selected in the configuration.
+     */
+    static StorageEngine fromConfig(ServerConfig config) {
+        String engine = config.getString("store.engine", "jdbc");
+        switch (engine.toLowerCase()) {
+            case "jdbc":
+                return new JdbcStorageEngine();
+            case "memory":
+                return InMemoryStorageEngine.fromConfig(config);
+            default:
+                throw new IllegalArgumentException("Unknown storage engine '" + engine + "'. Use 'jdbc' or 'memory'.");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package server.storage;
+
+import server.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persists writes to MySQL asynchronously, in the order they were submitted.
+ * A single writer thread drains the queue and applies up to batchSize writes per transaction.
+ * If a batch fails, its writes are retried one by one, each in its own transaction, so that a single
+ * bad write cannot hold back the others and a write of several statements is never half applied. The queue is bounded: when MySQL falls behind, submit() blocks the caller instead of
+ * letting memory grow without limit.
+ */
+public class WriteBehindQueue {
+
+    /**
+     * One database write, applied on a connection whose transaction is managed by the queue.
+     */
+    @FunctionalInterface
+    public interface Write {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class PendingWrite {
+        final String description;
+        final Write write;
+
+        PendingWrite(String description, Write write) {
+            this.description = description;
+            this.write = write;
+        }
+    }
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final BlockingQueue<PendingWrite> queue;
+    private final int batchSize;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    public WriteBehindQueue(int capacity, int batchSize) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.writer = new Thread(this::run, "write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a write. Blocks while the queue is full.
+     * @param description a short text used in error messages, e.g. "update stock of product 4".
+     */
+    public void submit(String description, Write write) {
+        if (!running) {
+            throw new IllegalStateException("Write-behind queue has been shut down.");
+        }
+        try {
+            queue.put(new PendingWrite(description, write));
+            submitted.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing write: " + description, e);
+        }
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                applyBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutdown asked us to stop waiting; the loop condition decides whether to drain further.
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void applyBatch(List<PendingWrite> batch) {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try {
+                applyInTransaction(conn, batch);
+                written.add(batch.size());
+                batches.increment();
+                return;
+            } catch (SQLException e) {
+                System.err.println("Write-behind batch failed, retrying writes individually: " + e.getMessage());
+            }
+        } catch (SQLException e) {
+            System.err.println("Write-behind could not open a connection, retrying writes individually: " + e.getMessage());
+        }
+        for (PendingWrite pending : batch) {
+            applyWithRetry(pending);
+        }
+    }
+
+    /**
+     * Retries one write in its own transaction. Several writes run more than one statement (an order
+     * with its items and stock updates, a cart's DELETE and INSERT), so a failed attempt must not leave
+     * its first statements committed.
+     */
+    private void applyWithRetry(PendingWrite pending) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try (Connection conn = DatabaseManager.getConnection()) {
+                applyInTransaction(conn, Collections.singletonList(pending));
+                written.increment();
+                return;
+            } catch (SQLException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    failed.increment();
+                    System.err.println("Write-behind gave up on '" + pending.description + "': " + e.getMessage());
+                    return;
+                }
+                try {
+                    Thread.sleep(100L << attempt);
+                } catch (InterruptedException ie) {
+                    // Shutdown asked us to hurry: retry right away and leave the flag for run() to see.
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    // Applies the writes and commits them together, or rolls all of them back.
+    private static void applyInTransaction(Connection conn, List<PendingWrite> writes) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            for (PendingWrite pending : writes) {
+                pending.write.apply(conn);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Stops accepting writes and waits up to the given time for queued writes to reach MySQL.
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            System.err.println("Write-behind shut down with " + queue.size() + " writes not persisted.");
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+}